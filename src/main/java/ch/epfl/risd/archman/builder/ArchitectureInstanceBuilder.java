@@ -1,9 +1,18 @@
 package ch.epfl.risd.archman.builder;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.Semaphore;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.EcoreUtil.Copier;
+import org.eclipse.emf.ecore.util.InternalEList;
 
 import ch.epfl.risd.archman.checker.BIPChecker;
 import ch.epfl.risd.archman.exceptions.ArchitectureExtractorException;
@@ -43,10 +52,12 @@ import ujf.verimag.bip.Core.Behaviors.Action;
 import ujf.verimag.bip.Core.Behaviors.AtomType;
 import ujf.verimag.bip.Core.Behaviors.Behavior;
 import ujf.verimag.bip.Core.Behaviors.Binding;
+import ujf.verimag.bip.Core.Behaviors.BipType;
 import ujf.verimag.bip.Core.Behaviors.ComponentType;
 import ujf.verimag.bip.Core.Behaviors.DataParameter;
 import ujf.verimag.bip.Core.Behaviors.DefinitionBinding;
 import ujf.verimag.bip.Core.Behaviors.Expression;
+import ujf.verimag.bip.Core.Behaviors.NamedElement;
 import ujf.verimag.bip.Core.Behaviors.PetriNet;
 import ujf.verimag.bip.Core.Behaviors.Port;
 import ujf.verimag.bip.Core.Behaviors.PortDefinition;
@@ -101,15 +112,55 @@ public class ArchitectureInstanceBuilder {
 		DEFINITION_BINDING, EXPORT_BINDING, CONTRACT_BINDING;
 	}
 
-	/****************************************************************************/
-	/* VARIABLES */
-	/***************************************************************************/
-	public static final Object lock = new Object();
-
 	/****************************************************************************/
 	/* PRIVATE(UTILITY) METHODS */
 	/****************************************************************************/
 
+	/**
+	 * This method collects the names of the given elements, in one pass.
+	 * 
+	 * @param elements
+	 *            - the named elements
+	 * @return the set of the names of the elements
+	 */
+	protected static Set<String> collectNames(List<? extends NamedElement> elements) {
+		/* The set of names */
+		Set<String> names = new HashSet<String>(elements.size() * 2);
+
+		/* Iterate all elements */
+		for (NamedElement element : elements) {
+			names.add(element.getName());
+		}
+
+		return names;
+	}
+
+	/**
+	 * This method finds the names which are shared by more than one element
+	 * in the given list, in one pass over the list.
+	 * 
+	 * @param elements
+	 *            - the named elements for checking
+	 * @return the set of duplicated names, in the order of their second
+	 *         appearance, which is empty if there are no duplicates
+	 */
+	protected static Set<String> findDuplicateNames(List<? extends NamedElement> elements) {
+		/* The names seen so far */
+		Set<String> seen = new HashSet<String>(elements.size() * 2);
+		/* The names seen more than once */
+		Set<String> duplicates = new LinkedHashSet<String>();
+
+		/* Iterate all elements */
+		for (NamedElement element : elements) {
+			/* If the name was already seen */
+			if (!seen.add(element.getName())) {
+				duplicates.add(element.getName());
+			}
+		}
+
+		return duplicates;
+	}
+
 	/**
 	 * This method checks whether in the list of Variables there are duplicates,
 	 * i.e. Variables with a same name.
@@ -119,18 +170,7 @@ public class ArchitectureInstanceBuilder {
 	 * @return true if there are duplicates, false otherwise
 	 */
 	protected static boolean checkDuplicateVariables(List<Variable> variables) {
-
-		/* Iterate all variables */
-		for (int i = 0; i < variables.size(); i++) {
-			for (int j = i + 1; j < variables.size(); j++) {
-				/* If there are two variables with the same name */
-				if (variables.get(i).getName().equals(variables.get(j).getName())) {
-					return true;
-				}
-			}
-		}
-
-		return false;
+		return !findDuplicateNames(variables).isEmpty();
 	}
 
 	/**
@@ -142,18 +182,7 @@ public class ArchitectureInstanceBuilder {
 	 * @return true if there are duplicates, false otherwise
 	 */
 	protected static boolean checkDuplicatePorts(List<Port> ports) {
-
-		/* Iterate ports */
-		for (int i = 0; i < ports.size(); i++) {
-			for (int j = i + 1; j < ports.size(); j++) {
-				/* If there are two ports with a same name */
-				if (ports.get(i).getName().equals(ports.get(j).getName())) {
-					return true;
-				}
-			}
-		}
-
-		return false;
+		return !findDuplicateNames(ports).isEmpty();
 	}
 
 	/**
@@ -165,18 +194,21 @@ public class ArchitectureInstanceBuilder {
 	 * @return true if there are duplicates, false otherwise
 	 */
 	protected static boolean checkDuplicateStates(List<State> states) {
+		return !findDuplicateNames(states).isEmpty();
+	}
 
-		/* Iterate all states */
-		for (int i = 0; i < states.size(); i++) {
-			for (int j = i + 1; j < states.size(); j++) {
-				/* If there are two states with the same name */
-				if (states.get(i).getName().equals(states.get(j).getName())) {
-					return true;
-				}
-			}
-		}
+	/**
+	 * @param transition
+	 *            - the transition
+	 * @return the name of the port labeling the transition
+	 */
+	protected static String getTransitionPortName(Transition transition) {
+		/* Get the Reference to the Port Definition */
+		PortDefinitionReference reference = (PortDefinitionReference) transition.getTrigger();
+		/* Get the Port Definition from the Reference */
+		PortDefinition definition = reference.getTarget();
 
-		return false;
+		return definition.getName();
 	}
 
 	/**
@@ -191,91 +223,84 @@ public class ArchitectureInstanceBuilder {
 	 *         otherwise
 	 */
 	protected static boolean checkTransitionPorts(Transition transition, List<Port> ports) {
+		return collectNames(ports).contains(getTransitionPortName(transition));
+	}
 
-		/* Get the Reference to the Port Definition */
-		PortDefinitionReference reference = (PortDefinitionReference) transition.getTrigger();
-		/* Get the Port Definition from the Reference */
-		PortDefinition definition = reference.getTarget();
-		/* Get the name of the Port */
-		String portDefinitionName = definition.getName();
-
-		/* Iterate Ports */
-		for (Port p : ports) {
-			/* Port types are same */
-			if (p.getName().equals(portDefinitionName)) {
-				return true;
+	/**
+	 * This method finds the ports labeling the transitions, which are not in
+	 * the given set of port names. Every transition is checked only once.
+	 * 
+	 * @param transitions
+	 *            - the transitions for checking
+	 * @param portNames
+	 *            - the names of the ports included in the atomic type
+	 * @return the set of undefined port names, which is empty if all of the
+	 *         ports are defined
+	 */
+	protected static Set<String> findUndefinedTransitionPorts(List<Transition> transitions, Set<String> portNames) {
+		/* The undefined port names */
+		Set<String> undefined = new LinkedHashSet<String>();
+
+		/* Iterate all transitions */
+		for (Transition transition : transitions) {
+			String portName = getTransitionPortName(transition);
+			if (!portNames.contains(portName)) {
+				undefined.add(portName);
 			}
 		}
 
-		return false;
-
+		return undefined;
 	}
 
 	/**
+	 * This method checks whether the origin and the destination States of one
+	 * transition are in the list of States
 	 * 
 	 * @param transition
+	 *            - the transition for checking
 	 * @param states
-	 * @return
+	 *            - the list of States
+	 * @return true if all origin and destination States are in the list, false
+	 *         otherwise
 	 */
 	protected static boolean checkTransitionStates(Transition transition, List<State> states) {
+		return findUndefinedTransitionStates(Collections.singletonList(transition), collectNames(states)).isEmpty();
+	}
 
-		/* Whether the list of States includes all origin States */
-		boolean containsOriginStates = false;
-		/* Whether the list of States includes all destination States */
-		boolean containsDestinationStates = false;
-
-		/* Get all origin States of the Transition */
-		List<State> originStates = transition.getOrigin();
-		/* Get all target States of the Transition */
-		List<State> destinationStates = transition.getDestination();
-
-		/* The number of origin States */
-		int numOriginStates = originStates.size();
-		/* The number of destination States */
-		int numDestinationStates = destinationStates.size();
-
-		/* How much of the origin States there are in the list of all States */
-		int countOriginStates = 0;
-		/* How much of the dest. States there are in the list of all States */
-		int countDestinationStates = 0;
-
-		/* Check origin states */
-		for (int i = 0; i < states.size(); i++) {
-			for (int j = 0; j < originStates.size(); j++) {
-				/* Same states */
-				if (originStates.get(j).getName().equals(states.get(i).getName())) {
-					countOriginStates++;
+	/**
+	 * This method finds the origin and the destination States of the
+	 * transitions, which are not in the given set of State names. Every State
+	 * of every transition is checked only once.
+	 * 
+	 * @param transitions
+	 *            - the transitions for checking
+	 * @param stateNames
+	 *            - the names of all States
+	 * @return the set of undefined State names, which is empty if all of the
+	 *         States are defined
+	 */
+	protected static Set<String> findUndefinedTransitionStates(List<Transition> transitions, Set<String> stateNames) {
+		/* The undefined State names */
+		Set<String> undefined = new LinkedHashSet<String>();
+
+		/* Iterate all transitions */
+		for (Transition transition : transitions) {
+			/* Check origin States */
+			for (State state : transition.getOrigin()) {
+				if (!stateNames.contains(state.getName())) {
+					undefined.add(state.getName());
 				}
 			}
-		}
 
-		/* Check destination States */
-		for (int i = 0; i < states.size(); i++) {
-			for (int j = 0; j < destinationStates.size(); j++) {
-				/* Same states */
-				if (destinationStates.get(j).getName().equals(states.get(i).getName())) {
-					countDestinationStates++;
+			/* Check destination States */
+			for (State state : transition.getDestination()) {
+				if (!stateNames.contains(state.getName())) {
+					undefined.add(state.getName());
 				}
 			}
 		}
 
-		/*
-		 * The number of all origin States equals to the number of matched
-		 * states
-		 */
-		if (countOriginStates == numOriginStates) {
-			containsOriginStates = true;
-		}
-
-		/*
-		 * If the number of all destination States equals to the number of
-		 * matched states
-		 */
-		if (countDestinationStates == numDestinationStates) {
-			containsDestinationStates = true;
-		}
-
-		return containsOriginStates && containsDestinationStates;
+		return undefined;
 	}
 
 	/**
@@ -287,17 +312,76 @@ public class ArchitectureInstanceBuilder {
 	 * @return true if there are duplicates, false otherwise
 	 */
 	protected static boolean checkDuplicatePortParameters(List<PortParameter> portParameters) {
+		return !findDuplicateNames(portParameters).isEmpty();
+	}
 
-		/* Iterate the list of Port Parameters */
-		for (int i = 0; i < portParameters.size(); i++) {
-			for (int j = i + 1; j < portParameters.size(); j++) {
-				if (portParameters.get(i).getName().equals(portParameters.get(j).getName())) {
-					return true;
-				}
+	/**
+	 * This method creates the reference to a port of a part in the copy of a
+	 * compound type, where the part is taken from the copy by the name of the
+	 * part in the original.
+	 * 
+	 * @param copiedParts
+	 *            - the subcomponents and connectors of the copy, by name
+	 * @param partElementReference
+	 *            - the reference to the part in the original
+	 * @param port
+	 *            - the port in the original
+	 * @return the reference to the same port in the copy
+	 * @throws ArchitectureExtractorException
+	 */
+	protected static InnerPortReference copyPortReference(Map<String, Part> copiedParts,
+			PartElementReference partElementReference, Port port) throws ArchitectureExtractorException {
+		Part part = copiedParts.get(partElementReference.getTargetPart().getName());
+
+		/* The port of a subcomponent, or the exported port of a connector */
+		Port copiedPort;
+		if (part instanceof Component) {
+			copiedPort = BIPExtractor.getPortInComponentByName((Component) part, port.getName());
+		} else {
+			copiedPort = ((Connector) part).getType().getPort();
+		}
+
+		return createInnerPortReference(createPartElementReference(part), copiedPort);
+	}
+
+	/**
+	 * This method creates the interaction of one flat connector, as a string of
+	 * the ports separated by space, where the trigger ports are marked with an
+	 * apostrophe.
+	 * 
+	 * @param type
+	 *            - the type of the connector
+	 * @param actualPortParameters
+	 *            - the actual ports of the connector
+	 * @return the interaction of the connector
+	 */
+	protected static String createInteractionString(ConnectorType type,
+			List<ActualPortParameter> actualPortParameters) {
+
+		/* Take the fusion and the expression in it */
+		ACFusion acFusion = (ACFusion) type.getDefinition();
+		List<ACExpression> expressions = acFusion.getOperand();
+
+		/* Create the interaction */
+		StringBuilder interaction = new StringBuilder();
+
+		for (int i = 0; i < actualPortParameters.size(); i++) {
+			ActualPortParameter app = actualPortParameters.get(i);
+			interaction.append(((InnerPortReference) app).getTargetInstance().getTargetPart().getName() + "."
+					+ ((InnerPortReference) app).getTargetPort().getName());
+
+			ACTyping typing = (ACTyping) expressions.get(i);
+			if (typing.getType() == ACTypingKind.TRIG) {
+				interaction.append("'");
 			}
+
+			interaction.append(" ");
 		}
 
-		return false;
+		/* Cut the last space */
+		interaction.setLength(interaction.length() - 1);
+
+		return interaction.toString();
 	}
 
 	/****************************************************************************/
@@ -311,45 +395,134 @@ public class ArchitectureInstanceBuilder {
 	public static Component createComponentInstance(ArchitectureInstance architectureInstance, String name,
 			ComponentType type, CompoundType parent, boolean isCoordinator, boolean toInclude)
 			throws ArchitectureExtractorException, InvalidComponentNameException {
+		/* Check and change the model of the instance atomically */
+		synchronized (architectureInstance.getBipFileModel().getLock()) {
+			if (BIPChecker.componentExists(architectureInstance.getBipFileModel(), name)) {
+				throw new InvalidComponentNameException(
+						"Component with a name " + name + " already exists in the architecture");
+			} else {
+				/* Create the component */
+				Component component = Factories.INTERACTIONS_FACTORY.createComponent();
+				/* No notifications during a bulk build */
+				architectureInstance.getBipFileModel().silence(component);
+				/* Set name for the component */
+				component.setName(name);
+				/* Set type for the component */
+				component.setType(type);
+
+				/* if the parent is null then the default parent is the root */
+				if (parent == null) {
+					parent = architectureInstance.getBipFileModel().getRootType();
+				}
 
-		if (BIPChecker.componentExists(architectureInstance.getBipFileModel(), name)) {
-			throw new InvalidComponentNameException(
-					"Component with a name " + name + " already exists in the architecture");
-		} else {
-			/* Create the component */
-			Component component = Factories.INTERACTIONS_FACTORY.createComponent();
-			/* Set name for the component */
-			component.setName(name);
-			/* Set type for the component */
-			component.setType(type);
+				/* Set the parent, without the duplicate check in a bulk build */
+				if (architectureInstance.getBipFileModel().isBulkBuild()) {
+					((InternalEList<Component>) parent.getSubcomponent()).addUnique(component);
+				} else {
+					component.setCompoundType(parent);
+				}
+
+				if (toInclude) {
+					/*
+					 * If the component is coordinator then add its name in the list
+					 * of coordinators
+					 */
+					if (isCoordinator) {
+						architectureInstance.addCoordinator(name);
+					} else {
+						architectureInstance.addOperand(name);
+					}
+
+					/* Add port instances in the configuration file */
+					List<Port> allPorts = type.getPort();
+					for (Port p : allPorts) {
+						architectureInstance.addPort(name + "." + p.getName());
+					}
+				}
+
+				return component;
+			}
+		}
+	}
+
+	/**
+	 * Create many component instances at once. The names are checked against
+	 * the existing components only once and the components are added to the
+	 * parent together, in the order of the given map.
+	 * 
+	 * @param architectureInstance
+	 *            - the architecture instance where the components are created
+	 * @param namesToTypes
+	 *            - the name of every new component with its type
+	 * @param parent
+	 *            - the parent of the components, the root if null
+	 * @param isCoordinator
+	 *            - whether the components are coordinators or operands
+	 * @param toInclude
+	 *            - whether to include the components in the configuration file
+	 * @return the list of new components
+	 * @throws ArchitectureExtractorException
+	 * @throws InvalidComponentNameException
+	 *             if some of the names is already used
+	 */
+	public static List<Component> createComponentInstances(ArchitectureInstance architectureInstance,
+			Map<String, ComponentType> namesToTypes, CompoundType parent, boolean isCoordinator, boolean toInclude)
+			throws ArchitectureExtractorException, InvalidComponentNameException {
+		/* Check and change the model of the instance atomically */
+		synchronized (architectureInstance.getBipFileModel().getLock()) {
+			/* The names of the existing components */
+			Set<String> existingNames = new HashSet<String>(
+					BIPExtractor.getAllComponentsNames(architectureInstance.getBipFileModel()));
 
 			/* if the parent is null then the default parent is the root */
 			if (parent == null) {
-				component.setCompoundType(architectureInstance.getBipFileModel().getRootType());
-			} else {
-				/* Set the parent */
-				component.setCompoundType(parent);
+				parent = architectureInstance.getBipFileModel().getRootType();
 			}
 
-			if (toInclude) {
-				/*
-				 * If the component is coordinator then add its name in the list
-				 * of coordinators
-				 */
-				if (isCoordinator) {
-					architectureInstance.addCoordinator(name);
-				} else {
-					architectureInstance.addOperand(name);
+			/* The resulting components */
+			List<Component> components = new ArrayList<Component>(namesToTypes.size());
+
+			for (Map.Entry<String, ComponentType> entry : namesToTypes.entrySet()) {
+				String name = entry.getKey();
+				ComponentType type = entry.getValue();
+
+				if (!existingNames.add(name)) {
+					throw new InvalidComponentNameException(
+							"Component with a name " + name + " already exists in the architecture");
 				}
 
-				/* Add port instances in the configuration file */
-				List<Port> allPorts = type.getPort();
-				for (Port p : allPorts) {
-					architectureInstance.addPort(name + "." + p.getName());
+				/* Create the component */
+				Component component = Factories.INTERACTIONS_FACTORY.createComponent();
+				/* No notifications during a bulk build */
+				architectureInstance.getBipFileModel().silence(component);
+				/* Set name for the component */
+				component.setName(name);
+				/* Set type for the component */
+				component.setType(type);
+				components.add(component);
+
+				if (toInclude) {
+					if (isCoordinator) {
+						architectureInstance.addCoordinator(name);
+					} else {
+						architectureInstance.addOperand(name);
+					}
+
+					/* Add port instances in the configuration file */
+					for (Port p : type.getPort()) {
+						architectureInstance.addPort(name + "." + p.getName());
+					}
 				}
 			}
 
-			return component;
+			/* Set the parent of all of them at once */
+			if (architectureInstance.getBipFileModel().isBulkBuild()) {
+				((InternalEList<Component>) parent.getSubcomponent()).addAllUnique(components);
+			} else {
+				parent.getSubcomponent().addAll(components);
+			}
+
+			return components;
 		}
 	}
 
@@ -374,18 +547,21 @@ public class ArchitectureInstanceBuilder {
 		/* Add all variables */
 		if (variables != null) {
 			/* Check for duplicates in the variables */
-			if (checkDuplicateVariables(variables)) {
+			Set<String> duplicates = findDuplicateNames(variables);
+			if (!duplicates.isEmpty()) {
 				throw new InvalidVariableNameException(
-						"There are Variables in the Atom Type named " + name + " with the same name");
+						"There are Variables in the Atom Type named " + name + " with the same name: " + duplicates);
 			}
 			atomType.getVariable().addAll(variables);
 		}
 
 		/* Add all ports */
 		if (ports != null) {
-			if (checkDuplicatePorts(ports)) {
+			/* Check for duplicates in the ports */
+			Set<String> duplicates = findDuplicateNames(ports);
+			if (!duplicates.isEmpty()) {
 				throw new InvalidPortNameException(
-						"There are Ports in the Atom Type named " + name + " with the same name");
+						"There are Ports in the Atom Type named " + name + " with the same name: " + duplicates);
 			}
 			atomType.getPort().addAll(ports);
 		}
@@ -402,13 +578,11 @@ public class ArchitectureInstanceBuilder {
 		/* Get the list of all transitions in the Petri-Net */
 		List<Transition> transitions = petriNet.getTransition();
 
-		/* Check the match of Port References for every transition */
-		for (Transition t : transitions) {
-			/* no match */
-			if (!ArchitectureInstanceBuilder.checkTransitionPorts(t, ports)) {
-				throw new IllegalTransitionPortException("Some transition in the Atom Type named " + name
-						+ " is operating with Port not defined in the same Atom Type");
-			}
+		/* Check the match of Port References for all transitions at once */
+		Set<String> undefinedPorts = findUndefinedTransitionPorts(transitions, collectNames(ports));
+		if (!undefinedPorts.isEmpty()) {
+			throw new IllegalTransitionPortException("Some transition in the Atom Type named " + name
+					+ " is operating with Port not defined in the same Atom Type: " + undefinedPorts);
 		}
 
 		/* Set the behavior of the new atom type */
@@ -419,87 +593,94 @@ public class ArchitectureInstanceBuilder {
 
 	public static AtomType copyAtomicType(ArchitectureInstance architectureInstance, AtomType type)
 			throws ArchitectureExtractorException {
+		/* Check and change the model of the instance atomically */
+		synchronized (architectureInstance.getBipFileModel().getLock()) {
+			if (!BIPChecker.componentTypeExists(architectureInstance.getBipFileModel(), type)) {
 
-		if (!BIPChecker.componentTypeExists(architectureInstance.getBipFileModel(), type)) {
+				/* Create the empty atom type */
+				AtomType copy = Factories.BEHAVIORS_FACTORY.createAtomType();
 
-			/* Create the empty atom type */
-			AtomType copy = Factories.BEHAVIORS_FACTORY.createAtomType();
+				/* Set the name of the copy atom type */
+				copy.setName(type.getName());
+				/*
+				 * set the module as the architecture instance module, not as the
+				 * original
+				 */
+				copy.setModule(architectureInstance.getBipFileModel().getSystem());
 
-			/* Set the name of the copy atom type */
-			copy.setName(type.getName());
-			/*
-			 * set the module as the architecture instance module, not as the
-			 * original
-			 */
-			copy.setModule(architectureInstance.getBipFileModel().getSystem());
+				/* Copier for the variables and the behavior, the original is left untouched */
+				Copier copier = new Copier();
 
-			/* Set variables */
-			copy.getVariable().addAll(type.getVariable());
+				/* Set variables */
+				copy.getVariable().addAll(copier.copyAll(type.getVariable()));
 
-			/* Get all ports of the original atom type */
-			List<Port> originalPorts = type.getPort();
+				/* Get all ports of the original atom type */
+				List<Port> originalPorts = type.getPort();
 
-			/* Instantiate empty list of ports */
-			List<Port> copyPorts = new LinkedList<Port>();
+				/* Instantiate empty list of ports */
+				List<Port> copyPorts = new LinkedList<Port>();
 
-			/* Instantiate empty list of port definitions */
-			List<PortDefinition> copyPortDefinitions = new LinkedList<PortDefinition>();
+				/* Instantiate empty list of port definitions */
+				List<PortDefinition> copyPortDefinitions = new LinkedList<PortDefinition>();
 
-			/* Iterate original ports */
-			for (Port p : originalPorts) {
-				/* Initialize the port type */
-				PortType portType;
+				/* Iterate original ports */
+				for (Port p : originalPorts) {
+					/* Initialize the port type */
+					PortType portType;
 
-				/* If the port type does not exist */
-				if (!BIPChecker.portTypeExists(architectureInstance.getBipFileModel(), p.getType())) {
-					portType = ArchitectureInstanceBuilder.copyPortType(architectureInstance, p.getType());
-				}
-				/* If the port type exists */
-				else {
-					/* Get the port type */
-					portType = BIPExtractor.getPortTypeByName(architectureInstance.getBipFileModel(),
-							p.getType().getName());
-				}
+					/* If the port type does not exist */
+					if (!BIPChecker.portTypeExists(architectureInstance.getBipFileModel(), p.getType())) {
+						portType = ArchitectureInstanceBuilder.copyPortType(architectureInstance, p.getType());
+					}
+					/* If the port type exists */
+					else {
+						/* Get the port type */
+						portType = BIPExtractor.getPortTypeByName(architectureInstance.getBipFileModel(),
+								p.getType().getName());
+					}
 
-				/* Create Definition Binding */
+					/* Create Definition Binding */
 
-				String interfaceName = ((DefinitionBindingImpl) p.getBinding()).getDefinition().getName();
+					String interfaceName = ((DefinitionBindingImpl) p.getBinding()).getDefinition().getName();
 
-				PortDefinition portDefinition = ArchitectureInstanceBuilder.createPortDefinition(interfaceName,
-						portType);
+					PortDefinition portDefinition = ArchitectureInstanceBuilder.createPortDefinition(interfaceName,
+							portType);
 
-				DefinitionBinding binding = (DefinitionBinding) ArchitectureInstanceBuilder
-						.createDefinitionBinding(portDefinition);
+					DefinitionBinding binding = (DefinitionBinding) ArchitectureInstanceBuilder
+							.createDefinitionBinding(portDefinition);
 
-				/* Add the port to the copy ports */
-				Port newPort = ArchitectureInstanceBuilder.createPortInstance(p.getName(), portType, binding,
-						PortBindingType.DEFINITION_BINDING);
+					/* Add the port to the copy ports */
+					Port newPort = ArchitectureInstanceBuilder.createPortInstance(p.getName(), portType, binding,
+							PortBindingType.DEFINITION_BINDING);
 
-				copyPorts.add(newPort);
+					copyPorts.add(newPort);
 
-				/* Get the port definition of the current port */
-				PortDefinition pd = ((DefinitionBinding) p.getBinding()).getDefinition();
+					/* Get the port definition of the current port */
+					PortDefinition pd = ((DefinitionBinding) p.getBinding()).getDefinition();
 
-				/* Create new port definition but with different type */
-				PortDefinition newPortDefinition = ArchitectureInstanceBuilder.createPortDefinition(pd.getName(),
-						portType);
+					/* Create new port definition but with different type */
+					PortDefinition newPortDefinition = ArchitectureInstanceBuilder.createPortDefinition(pd.getName(),
+							portType);
 
-				/* Add it to the list */
-				copyPortDefinitions.add(newPortDefinition);
-			}
+					/* Add it to the list */
+					copyPortDefinitions.add(newPortDefinition);
+				}
 
-			/* Set the behavior */
-			copy.setBehavior(type.getBehavior());
+				/* Set the behavior */
+				copy.setBehavior((Behavior) copier.copy(type.getBehavior()));
+				/* Redirect the references to the copied variables */
+				copier.copyReferences();
 
-			/* Add all ports */
-			copy.getPort().addAll(copyPorts);
+				/* Add all ports */
+				copy.getPort().addAll(copyPorts);
 
-			/* Copy port definitions */
-			copy.getPortDefinition().addAll(copyPortDefinitions);
+				/* Copy port definitions */
+				copy.getPortDefinition().addAll(copyPortDefinitions);
 
-			return copy;
-		} else {
-			return BIPExtractor.getAtomTypeByName(architectureInstance.getBipFileModel(), type.getName());
+				return copy;
+			} else {
+				return BIPExtractor.getAtomTypeByName(architectureInstance.getBipFileModel(), type.getName());
+			}
 		}
 	}
 
@@ -552,90 +733,24 @@ public class ArchitectureInstanceBuilder {
 	 */
 	public static CompoundType copyCompoundType(ArchitectureInstance architectureInstance, CompoundType type)
 			throws ArchitectureExtractorException, InvalidComponentNameException, InterruptedException {
-
-		if (!BIPChecker.componentTypeExists(architectureInstance.getBipFileModel(), type)) {
-			/* Create new compound type */
-			CompoundType copy = Factories.INTERACTIONS_FACTORY.createCompoundType();
-			/* Set the name */
-			copy.setName(type.getName());
-			/* Set the system */
-			copy.setModule(architectureInstance.getBipFileModel().getSystem());
-
-			/* List of new ports */
-			List<Port> newPorts = new LinkedList<Port>();
-
-			/* Get the ports */
-			List<Port> originalPorts = type.getPort();
-
-			/* Iterate original ports */
-			for (Port p : originalPorts) {
-				/* Initialize the port type */
-				PortType portType;
-
-				/* If the port type does not exist */
-				if (!BIPChecker.portTypeExists(architectureInstance.getBipFileModel(), p.getType())) {
-					portType = ArchitectureInstanceBuilder.copyPortType(architectureInstance, p.getType());
-				}
-				/* If the port type exists */
-				else {
-					/* Get the port type */
-					portType = BIPExtractor.getPortTypeByName(architectureInstance.getBipFileModel(),
-							p.getType().getName());
-				}
-
-				Binding portBinding = p.getBinding();
-				Port newPort;
-
-				if (portBinding instanceof DefinitionBinding) {
-					/* Create Definition Binding */
-					String interfaceName = ((DefinitionBindingImpl) portBinding).getDefinition().getName();
-					List<Variable> exposedVariables = ((DefinitionBindingImpl) portBinding).getDefinition()
-							.getExposedVariable();
-
-					PortDefinition portDefinition = ArchitectureInstanceBuilder.createPortDefinition(interfaceName,
-							portType);
-
-					DefinitionBinding binding = (DefinitionBinding) ArchitectureInstanceBuilder
-							.createDefinitionBinding(portDefinition);
-
-					/* Add the port to the copy ports */
-					newPort = ArchitectureInstanceBuilder.createPortInstance(p.getName(), portType, binding,
-							PortBindingType.DEFINITION_BINDING);
-				} else {
-					ExportBinding exportBinding = (ExportBinding) portBinding;
-					// Port targetPortName = ((ExportBinding)
-					// portBinding).getTargetPort();
-
-					System.err.println("Target Port " + exportBinding.getTargetPort());
-					System.err.println(
-							"Target Instance Name: " + exportBinding.getTargetInstance().getTargetPart().getName());
-					System.err.println("Outer Port " + exportBinding.getOuterPort());
-
-					/* Add the port to the copy ports */
-					newPort = ArchitectureInstanceBuilder.createPortInstance(p.getName(), portType, portBinding,
-							PortBindingType.EXPORT_BINDING);
-				}
-
-				newPorts.add(newPort);
-			}
-
-			/* Add all ports */
-			copy.getPort().addAll(newPorts);
-
-			/* Initialize the list of new subcomponents */
-			List<Component> newSubComponents = new LinkedList<Component>();
-
-			/* Get the subcomponents */
-			List<Component> subComponents = type.getSubcomponent();
-
-			Iterator<Component> iterator = subComponents.iterator();
-
-			/* Iterate over them to copy or extract */
-			while (iterator.hasNext()) {
-
-				synchronized (lock) {
-					Component c = iterator.next();
-
+		/* Check and change the model of the instance atomically */
+		synchronized (architectureInstance.getBipFileModel().getLock()) {
+			if (!BIPChecker.componentTypeExists(architectureInstance.getBipFileModel(), type)) {
+				/* Create new compound type */
+				CompoundType copy = Factories.INTERACTIONS_FACTORY.createCompoundType();
+				/* Set the name */
+				copy.setName(type.getName());
+				/* Set the system */
+				copy.setModule(architectureInstance.getBipFileModel().getSystem());
+
+				/* Initialize the list of new subcomponents */
+				List<Component> newSubComponents = new LinkedList<Component>();
+
+				/* Get the subcomponents */
+				List<Component> subComponents = type.getSubcomponent();
+
+				/* Iterate over them to copy or extract */
+				for (Component c : subComponents) {
 					ComponentType subComponentType;
 
 					/* Type does not exist */
@@ -647,10 +762,8 @@ public class ArchitectureInstanceBuilder {
 						}
 						/* If compound */
 						else {
-							synchronized (lock) {
-								subComponentType = ArchitectureInstanceBuilder.copyCompoundType(architectureInstance,
-										(CompoundType) c.getType());
-							}
+							subComponentType = ArchitectureInstanceBuilder.copyCompoundType(architectureInstance,
+									(CompoundType) c.getType());
 						}
 					}
 					/* Type exists */
@@ -671,47 +784,116 @@ public class ArchitectureInstanceBuilder {
 							architectureInstance, c.getName(), subComponentType, copy, false, false);
 					newSubComponents.add(newSubComponent);
 				}
-			}
 
-			/* Add the subcomponents */
-			copy.getSubcomponent().addAll(newSubComponents);
+				/* Add the subcomponents */
+				copy.getSubcomponent().addAll(newSubComponents);
 
-			/* List of new connectors */
-			List<Connector> newConnectors = new LinkedList<Connector>();
+				/* The parts of the copy by name, for the references to their ports */
+				Map<String, Part> copiedParts = new HashMap<String, Part>();
+				for (Component c : newSubComponents) {
+					copiedParts.put(c.getName(), c);
+				}
 
-			/* Get all connectors */
-			List<Connector> connectors = type.getConnector();
+				/* List of new connectors */
+				List<Connector> newConnectors = new LinkedList<Connector>();
 
-			/* Iterate over them */
-			for (Connector c : connectors) {
-				ConnectorType connectorType;
+				/* Get all connectors */
+				List<Connector> connectors = type.getConnector();
 
-				if (!BIPChecker.connectorTypeExists(architectureInstance.getBipFileModel(), c.getType().getName())) {
-					connectorType = ArchitectureInstanceBuilder.copyConnectorType(architectureInstance, c.getType());
-				} else {
-					connectorType = BIPExtractor.getConnectorTypeByName(architectureInstance.getBipFileModel(),
-							c.getType().getName());
-				}
+				/* Iterate over them */
+				for (Connector c : connectors) {
+					ConnectorType connectorType;
+
+					if (!BIPChecker.connectorTypeExists(architectureInstance.getBipFileModel(),
+							c.getType().getName())) {
+						connectorType = ArchitectureInstanceBuilder.copyConnectorType(architectureInstance,
+								c.getType());
+					} else {
+						connectorType = BIPExtractor.getConnectorTypeByName(architectureInstance.getBipFileModel(),
+								c.getType().getName());
+					}
 
-				/* Should I copy them? */
-				List<ActualPortParameter> app = new LinkedList<ActualPortParameter>();
-				for (ActualPortParameter a : c.getActualPort()) {
-					app.add((InnerPortReference) a);
+					/* Refer to the same ports of the copied parts */
+					List<ActualPortParameter> app = new LinkedList<ActualPortParameter>();
+					for (ActualPortParameter a : c.getActualPort()) {
+						InnerPortReference reference = (InnerPortReference) a;
+						app.add(copyPortReference(copiedParts, reference.getTargetInstance(),
+								reference.getTargetPort()));
+					}
+
+					Connector newConnector = ArchitectureInstanceBuilder.createConnectorInstance(architectureInstance,
+							c.getName(), connectorType, copy, app);
+
+					newConnectors.add(newConnector);
+					copiedParts.put(newConnector.getName(), newConnector);
 				}
 
-				/* Not sure if port parameters should copy */
-				Connector newConnector = ArchitectureInstanceBuilder.createConnectorInstance(architectureInstance,
-						c.getName(), connectorType, copy, app);
+				/* Add new connectors */
+				copy.getConnector().addAll(newConnectors);
 
-				newConnectors.add(newConnector);
-			}
+				/* List of new ports */
+				List<Port> newPorts = new LinkedList<Port>();
 
-			/* Add new connectors */
-			copy.getConnector().addAll(newConnectors);
+				/* Get the ports */
+				List<Port> originalPorts = type.getPort();
 
-			return copy;
-		} else {
-			return BIPExtractor.getCompoundTypeByName(architectureInstance.getBipFileModel(), type.getName());
+				/* Iterate original ports */
+				for (Port p : originalPorts) {
+					/* Initialize the port type */
+					PortType portType;
+
+					/* If the port type does not exist */
+					if (!BIPChecker.portTypeExists(architectureInstance.getBipFileModel(), p.getType())) {
+						portType = ArchitectureInstanceBuilder.copyPortType(architectureInstance, p.getType());
+					}
+					/* If the port type exists */
+					else {
+						/* Get the port type */
+						portType = BIPExtractor.getPortTypeByName(architectureInstance.getBipFileModel(),
+								p.getType().getName());
+					}
+
+					Binding portBinding = p.getBinding();
+					Port newPort;
+
+					if (portBinding instanceof DefinitionBinding) {
+						/* Create Definition Binding */
+						String interfaceName = ((DefinitionBindingImpl) portBinding).getDefinition().getName();
+						List<Variable> exposedVariables = ((DefinitionBindingImpl) portBinding).getDefinition()
+								.getExposedVariable();
+
+						PortDefinition portDefinition = ArchitectureInstanceBuilder.createPortDefinition(interfaceName,
+								portType);
+
+						DefinitionBinding binding = (DefinitionBinding) ArchitectureInstanceBuilder
+								.createDefinitionBinding(portDefinition);
+
+						/* Add the port to the copy ports */
+						newPort = ArchitectureInstanceBuilder.createPortInstance(p.getName(), portType, binding,
+								PortBindingType.DEFINITION_BINDING);
+					} else {
+						ExportBinding exportBinding = (ExportBinding) portBinding;
+
+						/* Export the same port of the copied part, the original is left untouched */
+						InnerPortReference target = copyPortReference(copiedParts, exportBinding.getTargetInstance(),
+								exportBinding.getTargetPort());
+
+						/* Add the port to the copy ports */
+						newPort = ArchitectureInstanceBuilder.createPortInstance(p.getName(), portType,
+								createExportBinding(target.getTargetInstance(), target.getTargetPort()),
+								PortBindingType.EXPORT_BINDING);
+					}
+
+					newPorts.add(newPort);
+				}
+
+				/* Add all ports */
+				copy.getPort().addAll(newPorts);
+
+				return copy;
+			} else {
+				return BIPExtractor.getCompoundTypeByName(architectureInstance.getBipFileModel(), type.getName());
+			}
 		}
 	}
 
@@ -778,29 +960,28 @@ public class ArchitectureInstanceBuilder {
 
 	public static PortType copyPortType(ArchitectureInstance architectureInstance, PortType type)
 			throws ArchitectureExtractorException {
+		/* Check and change the model of the instance atomically */
+		synchronized (architectureInstance.getBipFileModel().getLock()) {
+			if (!BIPChecker.portTypeExists(architectureInstance.getBipFileModel(), type)) {
+
+				/* Create empty port type */
+				PortType copy = Factories.BEHAVIORS_FACTORY.createPortType();
+				/* Set the name of the port type */
+				copy.setName(type.getName());
+				/*
+				 * Set the module of the type same as module of the architecture
+				 * instance
+				 */
+				copy.setModule(architectureInstance.getBipFileModel().getSystem());
 
-		if (!BIPChecker.portTypeExists(architectureInstance.getBipFileModel(), type)) {
-
-			System.out.println("Port Type Copied: " + type.getName());
-
-			/* Create empty port type */
-			PortType copy = Factories.BEHAVIORS_FACTORY.createPortType();
-			/* Set the name of the port type */
-			copy.setName(type.getName());
-			/*
-			 * Set the module of the type same as module of the architecture
-			 * instance
-			 */
-			copy.setModule(architectureInstance.getBipFileModel().getSystem());
-
-			/* Set data parameters */
-			copy.getDataParameter().addAll(type.getDataParameter());
+				/* Set data parameters */
+				copy.getDataParameter().addAll(EcoreUtil.copyAll(type.getDataParameter()));
 
-			return copy;
-		} else {
-			return BIPExtractor.getPortTypeByName(architectureInstance.getBipFileModel(), type.getName());
+				return copy;
+			} else {
+				return BIPExtractor.getPortTypeByName(architectureInstance.getBipFileModel(), type.getName());
+			}
 		}
-
 	}
 
 	/**
@@ -841,9 +1022,10 @@ public class ArchitectureInstanceBuilder {
 		if (portParameters != null) {
 
 			/* Check if some of the Port Parameters have the same name */
-			if (checkDuplicatePortParameters(portParameters)) {
+			Set<String> duplicates = findDuplicateNames(portParameters);
+			if (!duplicates.isEmpty()) {
 				throw new InvalidPortParameterNameException("In Connector Type named " + connectorTypeName
-						+ " there are Port Parameters(arguments) with a same name");
+						+ " there are Port Parameters(arguments) with a same name: " + duplicates);
 			}
 			connectorType.getPortParameter().clear();
 			connectorType.getPortParameter().addAll(portParameters);
@@ -882,146 +1064,145 @@ public class ArchitectureInstanceBuilder {
 			ConnectorType type, CompoundType parent, List<ActualPortParameter> actualPortParameters) {
 		/* Create the new Connector */
 		Connector connector = Factories.INTERACTIONS_FACTORY.createConnector();
+		/* No notifications during a bulk build */
+		architectureInstance.getBipFileModel().silence(connector);
 		/* Set the name of the Connector */
 		connector.setName(name);
 		/* set the type of the Connector */
 		connector.setType(type);
-		/* Set the parent of the Connector */
-		connector.setCompoundType(parent);
 		/* Set the input ports */
 		connector.getActualPort().addAll(actualPortParameters);
-
-		/* Take the fusion and the expression in it */
-		ACFusion acFusion = (ACFusion) type.getDefinition();
-		List<ACExpression> expressions = acFusion.getOperand();
-
-		/* Create the interaction */
-		StringBuilder interaction = new StringBuilder();
-
-		for (int i = 0; i < actualPortParameters.size(); i++) {
-			ActualPortParameter app = actualPortParameters.get(i);
-			interaction.append(((InnerPortReference) app).getTargetInstance().getTargetPart().getName() + "."
-					+ ((InnerPortReference) app).getTargetPort().getName());
-
-			ACTyping typing = (ACTyping) expressions.get(i);
-			if (typing.getType() == ACTypingKind.TRIG) {
-				interaction.append("'");
-			}
-
-			interaction.append(" ");
+		/* Set the parent, without the duplicate check in a bulk build */
+		if (architectureInstance.getBipFileModel().isBulkBuild()) {
+			((InternalEList<Connector>) parent.getConnector()).addUnique(connector);
+		} else {
+			connector.setCompoundType(parent);
 		}
-		//
-		// for (ActualPortParameter app : actualPortParameters) {
-		// interaction.append(((InnerPortReference)
-		// app).getTargetInstance().getTargetPart().getName() + "."
-		// + ((InnerPortReference) app).getTargetPort().getName()).append(" ");
-		// }
 
 		/* Set the interaction */
-		interaction.setLength(interaction.length() - 1);
-		architectureInstance.addInteraction(interaction.toString());
+		architectureInstance.addInteraction(createInteractionString(type, actualPortParameters));
+		/* Update the index of the instance */
+		architectureInstance.addConnector(connector);
 
 		return connector;
 	}
 
 	public static ConnectorType copyConnectorType(ArchitectureInstance architectureInstance, ConnectorType type)
 			throws ArchitectureExtractorException {
-		/* If the connector type does not exist */
-		if (!BIPChecker.connectorTypeExists(architectureInstance.getBipFileModel(), type)) {
-			/* Create new connector type */
-			ConnectorType copy = Factories.INTERACTIONS_FACTORY.createConnectorType();
-			/* Copy the name */
-			copy.setName(type.getName());
-			/* Set the module same as this architecture instance */
-			copy.setModule(architectureInstance.getBipFileModel().getSystem());
-
-			/* Instantiate an empty list of port parameters */
-			List<PortParameter> copyPortParameters = new LinkedList<PortParameter>();
-
-			/* Get all port parameters */
-			List<PortParameter> portParameters = type.getPortParameter();
-			/* Iterate port parameters */
-			for (PortParameter p : portParameters) {
-				PortType portType;
-
-				/* If the port type does not exist */
-				if (!BIPChecker.portTypeExists(architectureInstance.getBipFileModel(), p.getType())) {
-					/* copy the port type */
-					portType = ArchitectureInstanceBuilder.copyPortType(architectureInstance, p.getType());
+		/* Check and change the model of the instance atomically */
+		synchronized (architectureInstance.getBipFileModel().getLock()) {
+			/* If the connector type does not exist */
+			if (!BIPChecker.connectorTypeExists(architectureInstance.getBipFileModel(), type)) {
+				/* Create new connector type */
+				ConnectorType copy = Factories.INTERACTIONS_FACTORY.createConnectorType();
+				/* Copy the name */
+				copy.setName(type.getName());
+				/* Set the module same as this architecture instance */
+				copy.setModule(architectureInstance.getBipFileModel().getSystem());
+
+				/* Copier for the port parameters, the definition and the interactions, the original is left untouched */
+				Copier copier = new Copier();
+
+				/* Instantiate an empty list of port parameters */
+				List<PortParameter> copyPortParameters = new LinkedList<PortParameter>();
+
+				/* The port types of the copied port parameters */
+				List<PortType> copyPortTypes = new LinkedList<PortType>();
+
+				/* Get all port parameters */
+				List<PortParameter> portParameters = type.getPortParameter();
+				/* Iterate port parameters */
+				for (PortParameter p : portParameters) {
+					PortType portType;
+
+					/* If the port type does not exist */
+					if (!BIPChecker.portTypeExists(architectureInstance.getBipFileModel(), p.getType())) {
+						/* copy the port type */
+						portType = ArchitectureInstanceBuilder.copyPortType(architectureInstance, p.getType());
+					}
+					/* if the port type exists */
+					else {
+						/* Get the port type */
+						portType = BIPExtractor.getPortTypeByName(architectureInstance.getBipFileModel(),
+								p.getType().getName());
+					}
+
+					copyPortParameters.add((PortParameter) copier.copy(p));
+					copyPortTypes.add(portType);
 				}
-				/* if the port type exists */
-				else {
-					/* Get the port type */
-					portType = BIPExtractor.getPortTypeByName(architectureInstance.getBipFileModel(),
-							p.getType().getName());
+
+				/* copy the port parameters */
+				copy.getPortParameter().addAll(copyPortParameters);
+
+				/* Copy the fusion and its expressions */
+				ACFusion acFusion = (ACFusion) copier.copy(type.getDefinition());
+				List<ACExpression> expressions = new ArrayList<ACExpression>(acFusion.getOperand());
+
+				/* New expressions, transform to typing */
+				List<ACExpression> newExpressions = new LinkedList<ACExpression>();
+				for (ACExpression e : expressions) {
+					if (e instanceof PortParameterReference) {
+						newExpressions.add(ArchitectureInstanceBuilder.createACTyping(ACTypingKind.SYNC, e));
+					} else {
+						newExpressions.add(e);
+					}
 				}
 
-				copyPortParameters.add(ArchitectureInstanceBuilder.createPortParameter(portType, p.getName()));
-			}
+				/* Create new definition */
+				ACFusion newDefinition = ArchitectureInstanceBuilder.createACFusion(newExpressions);
 
-			/* copy the port parameters */
-			copy.getPortParameter().addAll(copyPortParameters);
+				/* copy the definition */
+				copy.setDefinition(newDefinition);
+				/* copy the interactions */
+				copy.getInteractionSpecification().addAll(copier.copyAll(type.getInteractionSpecification()));
 
-			/* Get the fusion and its expressions */
-			ACFusion acFusion = (ACFusion) type.getDefinition();
-			List<ACExpression> expressions = acFusion.getOperand();
+				/* Redirect the references to the copied port parameters */
+				copier.copyReferences();
 
-			/* New expressions, transform to typing */
-			List<ACExpression> newExpressions = new LinkedList<ACExpression>();
-			for (ACExpression e : expressions) {
-				if (e instanceof PortParameterReference) {
-					newExpressions.add(ArchitectureInstanceBuilder.createACTyping(ACTypingKind.SYNC, e));
-				} else {
-					newExpressions.add(e);
+				/* The port parameters take the port types of the instance */
+				for (int i = 0; i < copyPortParameters.size(); i++) {
+					copyPortParameters.get(i).setType(copyPortTypes.get(i));
 				}
-			}
 
-			/* Create new definition */
-			ACFusion newDefinition = ArchitectureInstanceBuilder.createACFusion(newExpressions);
-
-			/* copy the definition */
-			copy.setDefinition(newDefinition);
-			/* copy the interactions */
-			copy.getInteractionSpecification().addAll(type.getInteractionSpecification());
-
-			/* Copy the exported port if any */
-			Port connectorTypeExportedPort = type.getPort();
-			PortType exportedPortType;
-
-			/* If it exists */
-			if (connectorTypeExportedPort != null) {
-				if (!BIPChecker.portTypeExists(architectureInstance.getBipFileModel(),
-						connectorTypeExportedPort.getType())) {
-					/* If not exist copy it */
-					exportedPortType = ArchitectureInstanceBuilder.copyPortType(architectureInstance,
-							connectorTypeExportedPort.getType());
-				} else {
-					/* If exist extract it */
-					exportedPortType = BIPExtractor.getPortTypeByName(architectureInstance.getBipFileModel(),
-							connectorTypeExportedPort.getType().getName());
-				}
+				/* Copy the exported port if any */
+				Port connectorTypeExportedPort = type.getPort();
+				PortType exportedPortType;
+
+				/* If it exists */
+				if (connectorTypeExportedPort != null) {
+					if (!BIPChecker.portTypeExists(architectureInstance.getBipFileModel(),
+							connectorTypeExportedPort.getType())) {
+						/* If not exist copy it */
+						exportedPortType = ArchitectureInstanceBuilder.copyPortType(architectureInstance,
+								connectorTypeExportedPort.getType());
+					} else {
+						/* If exist extract it */
+						exportedPortType = BIPExtractor.getPortTypeByName(architectureInstance.getBipFileModel(),
+								connectorTypeExportedPort.getType().getName());
+					}
 
-				/* Create the port instance */
-				Port newExportedPort = ArchitectureInstanceBuilder.createPortInstance(
-						connectorTypeExportedPort.getName(), exportedPortType, connectorTypeExportedPort.getBinding(),
-						PortBindingType.DEFINITION_BINDING);
+					/* Create the port instance */
+					Port newExportedPort = ArchitectureInstanceBuilder.createPortInstance(
+							connectorTypeExportedPort.getName(), exportedPortType, connectorTypeExportedPort.getBinding(),
+							PortBindingType.DEFINITION_BINDING);
 
-				/* Set the new port instance */
-				copy.setPort(newExportedPort);
+					/* Set the new port instance */
+					copy.setPort(newExportedPort);
 
-				/* Get the port definition of the current port */
-				PortDefinition pd = ((DefinitionBinding) newExportedPort.getBinding()).getDefinition();
+					/* Get the port definition of the current port */
+					PortDefinition pd = ((DefinitionBinding) newExportedPort.getBinding()).getDefinition();
 
-				/* Create new port definition */
-				PortDefinition newPortDefinition = ArchitectureInstanceBuilder.createPortDefinition(pd.getName(),
-						exportedPortType);
-				/* Set the new port definition */
-				copy.setPortDefinition(newPortDefinition);
-			}
+					/* Create new port definition */
+					PortDefinition newPortDefinition = ArchitectureInstanceBuilder.createPortDefinition(pd.getName(),
+							exportedPortType);
+					/* Set the new port definition */
+					copy.setPortDefinition(newPortDefinition);
+				}
 
-			return copy;
-		} else {
-			return BIPExtractor.getConnectorTypeByName(architectureInstance.getBipFileModel(), type.getName());
+				return copy;
+			} else {
+				return BIPExtractor.getConnectorTypeByName(architectureInstance.getBipFileModel(), type.getName());
+			}
 		}
 	}
 
@@ -1038,8 +1219,9 @@ public class ArchitectureInstanceBuilder {
 		/* Add initial state */
 		if (initialStates != null) {
 			/* Check for duplicates in the initial states */
-			if (checkDuplicateStates(initialStates)) {
-				throw new InvalidStateNameException("There are Initial States with a same name");
+			Set<String> duplicates = findDuplicateNames(initialStates);
+			if (!duplicates.isEmpty()) {
+				throw new InvalidStateNameException("There are Initial States with a same name: " + duplicates);
 			}
 
 			/* If the list of the Initial States is empty */
@@ -1061,8 +1243,9 @@ public class ArchitectureInstanceBuilder {
 		/* add all states */
 		if (states != null) {
 			/* Check for duplicates in the States */
-			if (checkDuplicateStates(states)) {
-				throw new InvalidStateNameException("There are States with a same name");
+			Set<String> duplicates = findDuplicateNames(states);
+			if (!duplicates.isEmpty()) {
+				throw new InvalidStateNameException("There are States with a same name: " + duplicates);
 			}
 
 			/* If the list of States is empty */
@@ -1502,32 +1685,54 @@ public class ArchitectureInstanceBuilder {
 
 	public static Port deletePortInstance(ComponentType componentType, String portInstanceName)
 			throws PortNotFoundException {
-		/* Get all port instances in the component type */
-		List<Port> allPortInstances = componentType.getPort();
+		return deletePortInstances(componentType, Collections.singleton(portInstanceName)).get(0);
+	}
 
+	/**
+	 * Delete all port instances with the given names from the component type,
+	 * in one pass over its ports. Nothing is deleted if some of the names is
+	 * not found.
+	 * 
+	 * @param componentType
+	 *            - the component type
+	 * @param portInstanceNames
+	 *            - the names of the port instances to delete
+	 * @return the deleted ports, in the order of the component type
+	 * @throws PortNotFoundException
+	 */
+	public static List<Port> deletePortInstances(ComponentType componentType, Set<String> portInstanceNames)
+			throws PortNotFoundException {
 		/* Initialize new list of port instances */
-		List<Port> newPortInstances = new LinkedList<Port>();
+		List<Port> newPortInstances = new ArrayList<Port>();
+
+		/* The deleted ports */
+		List<Port> deletedPorts = new ArrayList<Port>();
 
-		/* The deleted port */
-		Port deletedPort = null;
+		/* The names which are not found yet */
+		Set<String> notFound = new LinkedHashSet<String>(portInstanceNames);
 
 		/* Iterate over them */
-		for (Port p : allPortInstances) {
-			if (p.getName().equals(portInstanceName)) {
-				deletedPort = p;
+		for (Port p : componentType.getPort()) {
+			if (portInstanceNames.contains(p.getName())) {
+				deletedPorts.add(p);
+				notFound.remove(p.getName());
 			} else {
 				newPortInstances.add(p);
 			}
 		}
 
-		if (deletedPort != null) {
+		if (!notFound.isEmpty()) {
+			throw new PortNotFoundException("Port instances with names " + notFound
+					+ " were not found in the component type named " + componentType.getName());
+		}
+
+		/* Rebuild the list only once */
+		if (!deletedPorts.isEmpty()) {
 			componentType.getPort().clear();
 			componentType.getPort().addAll(newPortInstances);
-			return deletedPort;
-		} else {
-			throw new PortNotFoundException("Port instance with a name " + portInstanceName
-					+ " was not found in the component type named " + componentType.getName());
 		}
+
+		return deletedPorts;
 	}
 
 	public static void deletePortDefinition(AtomType atomType, PortDefinition portDefinition) {
@@ -1550,6 +1755,41 @@ public class ArchitectureInstanceBuilder {
 		atomType.getPortDefinition().addAll(newPortDefinitions);
 	}
 
+	/**
+	 * Delete all port definitions with the given names from the atom type, in
+	 * one pass over its port definitions
+	 * 
+	 * @param atomType
+	 *            - the atom type
+	 * @param portDefinitionNames
+	 *            - the names of the port definitions to delete
+	 * @return the deleted port definitions, in the order of the atom type
+	 */
+	public static List<PortDefinition> deletePortDefinitions(AtomType atomType, Set<String> portDefinitionNames) {
+		/* Initialize new list of port definitions */
+		List<PortDefinition> newPortDefinitions = new ArrayList<PortDefinition>();
+
+		/* The deleted port definitions */
+		List<PortDefinition> deletedPortDefinitions = new ArrayList<PortDefinition>();
+
+		/* Iterate over port definitions */
+		for (PortDefinition pd : atomType.getPortDefinition()) {
+			if (portDefinitionNames.contains(pd.getName())) {
+				deletedPortDefinitions.add(pd);
+			} else {
+				newPortDefinitions.add(pd);
+			}
+		}
+
+		/* Rebuild the list only once */
+		if (!deletedPortDefinitions.isEmpty()) {
+			atomType.getPortDefinition().clear();
+			atomType.getPortDefinition().addAll(newPortDefinitions);
+		}
+
+		return deletedPortDefinitions;
+	}
+
 	/**
 	 * Delete all transitions in which the port instance is the trigger
 	 * 
@@ -1558,40 +1798,186 @@ public class ArchitectureInstanceBuilder {
 	 * @return
 	 */
 	public static List<Transition> deleteTransitions(AtomType atomType, Port portInstance) {
+		/* Deleted transitions */
+		List<Transition> deletedTransitions = deleteTransitions(atomType,
+				Collections.singleton(portInstance.getName()));
+
+		if (deletedTransitions.size() != 0) {
+			return deletedTransitions;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Delete all transitions triggered by a port definition with some of the
+	 * given names, in one pass over the transitions of the atom type
+	 * 
+	 * @param atomType
+	 *            - the atom type
+	 * @param portDefinitionNames
+	 *            - the names of the triggering port definitions
+	 * @return the deleted transitions, which is empty if none is deleted
+	 */
+	public static List<Transition> deleteTransitions(AtomType atomType, Set<String> portDefinitionNames) {
 
 		/* List of all transitions in the atom type */
 		List<Transition> allTransitions = ((PetriNet) atomType.getBehavior()).getTransition();
 
 		/* List of the new transitions */
-		List<Transition> newTransitions = new LinkedList<Transition>();
+		List<Transition> newTransitions = new ArrayList<Transition>();
 
 		/* Deleted transitions */
-		List<Transition> deletedTransitions = new LinkedList<Transition>();
+		List<Transition> deletedTransitions = new ArrayList<Transition>();
 
 		/* Iterate over all transitions */
 		for (Transition t : allTransitions) {
-			/* Not sure about this */
-
-			System.out
-					.println("Transition triger: " + ((PortDefinitionReference) t.getTrigger()).getTarget().getName());
-			System.out.println("Interface name of the port: "
-					+ ((DefinitionBindingImpl) portInstance.getBinding()).getDefinition().getName());
-			System.out.println("Inner name of the port: " + portInstance.getName());
-
-			if (((PortDefinitionReference) t.getTrigger()).getTarget().getName().equals(portInstance.getName())) {
+			if (portDefinitionNames.contains(getTransitionPortName(t))) {
 				deletedTransitions.add(t);
 			} else {
 				newTransitions.add(t);
 			}
 		}
 
-		if (deletedTransitions.size() != 0) {
-			((PetriNet) atomType.getBehavior()).getTransition().clear();
-			((PetriNet) atomType.getBehavior()).getTransition().addAll(newTransitions);
-			return deletedTransitions;
-		} else {
-			return null;
+		/* Rebuild the list only once */
+		if (!deletedTransitions.isEmpty()) {
+			allTransitions.clear();
+			allTransitions.addAll(newTransitions);
 		}
+
+		return deletedTransitions;
+	}
+
+	/**
+	 * Delete all port instances with the given names from the atom type,
+	 * together with their port definitions and the transitions triggered by
+	 * them. Every list of the atom type is traversed only once.
+	 * 
+	 * @param atomType
+	 *            - the atom type
+	 * @param portInstanceNames
+	 *            - the names of the port instances to delete
+	 * @return the deleted ports
+	 * @throws PortNotFoundException
+	 */
+	public static List<Port> deletePortInstancesWithDependencies(AtomType atomType, Set<String> portInstanceNames)
+			throws PortNotFoundException {
+		/* Delete the ports */
+		List<Port> deletedPorts = deletePortInstances(atomType, portInstanceNames);
+
+		/* The names of the port definitions of the deleted ports */
+		Set<String> portDefinitionNames = new HashSet<String>();
+		for (Port p : deletedPorts) {
+			if (p.getBinding() instanceof DefinitionBinding) {
+				portDefinitionNames.add(((DefinitionBinding) p.getBinding()).getDefinition().getName());
+			} else {
+				portDefinitionNames.add(p.getName());
+			}
+		}
+
+		/* Delete the port definitions and the transitions */
+		deletePortDefinitions(atomType, portDefinitionNames);
+		if (atomType.getBehavior() != null) {
+			deleteTransitions(atomType, portDefinitionNames);
+		}
+
+		return deletedPorts;
+	}
+
+	/**
+	 * Delete the component instance from its parent, together with its name
+	 * and the names of its ports in the architecture instance.
+	 * 
+	 * @param architectureInstance
+	 *            - the architecture instance where the component belongs
+	 * @param component
+	 *            - the component instance to delete
+	 * @throws PortNotFoundException
+	 */
+	public static void deleteComponentInstance(ArchitectureInstance architectureInstance, Component component)
+			throws PortNotFoundException {
+		/* The name of the component */
+		String name = component.getName();
+
+		/* Remove it from the parent */
+		component.getCompoundType().getSubcomponent().remove(component);
+
+		/* Remove it from the lists of the instance */
+		architectureInstance.removeCoordinator(name);
+		architectureInstance.removeOperand(name);
+
+		/* Remove the port instances from the configuration file */
+		for (Port p : component.getType().getPort()) {
+			if (architectureInstance.getPorts().contains(name + "." + p.getName())) {
+				architectureInstance.removePort(name + "." + p.getName());
+			}
+		}
+	}
+
+	/**
+	 * Delete the connector instance from its parent, together with its
+	 * interaction in the architecture instance.
+	 * 
+	 * @param architectureInstance
+	 *            - the architecture instance where the connector belongs
+	 * @param connector
+	 *            - the connector instance to delete
+	 */
+	public static void deleteConnectorInstance(ArchitectureInstance architectureInstance, Connector connector) {
+		deleteConnectorInstances(architectureInstance, Collections.singleton(connector));
+	}
+
+	/**
+	 * Delete all given connector instances from their parents, together with
+	 * their interactions in the architecture instance. The connectors of every
+	 * parent are rebuilt in one pass.
+	 * 
+	 * @param architectureInstance
+	 *            - the architecture instance where the connectors belong
+	 * @param connectors
+	 *            - the connector instances to delete
+	 */
+	public static void deleteConnectorInstances(ArchitectureInstance architectureInstance,
+			Set<Connector> connectors) {
+		/* The parents of the connectors */
+		Set<CompoundType> parents = new LinkedHashSet<CompoundType>();
+
+		for (Connector connector : connectors) {
+			/* Remove the interaction */
+			architectureInstance
+					.removeInteraction(createInteractionString(connector.getType(), connector.getActualPort()));
+
+			/* Update the index of the instance */
+			architectureInstance.removeConnector(connector);
+
+			parents.add(connector.getCompoundType());
+		}
+
+		/* Rebuild the list of every parent only once */
+		for (CompoundType parent : parents) {
+			List<Connector> newConnectors = new ArrayList<Connector>();
+			for (Connector c : parent.getConnector()) {
+				if (!connectors.contains(c)) {
+					newConnectors.add(c);
+				}
+			}
+
+			parent.getConnector().clear();
+			((InternalEList<Connector>) parent.getConnector()).addAllUnique(newConnectors);
+		}
+	}
+
+	/**
+	 * Delete the component or connector type from the system of the
+	 * architecture instance
+	 * 
+	 * @param architectureInstance
+	 *            - the architecture instance where the type belongs
+	 * @param type
+	 *            - the type to delete
+	 */
+	public static void deleteType(ArchitectureInstance architectureInstance, BipType type) {
+		architectureInstance.getBipFileModel().getSystem().getBipType().remove(type);
 	}
 
 }
@@ -1,12 +1,27 @@
 package ch.epfl.risd.archman.builder;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.eclipse.emf.ecore.util.EcoreUtil.Copier;
 
 import com.microsoft.z3.Z3Exception;
 
@@ -26,6 +41,7 @@ import ch.epfl.risd.archman.exceptions.InvalidPortParameterNameException;
 import ch.epfl.risd.archman.exceptions.InvalidStateNameException;
 import ch.epfl.risd.archman.exceptions.InvalidVariableNameException;
 import ch.epfl.risd.archman.exceptions.ListEmptyException;
+import ch.epfl.risd.archman.exceptions.SolverUnknownException;
 import ch.epfl.risd.archman.exceptions.TestFailException;
 import ch.epfl.risd.archman.extractor.ArchitectureOperandsExtractor;
 import ch.epfl.risd.archman.extractor.ArchitectureStyleExtractor;
@@ -33,16 +49,21 @@ import ch.epfl.risd.archman.extractor.BIPExtractor;
 import ch.epfl.risd.archman.model.ArchitectureInstance;
 import ch.epfl.risd.archman.model.ArchitectureOperands;
 import ch.epfl.risd.archman.model.ArchitectureStyle;
+import ch.epfl.risd.archman.model.BIPFileModel;
 import ch.epfl.risd.archman.model.ComponentMapping;
 import ch.epfl.risd.archman.model.ComponentPortMapping;
+import ch.epfl.risd.archman.model.ConnectorMappingTable;
 import ch.epfl.risd.archman.model.ConnectorTuple;
 import ch.epfl.risd.archman.model.GlobalPortMapping;
 import ch.epfl.risd.archman.model.PortTuple;
 import ch.epfl.risd.archman.model.PortTuple.PortTupleType;
 import ch.epfl.risd.archman.solver.ArchitectureStyleSolver;
+import ch.epfl.risd.archman.solver.CardinalitySolution;
+import ujf.verimag.bip.Core.Behaviors.Action;
 import ujf.verimag.bip.Core.Behaviors.AtomType;
 import ujf.verimag.bip.Core.Behaviors.ComponentType;
 import ujf.verimag.bip.Core.Behaviors.DefinitionBinding;
+import ujf.verimag.bip.Core.Behaviors.Expression;
 import ujf.verimag.bip.Core.Behaviors.PetriNet;
 import ujf.verimag.bip.Core.Behaviors.Port;
 import ujf.verimag.bip.Core.Behaviors.PortDefinition;
@@ -50,13 +71,15 @@ import ujf.verimag.bip.Core.Behaviors.PortDefinitionReference;
 import ujf.verimag.bip.Core.Behaviors.PortType;
 import ujf.verimag.bip.Core.Behaviors.State;
 import ujf.verimag.bip.Core.Behaviors.Transition;
+import ujf.verimag.bip.Core.Behaviors.Variable;
 import ujf.verimag.bip.Core.Interactions.ActualPortParameter;
 import ujf.verimag.bip.Core.Interactions.Component;
 import ujf.verimag.bip.Core.Interactions.CompoundType;
+import ujf.verimag.bip.Core.Interactions.Connector;
 import ujf.verimag.bip.Core.Interactions.ConnectorType;
 import ujf.verimag.bip.Core.Interactions.ExportBinding;
+import ujf.verimag.bip.Core.Interactions.InnerPortReference;
 import ujf.verimag.bip.Core.Interactions.InteractionSpecification;
-import ujf.verimag.bip.Core.Interactions.PartElementReference;
 import ujf.verimag.bip.Core.Interactions.PortParameter;
 import ujf.verimag.bip.Core.Interactions.PortParameterReference;
 import ujf.verimag.bip.Core.PortExpressions.ACExpression;
@@ -73,11 +96,6 @@ public class ArchitectureInstantiator {
 	/* PRIVATE(UTILITY) METHODS */
 	/****************************************************************************/
 
-	/* Enumeration for the type of credit in the map of credits */
-	public enum CreditType {
-		CREDIT_DEGREE, CREDIT_ONE;
-	}
-
 	/**
 	 * Helper method to plug all ports in the instance from the style and the
 	 * operands
@@ -91,31 +109,6 @@ public class ArchitectureInstantiator {
 		ArchitectureInstanceBuilder.copyAllPortTypes(instance, allPortTypes);
 	}
 
-	/**
-	 * Helper method for generating the port cardinality string, i.e.
-	 * concatenated string of the cardinalities of each port in one mapped
-	 * component
-	 */
-	private static String generatePortsCardinalityString(Map<String, GlobalPortMapping> globalPortMappings,
-			String mappedComponent) {
-		/* The resulting cardinality string */
-		StringBuilder cardinalityString = new StringBuilder();
-
-		for (String portToMap : globalPortMappings.keySet()) {
-			/* The global mapping of the port, to every mapped component */
-			GlobalPortMapping globalPortMapping = globalPortMappings.get(portToMap);
-
-			/* The mapping of the port, only to the given mapped component */
-			ComponentPortMapping componentPortMapping = globalPortMapping.getComponentPortMappings()
-					.get(mappedComponent);
-
-			/* Append the cardinality */
-			cardinalityString.append(componentPortMapping.getCardinalityTerm().getValue());
-		}
-
-		return cardinalityString.toString();
-	}
-
 	/**
 	 * Helper method to copy the port type from the style to the instance or the
 	 * get it if it already exists in the instance.
@@ -147,22 +140,15 @@ public class ArchitectureInstantiator {
 
 	/**
 	 * Helper method to create all port instances in one particular component to
-	 * which one port is mapped to.
+	 * which one port is mapped to, given the names of the new ports.
 	 */
-	private static List<Port> createMappedPortInstances(Map<String, GlobalPortMapping> globalPortMappings,
-			Port coordPortInstance, PortType portType, String portToMap, String mappedComponent) {
+	private static List<Port> createMappedPortInstances(List<String> newPortNames, Port coordPortInstance,
+			PortType portType) {
 		/* Initialize the result */
 		List<Port> result = new LinkedList<Port>();
 
-		/* Get the set of mapping ports */
-		GlobalPortMapping globalPortMapping = globalPortMappings.get(portToMap);
-		ComponentPortMapping componentPortMapping = globalPortMapping.getComponentPortMappings().get(mappedComponent);
-		Set<String> mappedPorts = componentPortMapping.getMappedPorts();
-
-		/* Iterate over mapped ports to create them */
-		for (String mappedPort : mappedPorts) {
-			/* Internal name of the port instance */
-			String internalPortName = mappedPort.split("\\.")[1];
+		/* Iterate over the names of the mapped ports to create them */
+		for (String internalPortName : newPortNames) {
 
 			/* This is a bit strange */
 			Port newPortInstance;
@@ -186,28 +172,35 @@ public class ArchitectureInstantiator {
 	}
 
 	/**
-	 * Helper method to filter the transitions that are labeled by the given
-	 * port name.
+	 * Helper method to group the transitions by the name of the port labeling
+	 * them. It is done once per coordinator, instead of filtering all
+	 * transitions for every port and every mapped component.
 	 */
-	private static List<Transition> filterTransitionsLabeledByPort(List<Transition> allTransitions, String portName) {
-		/* The resulting transitions */
-		List<Transition> result = new LinkedList<Transition>();
+	private static Map<String, List<Transition>> groupTransitionsByPort(List<Transition> allTransitions) {
+		/* The resulting map */
+		Map<String, List<Transition>> result = new HashMap<String, List<Transition>>();
 
-		/* Filter them */
+		/* Group them */
 		for (Transition t : allTransitions) {
-			if (((PortDefinitionReference) t.getTrigger()).getTarget().getName().equals(portName)) {
-				result.add(t);
+			String portName = ((PortDefinitionReference) t.getTrigger()).getTarget().getName();
+
+			List<Transition> portTransitions = result.get(portName);
+			if (portTransitions == null) {
+				portTransitions = new LinkedList<Transition>();
+				result.put(portName, portTransitions);
 			}
+
+			portTransitions.add(t);
 		}
 
 		return result;
 	}
 
 	/**
-	 * Helper method to extract states from the given transitions. The list of
-	 * state names is passed by reference.
+	 * Helper method to extract states from the given transitions. The set of
+	 * state names is passed by reference and keeps the order of insertion.
 	 */
-	private static void extractStatesFromTransitions(List<String> stateNames, List<Transition> transitions) {
+	private static void extractStatesFromTransitions(Set<String> stateNames, List<Transition> transitions) {
 		/* Iterate over the transitions */
 		for (Transition t : transitions) {
 			/* Get the origins and destinations */
@@ -216,25 +209,24 @@ public class ArchitectureInstantiator {
 
 			/* In the origins */
 			for (State s : origins) {
-				if (!stateNames.contains(s.getName())) {
-					stateNames.add(s.getName());
-				}
+				stateNames.add(s.getName());
 			}
 
 			/* In the destinations */
 			for (State s : destinations) {
-				if (!stateNames.contains(s.getName())) {
-					stateNames.add(s.getName());
-				}
+				stateNames.add(s.getName());
 			}
 
 		}
 	}
 
 	/**
-	 * Helper method to create new transitions
+	 * Helper method to create new transitions. The guards and the actions are
+	 * copied with the given copier, so the transitions of the style are left
+	 * untouched.
 	 */
-	private static List<Transition> createNewTransitions(List<Transition> transitions, List<Port> ports) {
+	private static List<Transition> createNewTransitions(List<Transition> transitions, List<Port> ports,
+			Copier copier) {
 		/* Initialize the result */
 		List<Transition> result = new LinkedList<Transition>();
 
@@ -249,7 +241,7 @@ public class ArchitectureInstantiator {
 
 				/* Not sure about this */
 				Transition newTransition = ArchitectureInstanceBuilder.createTransition(ref, t.getOrigin(),
-						t.getDestination(), t.getGuard(), t.getAction());
+						t.getDestination(), (Expression) copier.copy(t.getGuard()), (Action) copier.copy(t.getAction()));
 
 				result.add(newTransition);
 			}
@@ -260,151 +252,273 @@ public class ArchitectureInstantiator {
 	}
 
 	/**
-	 * Helper method to plug all coordinators in the instance
+	 * Helper method to describe the type that has to be created for one
+	 * component to which the coordinator is mapped. It only reads the style,
+	 * so the descriptors can be calculated in parallel.
+	 */
+	private static CoordinatorTypeDescriptor describeCoordinatorType(Component coordinator,
+			Map<String, List<Transition>> transitionsByPort, Map<String, GlobalPortMapping> globalPortMappings,
+			String mappedComponent) throws ArchitectureExtractorException {
+		/* The resulting descriptor */
+		CoordinatorTypeDescriptor descriptor = new CoordinatorTypeDescriptor(coordinator, mappedComponent);
+
+		/* Iterate over the ports to map */
+		for (String portToMap : globalPortMappings.keySet()) {
+			/* The name of the port in the coordinator */
+			String coordPortInstanceName = portToMap.split("\\.")[1];
+			/* The port instance in the coordinator */
+			descriptor.coordPorts.put(portToMap,
+					BIPExtractor.getPortInComponentByName(coordinator, coordPortInstanceName));
+
+			/* The names of the ports created for this port */
+			List<String> newPortNames = new LinkedList<String>();
+			for (String mappedPort : globalPortMappings.get(portToMap).getComponentPortMappings()
+					.get(mappedComponent).getMappedPorts()) {
+				newPortNames.add(mappedPort.split("\\.")[1]);
+			}
+			descriptor.newPortNames.put(portToMap, newPortNames);
+
+			/* The transitions labeled by the current port */
+			List<Transition> filteredTransitions = transitionsByPort.get(coordPortInstanceName);
+			if (filteredTransitions == null) {
+				filteredTransitions = new LinkedList<Transition>();
+			}
+			descriptor.transitions.put(portToMap, filteredTransitions);
+
+			/* Extract the states */
+			extractStatesFromTransitions(descriptor.stateNames, filteredTransitions);
+		}
+
+		/* The structure of the described type, and its signature in the instance */
+		descriptor.structure = generateCoordinatorTypeSignature(descriptor);
+		descriptor.signature = coordinator.getType().getName() + "|" + descriptor.structure;
+
+		return descriptor;
+	}
+
+	/**
+	 * Helper method to generate the structural signature of the described
+	 * type. It lists the ports of the type with their port types, the initial
+	 * states and, for every port, the origins and destinations of its
+	 * transitions. The variables, guards and actions are copied from the
+	 * coordinator type, so they are compared with it by the cache of the
+	 * synthesized types.
+	 */
+	private static String generateCoordinatorTypeSignature(CoordinatorTypeDescriptor descriptor) {
+		/* The coordinator type */
+		AtomType coordType = (AtomType) descriptor.coordinator.getType();
+
+		/* The resulting signature */
+		StringBuilder signature = new StringBuilder();
+
+		/* The initial states */
+		Set<String> initialStates = new TreeSet<String>();
+		for (State s : ((PetriNet) coordType.getBehavior()).getInitialState()) {
+			initialStates.add(s.getName());
+		}
+		signature.append("init:").append(initialStates);
+
+		/* The ports in a fixed order */
+		for (String portToMap : new TreeSet<String>(descriptor.coordPorts.keySet())) {
+			/* The port instance in the coordinator */
+			Port coordPortInstance = descriptor.coordPorts.get(portToMap);
+
+			/* The names of the ports created for this port */
+			Set<String> newPortNames = new TreeSet<String>(descriptor.newPortNames.get(portToMap));
+
+			/* The transitions labeled by this port */
+			List<String> transitions = new LinkedList<String>();
+			for (Transition t : descriptor.transitions.get(portToMap)) {
+				StringBuilder transition = new StringBuilder();
+				for (State s : t.getOrigin()) {
+					transition.append(s.getName()).append(",");
+				}
+				transition.append("->");
+				for (State s : t.getDestination()) {
+					transition.append(s.getName()).append(",");
+				}
+				transitions.add(transition.toString());
+			}
+			Collections.sort(transitions);
+
+			signature.append("|").append(coordPortInstance.getName()).append(":")
+					.append(coordPortInstance.getType().getName()).append(":").append(newPortNames).append(":")
+					.append(transitions);
+		}
+
+		return signature.toString();
+	}
+
+	/**
+	 * Helper method to create the described type of one component to which the
+	 * coordinator is mapped, such that each port of the coordinator is
+	 * replicated as many times as the cardinality of the port in the mapped
+	 * component. This method changes the BIP model of the instance, so it is
+	 * called serially.
+	 */
+	private static AtomType createCoordinatorType(ArchitectureStyle architectureStyle, ArchitectureInstance instance,
+			CoordinatorTypeDescriptor descriptor, String newTypeName) throws ArchitectureExtractorException,
+			InvalidAtomTypeNameException, InvalidVariableNameException, InvalidPortNameException,
+			IllegalTransitionPortException, InvalidStateNameException, IllegalTransitionStatesException,
+			ListEmptyException {
+
+		/* The type of the current coordinator */
+		AtomType currCoordType = (AtomType) descriptor.coordinator.getType();
+
+		/* Take the type synthesized for another instance, if any */
+		AtomType synthesizedType = CoordinatorTypeCache.get(descriptor.structure, currCoordType);
+		if (synthesizedType != null) {
+			return CoordinatorTypeCache.instantiate(instance, synthesizedType, newTypeName);
+		}
+
+		/* The Petri Net of the current coordinator */
+		PetriNet currCoordPetriNet = (PetriNet) ((AtomType) currCoordType).getBehavior();
+
+		/* Copier for the variables, guards and actions of the coordinator */
+		Copier copier = new Copier();
+		/* Copy the variables first, the references to them are redirected */
+		Collection<Variable> newTypeVariables = copier.copyAll(currCoordType.getVariable());
+		/* Copy the initialization */
+		Action newTypeInitialization = (Action) copier.copy(currCoordPetriNet.getInitialization());
+
+		/* Initialize the list of the new type port instances */
+		List<Port> allNewTypePortInstances = new LinkedList<Port>();
+		/* The list of new transitions */
+		List<ujf.verimag.bip.Core.Behaviors.Transition> allNewTypeTransitions = new LinkedList<ujf.verimag.bip.Core.Behaviors.Transition>();
+
+		/* Iterate over the ports to map */
+		for (String portToMap : descriptor.coordPorts.keySet()) {
+
+			/* Get or copy the port type in the instance */
+			PortType portType = getOrCopyPortType(architectureStyle, instance, portToMap);
+
+			/* Create the port instances for the mapped ports */
+			List<Port> newPortInstances = createMappedPortInstances(descriptor.newPortNames.get(portToMap),
+					descriptor.coordPorts.get(portToMap), portType);
+
+			/* Create all new transitions */
+			allNewTypeTransitions
+					.addAll(createNewTransitions(descriptor.transitions.get(portToMap), newPortInstances, copier));
+
+			/* Add the port instances created for the current mapping port */
+			allNewTypePortInstances.addAll(newPortInstances);
+		}
+
+		/* Redirect the references inside the copied elements */
+		copier.copyReferences();
+
+		/* Create the new states */
+		List<State> allNewTypeStates = ArchitectureInstanceBuilder
+				.createStates(new LinkedList<String>(descriptor.stateNames));
+
+		/* Create the behavior of the new type */
+		PetriNet newBehavior = (PetriNet) ArchitectureInstanceBuilder.createBehavior(
+				currCoordPetriNet.getInitialState(), newTypeInitialization, allNewTypeStates, allNewTypeTransitions);
+		/* Create the new type */
+		AtomType newType = ArchitectureInstanceBuilder.createAtomicType(instance, newTypeName, newBehavior,
+				allNewTypePortInstances, new LinkedList<Variable>(newTypeVariables));
+
+		/* Remember the type for the other instances */
+		CoordinatorTypeCache.put(descriptor.structure, currCoordType, newType);
+
+		return newType;
+	}
+
+	/**
+	 * Helper method to plug all coordinators in the instance. The types of the
+	 * mapped components are described in parallel, then the types and the
+	 * component instances are created in the order of the coordinators.
 	 */
 	private static void plugAllCoordinators(ArchitectureStyle architectureStyle, ArchitectureInstance instance)
 			throws ArchitectureExtractorException, InvalidComponentNameException, InvalidAtomTypeNameException,
 			InvalidVariableNameException, InvalidPortNameException, IllegalTransitionPortException,
-			InvalidStateNameException, IllegalTransitionStatesException, ListEmptyException {
+			InvalidStateNameException, IllegalTransitionStatesException, ListEmptyException,
+			InterruptedException {
 
 		/* Take all coordinators from the style */
 		List<Component> allCoordinators = ArchitectureStyleExtractor
 				.getArchitectureStyleCoordinators(architectureStyle);
 
-		/* Counter for how many new types will be created */
-		/* This counter is at the end of the type name */
-		int typeNameCount = 1;
+		/* One task for every mapped component of every coordinator */
+		List<Callable<CoordinatorTypeDescriptor>> tasks = new LinkedList<Callable<CoordinatorTypeDescriptor>>();
 
 		/* Iterate over the coordinators */
-		for (Component coordinator : allCoordinators) {
-
-			/* The name of the current coordinator */
-			String currCoordName = coordinator.getName();
-
-			/* The type name of the current coordinator */
-			String currCoordTypeName = coordinator.getType().getName();
-
-			/*
-			 * Key: concatenated string of the cardinalities for each port that
-			 * maps in one of the components to which the current coordinator is
-			 * mapping (vertical cardinality). Value: the name of the
-			 * coordinator type that matches to those port cardinalities.
-			 */
-			Map<String, String> portsCardToCoordTypeName = new HashMap<String, String>();
+		for (final Component coordinator : allCoordinators) {
 
 			/* The mappings of the current coordinator */
-			ComponentMapping currCoordMapping = architectureStyle.getCoordinatorsMapping().get(currCoordName);
-
-			/*
-			 * The set of component names to which the current coordinator is
-			 * mapped
-			 */
-			Set<String> mappedComponents = currCoordMapping.getMappedComponents();
+			ComponentMapping currCoordMapping = architectureStyle.getCoordinatorsMapping()
+					.get(coordinator.getName());
 
 			/*
 			 * The mapping of each port in the current coordinator to all
 			 * components to which it is mapped.
 			 */
-			Map<String, GlobalPortMapping> globalPortMappings = currCoordMapping.getGlobalPortMappings();
+			final Map<String, GlobalPortMapping> globalPortMappings = currCoordMapping.getGlobalPortMappings();
+
+			/* The transitions of the current coordinator grouped by port */
+			final Map<String, List<Transition>> transitionsByPort = groupTransitionsByPort(
+					((PetriNet) ((AtomType) coordinator.getType()).getBehavior()).getTransition());
 
 			/* Iterate over mapped components of the current coordinator */
-			for (String mappedComponent : mappedComponents) {
-
-				/* The cardinality string for the current mapped component */
-				String cardinalityString = generatePortsCardinalityString(globalPortMappings, mappedComponent);
-
-				/* Check for existence in the map */
-				if (portsCardToCoordTypeName.containsKey(cardinalityString)) {
-					/* Take the type and create an instance */
-					ComponentType type = BIPExtractor.getComponentTypeByName(instance.getBipFileModel(),
-							portsCardToCoordTypeName.get(cardinalityString));
-					ArchitectureInstanceBuilder.createComponentInstance(instance, mappedComponent, type,
-							instance.getBipFileModel().getRootType(), true, true);
-				}
-				/* Create new type in the instance */
-				else {
-
-					/* The type of the current coordinator */
-					AtomType currCoordType = (AtomType) coordinator.getType();
-
-					/* The Petri Net of the current coordinator */
-					PetriNet currCoordPetriNet = (PetriNet) ((AtomType) currCoordType).getBehavior();
-
-					/* The transitions of the current coordinator */
-					List<ujf.verimag.bip.Core.Behaviors.Transition> parameterTransitions = currCoordPetriNet
-							.getTransition();
-
-					/* Initialize the list of the new type port instances */
-					List<Port> allNewTypePortInstances = new LinkedList<Port>();
-					/* Initialize the list of states of the new type */
-					List<State> allNewTypeStates = new LinkedList<State>();
-					/* The name of the newly created states */
-					List<String> allNewTypeStateNames = new LinkedList<String>();
-					/* The list of new transitions */
-					List<ujf.verimag.bip.Core.Behaviors.Transition> allNewTypeTransitions = new LinkedList<ujf.verimag.bip.Core.Behaviors.Transition>();
-
-					/* Iterate over the ports to map */
-					for (String portToMap : globalPortMappings.keySet()) {
-
-						/* New port instances for the current port to map */
-						List<Port> newPortInstances = new LinkedList<Port>();
-
-						/* Get or copy the port type in the instance */
-						PortType portType = getOrCopyPortType(architectureStyle, instance, portToMap);
-
-						/* The name of the port in the coordinator */
-						String coordPortInstanceName = portToMap.split("\\.")[1];
-						/* The port instance in the coordinator */
-						Port coordPortInstance = BIPExtractor.getPortInComponentByName(coordinator,
-								coordPortInstanceName);
-
-						/* Create the port instances for the mapped ports */
-						newPortInstances.addAll(createMappedPortInstances(globalPortMappings, coordPortInstance,
-								portType, portToMap, mappedComponent));
-
-						/* Filter the transitions labeled by the current port */
-						List<Transition> filteredTransitions = filterTransitionsLabeledByPort(parameterTransitions,
-								coordPortInstanceName);
-
-						/*
-						 * Extract the states. We pass the list of names by
-						 * reference, since it is global
-						 */
-						extractStatesFromTransitions(allNewTypeStateNames, filteredTransitions);
-
-						/* Create all new transitions */
-						allNewTypeTransitions.addAll(createNewTransitions(filteredTransitions, newPortInstances));
-
-						/*
-						 * Add the port instances created for the current
-						 * mapping port
-						 */
-						allNewTypePortInstances.addAll(newPortInstances);
+			for (final String mappedComponent : currCoordMapping.getMappedComponents()) {
+				tasks.add(new Callable<CoordinatorTypeDescriptor>() {
+					@Override
+					public CoordinatorTypeDescriptor call() throws ArchitectureExtractorException {
+						return describeCoordinatorType(coordinator, transitionsByPort, globalPortMappings,
+								mappedComponent);
 					}
+				});
+			}
+		}
+
+		/* 1. Describe the types in parallel */
+		List<Future<CoordinatorTypeDescriptor>> descriptors;
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			descriptors = pool.invokeAll(tasks);
+		} finally {
+			pool.shutdown();
+		}
+
+		/* Counter for how many new types will be created */
+		/* This counter is at the end of the type name */
+		int typeNameCount = 1;
 
-					/* Create the new states */
-					allNewTypeStates.addAll(ArchitectureInstanceBuilder.createStates(allNewTypeStateNames));
-					/* Create the name of the new type */
-					String newTypeName = currCoordTypeName + String.valueOf(typeNameCount);
-					/* Increment the type name counter */
-					typeNameCount++;
-
-					/* Create the behavior of the new type */
-					PetriNet newBehavior = (PetriNet) ArchitectureInstanceBuilder.createBehavior(
-							currCoordPetriNet.getInitialState(), currCoordPetriNet.getInitialization(),
-							allNewTypeStates, allNewTypeTransitions);
-					/* Create the new type */
-					AtomType newType = ArchitectureInstanceBuilder.createAtomicType(instance, newTypeName, newBehavior,
-							allNewTypePortInstances, currCoordType.getVariable());
-					/* Create the instance */
-					ArchitectureInstanceBuilder.createComponentInstance(instance, mappedComponent, newType,
-							instance.getBipFileModel().getRootType(), true, true);
-
-					/* Insert new matching in the map */
-					portsCardToCoordTypeName.put(cardinalityString, newTypeName);
+		/* 2. Create the types and the instances in order */
+		for (Future<CoordinatorTypeDescriptor> future : descriptors) {
+			CoordinatorTypeDescriptor descriptor;
+			try {
+				descriptor = future.get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof ArchitectureExtractorException) {
+					throw (ArchitectureExtractorException) e.getCause();
 				}
+				throw new RuntimeException(e.getCause());
+			}
+
+			/* Check for a structurally identical type */
+			ComponentType type = instance.getSynthesizedType(descriptor.signature);
+
+			/* Create new type in the instance */
+			if (type == null) {
+				/* The type name of the current coordinator */
+				String currCoordTypeName = descriptor.coordinator.getType().getName();
+
+				/* Create the name of the new type */
+				String newTypeName = currCoordTypeName + String.valueOf(typeNameCount);
+				/* Increment the type name counter */
+				typeNameCount++;
+
+				/* Create the new type */
+				type = createCoordinatorType(architectureStyle, instance, descriptor, newTypeName);
+
+				/* Remember the type by its signature */
+				instance.addSynthesizedType(descriptor.signature, type);
 			}
 
+			/* Create the instance */
+			ArchitectureInstanceBuilder.createComponentInstance(instance, descriptor.mappedComponent, type,
+					instance.getBipFileModel().getRootType(), true, true);
 		}
 	}
 
@@ -413,23 +527,54 @@ public class ArchitectureInstantiator {
 	 */
 	public static void plugAllOperands(ArchitectureOperands architectureOperands, ArchitectureInstance instance)
 			throws ArchitectureExtractorException, InvalidComponentNameException, InterruptedException {
-		/* Take all operands and plug them */
+		/* Take all operands */
 		List<Component> operands = ArchitectureOperandsExtractor.getArchitectureOperands(architectureOperands);
 
+		/* Copy every distinct type only once */
+		Map<ComponentType, ComponentType> copiedTypes = new HashMap<ComponentType, ComponentType>();
+		/* The operands in their order, with the copied types */
+		Map<String, ComponentType> namesToTypes = new LinkedHashMap<String, ComponentType>();
+
 		for (Component c : operands) {
-			if (c.getType() instanceof AtomType) {
-				AtomType atomType = ArchitectureInstanceBuilder.copyAtomicType(instance, (AtomType) c.getType());
-				/* Make an atomic type instance of the operand */
-				ArchitectureInstanceBuilder.createComponentInstance(instance, c.getName(), atomType,
-						instance.getBipFileModel().getRootType(), false, true);
-			} else {
-				/* Make a compound type instance of the operand */
-				CompoundType compoundType = ArchitectureInstanceBuilder.copyCompoundType(instance,
-						(CompoundType) c.getType());
-				ArchitectureInstanceBuilder.createComponentInstance(instance, c.getName(), compoundType,
-						instance.getBipFileModel().getRootType(), false, true);
+			ComponentType copy = copiedTypes.get(c.getType());
+
+			if (copy == null) {
+				if (c.getType() instanceof AtomType) {
+					copy = ArchitectureInstanceBuilder.copyAtomicType(instance, (AtomType) c.getType());
+				} else {
+					copy = ArchitectureInstanceBuilder.copyCompoundType(instance, (CompoundType) c.getType());
+				}
+				copiedTypes.put(c.getType(), copy);
+			}
+
+			if (namesToTypes.put(c.getName(), copy) != null) {
+				throw new InvalidComponentNameException(
+						"Component with a name " + c.getName() + " already exists in the architecture");
 			}
 		}
+
+		/* Create the instances of the operands at once */
+		ArchitectureInstanceBuilder.createComponentInstances(instance, namesToTypes,
+				instance.getBipFileModel().getRootType(), false, true);
+	}
+
+	/**
+	 * Helper method to plug one operand in the instance
+	 */
+	private static void plugOperand(Component c, ArchitectureInstance instance)
+			throws ArchitectureExtractorException, InvalidComponentNameException, InterruptedException {
+		if (c.getType() instanceof AtomType) {
+			AtomType atomType = ArchitectureInstanceBuilder.copyAtomicType(instance, (AtomType) c.getType());
+			/* Make an atomic type instance of the operand */
+			ArchitectureInstanceBuilder.createComponentInstance(instance, c.getName(), atomType,
+					instance.getBipFileModel().getRootType(), false, true);
+		} else {
+			/* Make a compound type instance of the operand */
+			CompoundType compoundType = ArchitectureInstanceBuilder.copyCompoundType(instance,
+					(CompoundType) c.getType());
+			ArchitectureInstanceBuilder.createComponentInstance(instance, c.getName(), compoundType,
+					instance.getBipFileModel().getRootType(), false, true);
+		}
 	}
 
 	/**
@@ -563,184 +708,525 @@ public class ArchitectureInstantiator {
 	}
 
 	/**
-	 * Helper method to create "map of credits", where the credit is equal to
-	 * the degree
+	 * Helper method to calculate the matching factor of a connector tuple, i.e.
+	 * the number of its connector instances, from its first port tuple
 	 */
-	public static Map<String, Integer> createMapOfCredits(ArchitectureStyle architectureStyle,
-			ArchitectureOperands architectureOperands, ConnectorTuple connectorTuple, CreditType creditType) {
-		/* Initialize the resulting map */
-		Map<String, Integer> result = new HashMap<String, Integer>();
+	private static int calculateMatchingFactor(ArchitectureStyle architectureStyle,
+			ArchitectureOperands architectureOperands, ConnectorTuple connectorTuple) {
+		PortTuple firstPortTuple = connectorTuple.getPortTuples().get(0);
 
-		/* Get all port tuples */
-		List<PortTuple> portTuples = connectorTuple.getPortTuples();
-		/* Iterate over them */
-		for (PortTuple portTuple : portTuples) {
+		if (firstPortTuple.getType() == PortTupleType.COORDINATOR_TUPLE) {
+			return calculateMatchingFactor(firstPortTuple, architectureStyle.getCoordinatorsMapping());
+		}
 
-			int credit;
-			if (creditType == CreditType.CREDIT_DEGREE) {
-				/* The degree will be the credit */
-				credit = portTuple.getCalculatedDegree();
-			} else {
-				/* The credit will be 1 */
-				credit = 1;
+		return calculateMatchingFactor(firstPortTuple, architectureOperands.getOperandsMapping());
+	}
+
+	/**
+	 * Helper method to choose the ports of every connector instance of one
+	 * connector tuple, from the compiled mappings of the tuple. The credits
+	 * are local to the tuple, so the tuples can be handled in parallel. Every
+	 * credit, equal to the degree of its port tuple, is spent by port id. For
+	 * every port tuple, the first port with a credit left is taken from each
+	 * mapped component, until the multiplicity of the tuple is reached.
+	 */
+	private static List<List<String>> chooseConnectorPorts(ConnectorMappingTable table, int matchingFactor) {
+
+		/* The credit of each mapped port, by port id */
+		int[] credits = table.createCredits();
+		int[] multiplicities = table.getMultiplicities();
+		int[] tupleOffsets = table.getTupleOffsets();
+		int[] mappingOffsets = table.getMappingOffsets();
+		int[] portIds = table.getPortIds();
+
+		/* Choose the ports of every connector instance */
+		List<List<String>> chosenPorts = new ArrayList<List<String>>(matchingFactor);
+		for (int i = 0; i < matchingFactor; i++) {
+			List<String> ports = new ArrayList<String>();
+
+			/* Iterate the port tuples */
+			for (int t = 0; t < table.getNumberOfPortTuples(); t++) {
+				/* Counter for the chosen ports of the tuple */
+				int counter = 0;
+
+				/* Iterate the component port mappings of the tuple */
+				for (int m = tupleOffsets[t]; m < tupleOffsets[t + 1]; m++) {
+					/* Choose the first port with a credit left */
+					for (int p = mappingOffsets[m]; p < mappingOffsets[m + 1]; p++) {
+						if (credits[portIds[p]] > 0) {
+							ports.add(table.getPortName(portIds[p]));
+							credits[portIds[p]]--;
+							counter++;
+							break;
+						}
+					}
+
+					/* The multiplicity of the tuple is reached */
+					if (counter == multiplicities[t]) {
+						break;
+					}
+				}
 			}
 
-			/* The name of the component where the port belongs */
-			String portInstanceName = portTuple.getPortInstanceName();
-			String compInstanceName = portInstanceName.split("\\.")[0];
+			chosenPorts.add(ports);
+		}
 
-			/* The mappings where the port belongs */
-			ComponentMapping componentMapping;
-			GlobalPortMapping globalPortMapping;
+		return chosenPorts;
+	}
 
-			/* If the port tuple is coordinator tuple */
-			if (portTuple.getType() == PortTupleType.COORDINATOR_TUPLE) {
-				componentMapping = architectureStyle.getCoordinatorsMapping().get(compInstanceName);
-				globalPortMapping = componentMapping.getGlobalPortMappings().get(portInstanceName);
-			} else {
-				componentMapping = architectureOperands.getOperandsMapping().get(compInstanceName);
-				globalPortMapping = componentMapping.getGlobalPortMappings().get(portInstanceName);
-			}
+	/**
+	 * Helper method to create the actual port parameters for the chosen ports,
+	 * where the components are taken from the given map by name.
+	 */
+	private static List<ActualPortParameter> createActualPortParams(Map<String, Component> components,
+			List<String> chosenPorts) throws ArchitectureExtractorException {
 
-			/* Take the collection of all port mappings */
-			Collection<ComponentPortMapping> componentPortMappings = globalPortMapping.getComponentPortMappings()
-					.values();
+		/* Initialize the result */
+		List<ActualPortParameter> result = new LinkedList<ActualPortParameter>();
+
+		for (String mappedPort : chosenPorts) {
+			String[] tokens = mappedPort.split("\\.");
+			Component component = components.get(tokens[0]);
+			result.add(ArchitectureInstanceBuilder.createInnerPortReference(
+					ArchitectureInstanceBuilder.createPartElementReference(component),
+					BIPExtractor.getPortInComponentByName(component, tokens[1])));
+		}
+
+		return result;
+	}
 
-			/* Iterate over them to make the map */
-			for (ComponentPortMapping cpm : componentPortMappings) {
-				/* Iterate over the mapped ports */
-				for (String mappedPort : cpm.getMappedPorts()) {
-					/* Put the credit */
-					result.put(mappedPort, credit);
+	/**
+	 * Method to create all connector instances. The ports of the connectors of
+	 * every connector tuple are chosen in parallel, then the connectors are
+	 * created in the order of the tuples.
+	 */
+	public static void createAllConnectorInstances(final ArchitectureStyle architectureStyle,
+			final ArchitectureOperands architectureOperands, ArchitectureInstance instance)
+			throws ArchitectureExtractorException, InterruptedException {
+
+		/* Get the list of all Connector Tuples */
+		List<ConnectorTuple> connectorTuples = architectureStyle.getConnectorsTuples();
+
+		/* One task for every connector tuple */
+		List<Callable<List<List<String>>>> tasks = new LinkedList<Callable<List<List<String>>>>();
+		for (ConnectorTuple connectorTuple : connectorTuples) {
+			/* Compile the mappings, kept in the instance for the updates */
+			final ConnectorMappingTable table = ConnectorMappingTable.compile(architectureStyle,
+					architectureOperands, connectorTuple);
+			final int matchingFactor = calculateMatchingFactor(architectureStyle, architectureOperands,
+					connectorTuple);
+			instance.setConnectorMappingTable(table);
+
+			tasks.add(new Callable<List<List<String>>>() {
+				@Override
+				public List<List<String>> call() {
+					return chooseConnectorPorts(table, matchingFactor);
 				}
+			});
+		}
+
+		/* 1. Choose the ports in parallel, each tuple in its own buffer */
+		List<Future<List<List<String>>>> buffers;
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			buffers = pool.invokeAll(tasks);
+		} finally {
+			pool.shutdown();
+		}
+
+		/* The components of the instance by name */
+		Map<String, Component> rootComponents = mapRootComponents(instance);
+
+		/* 2. Create the connectors in the order of the tuples */
+		for (int t = 0; t < connectorTuples.size(); t++) {
+			List<List<String>> chosenPorts;
+			try {
+				chosenPorts = buffers.get(t).get();
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
 			}
 
+			/* Get the name of the connector instance */
+			String connectorInstanceName = connectorTuples.get(t).getConnectorInstanceName();
+			/* Get the connector type */
+			String connectorTypeName = BIPExtractor
+					.getConnectorByName(architectureStyle.getBipFileModel(), connectorInstanceName).getType().getName();
+			ConnectorType connectorType = BIPExtractor.getConnectorTypeByName(instance.getBipFileModel(),
+					connectorTypeName);
+
+			for (int i = 0; i < chosenPorts.size(); i++) {
+				/* create connector instance */
+				ArchitectureInstanceBuilder.createConnectorInstance(instance, connectorInstanceName + (i + 1),
+						connectorType, instance.getBipFileModel().getRootType(),
+						createActualPortParams(rootComponents, chosenPorts.get(i)));
+			}
+		}
+	}
+
+
+	/**
+	 * Helper method to collect the inner names of the ports, to which the
+	 * ports of one coordinator are mapped in the given mapped component
+	 */
+	private static Set<String> collectMappedPortNames(Map<String, GlobalPortMapping> globalPortMappings,
+			String mappedComponent) {
+		/* The resulting set */
+		Set<String> result = new HashSet<String>();
+
+		for (GlobalPortMapping globalPortMapping : globalPortMappings.values()) {
+			for (String mappedPort : globalPortMapping.getComponentPortMappings().get(mappedComponent)
+					.getMappedPorts()) {
+				result.add(mappedPort.split("\\.")[1]);
+			}
 		}
 
 		return result;
 	}
 
-	public static List<ActualPortParameter> createActualPortParams(ArchitectureInstance instance,
-			List<PortTuple> portTuples, Map<String, ComponentMapping> componentMappings,
-			Map<String, Integer> mapOfCredits) throws ArchitectureExtractorException {
+	/**
+	 * Helper method to collect the names of the ports in the component type
+	 */
+	private static Set<String> collectPortNames(ComponentType componentType) {
+		/* The resulting set */
+		Set<String> result = new HashSet<String>();
 
-		/* Initialize the result */
-		List<ActualPortParameter> result = new LinkedList<ActualPortParameter>();
+		for (Port p : componentType.getPort()) {
+			result.add(p.getName());
+		}
 
-		/* Iterate over port tuples */
-		for (PortTuple portTuple : portTuples) {
+		return result;
+	}
 
-			/* Get the multiplicity of the port tuple */
-			int multiplicity = portTuple.getCalculatedMultiplicity();
+	/**
+	 * Helper method to create a map of the components in the root of the
+	 * instance, where the key is the name of the component
+	 */
+	private static Map<String, Component> mapRootComponents(ArchitectureInstance instance) {
+		/* The resulting map */
+		Map<String, Component> result = new HashMap<String, Component>();
 
-			/* Get the mappings of the component where the port belongs */
-			String portInstanceName = portTuple.getPortInstanceName();
-			String compInstanceName = portInstanceName.split("\\.")[0];
-			ComponentMapping componentMapping = componentMappings.get(compInstanceName);
+		for (Component c : instance.getBipFileModel().getRootType().getSubcomponent()) {
+			result.put(c.getName(), c);
+		}
 
-			/* Get global port mappings */
-			GlobalPortMapping globalPortMapping = componentMapping.getGlobalPortMappings().get(portInstanceName);
+		return result;
+	}
 
-			/*
-			 * Take the collection of all port mappings to each mapped component
-			 */
-			Collection<ComponentPortMapping> componentPortMappings = globalPortMapping.getComponentPortMappings()
-					.values();
+	/**
+	 * Helper method to replace the coordinators whose port cardinalities
+	 * changed after solving the style again. The names of the replaced
+	 * components are added in the set of stale components.
+	 */
+	private static void updateCoordinators(ArchitectureStyle architectureStyle, ArchitectureInstance instance,
+			Map<String, Component> rootComponents, Set<String> staleComponents)
+			throws ArchitectureExtractorException, InvalidComponentNameException, InvalidAtomTypeNameException,
+			InvalidVariableNameException, InvalidPortNameException, IllegalTransitionPortException,
+			InvalidStateNameException, IllegalTransitionStatesException, ListEmptyException {
 
-			/* Initialize the counter */
-			int counter = 0;
+		/* Types of the replaced coordinators, deleted if not used anymore */
+		Set<ComponentType> replacedTypes = new HashSet<ComponentType>();
 
-			/*
-			 * The map of credits is still the same. That is why this is working
-			 */
+		/* Iterate over the coordinators */
+		for (Component coordinator : ArchitectureStyleExtractor.getArchitectureStyleCoordinators(architectureStyle)) {
+
+			/* The type name of the current coordinator */
+			String currCoordTypeName = coordinator.getType().getName();
 
-			/* Iterate over them */
-			for (ComponentPortMapping cpm : componentPortMappings) {
-				/* Iterate over port mappings */
-				for (String mappedPort : cpm.getMappedPorts()) {
-					/* Create actual port parameter */
-					if (mapOfCredits.get(mappedPort) > 0) {
+			/* The mappings of the current coordinator */
+			ComponentMapping currCoordMapping = architectureStyle.getCoordinatorsMapping().get(coordinator.getName());
+			Map<String, GlobalPortMapping> globalPortMappings = currCoordMapping.getGlobalPortMappings();
 
-						PartElementReference per = ArchitectureInstanceBuilder.createPartElementReference(
-								BIPExtractor.getComponentByName(instance.getBipFileModel(), cpm.getMappedComponent()));
-						Port p = BIPExtractor.getPortByName(instance.getBipFileModel(), mappedPort.split("\\.")[1]);
-						ActualPortParameter app = ArchitectureInstanceBuilder.createInnerPortReference(per, p);
-						result.add(app);
+			/* The transitions of the current coordinator grouped by port */
+			Map<String, List<Transition>> transitionsByPort = groupTransitionsByPort(
+					((PetriNet) ((AtomType) coordinator.getType()).getBehavior()).getTransition());
 
-						/* Decrement the credit */
-						mapOfCredits.put(mappedPort, mapOfCredits.get(mappedPort) - 1);
+			/* Key: the ports of one type, Value: the type */
+			Map<Set<String>, ComponentType> portsToCoordType = new HashMap<Set<String>, ComponentType>();
+			/* The mapped components which have to be created again */
+			List<String> changedComponents = new LinkedList<String>();
 
-						/* Increment the counter */
-						counter++;
+			/* The unchanged components are kept with their types */
+			for (String mappedComponent : currCoordMapping.getMappedComponents()) {
+				Component existing = rootComponents.get(mappedComponent);
+				Set<String> portNames = collectMappedPortNames(globalPortMappings, mappedComponent);
 
-						/* Jump to the next component */
-						break;
+				if (existing != null && collectPortNames(existing.getType()).equals(portNames)) {
+					portsToCoordType.put(portNames, existing.getType());
+				} else {
+					changedComponents.add(mappedComponent);
+				}
+			}
+
+			/* The changed components are replaced */
+			for (String mappedComponent : changedComponents) {
+				Component existing = rootComponents.get(mappedComponent);
+
+				/* Delete the old component */
+				if (existing != null) {
+					replacedTypes.add(existing.getType());
+					ArchitectureInstanceBuilder.deleteComponentInstance(instance, existing);
+					staleComponents.add(mappedComponent);
+				}
+
+				/* Take an existing type with same ports or create new one */
+				Set<String> portNames = collectMappedPortNames(globalPortMappings, mappedComponent);
+				ComponentType type = portsToCoordType.get(portNames);
+
+				/* Take a structurally identical type */
+				CoordinatorTypeDescriptor descriptor = describeCoordinatorType(coordinator, transitionsByPort,
+						globalPortMappings, mappedComponent);
+				if (type == null) {
+					type = instance.getSynthesizedType(descriptor.signature);
+				}
+
+				if (type == null) {
+					/* The first free name of the new type */
+					int typeNameCount = 1;
+					while (BIPChecker.componentTypeExists(instance.getBipFileModel(),
+							currCoordTypeName + String.valueOf(typeNameCount))) {
+						typeNameCount++;
 					}
+
+					type = createCoordinatorType(architectureStyle, instance, descriptor,
+							currCoordTypeName + String.valueOf(typeNameCount));
+					instance.addSynthesizedType(descriptor.signature, type);
+				}
+				portsToCoordType.put(portNames, type);
+
+				Component component = ArchitectureInstanceBuilder.createComponentInstance(instance, mappedComponent,
+						type, instance.getBipFileModel().getRootType(), true, true);
+				rootComponents.put(mappedComponent, component);
+			}
+		}
+
+		/* Delete the replaced types which are not used anymore */
+		for (Component c : rootComponents.values()) {
+			replacedTypes.remove(c.getType());
+		}
+		for (ComponentType type : replacedTypes) {
+			ArchitectureInstanceBuilder.deleteType(instance, type);
+		}
+	}
+
+	/**
+	 * Helper method to remove the operands which are not in the operands
+	 * anymore and to plug the new ones. The names of the removed components
+	 * are added in the set of stale components.
+	 */
+	private static void updateOperands(ArchitectureOperands architectureOperands, ArchitectureInstance instance,
+			Map<String, Component> rootComponents, Set<String> staleComponents)
+			throws ArchitectureExtractorException, InvalidComponentNameException, InterruptedException {
+
+		/* The operands after the change */
+		Set<String> newOperands = new LinkedHashSet<String>();
+		for (ComponentMapping componentMapping : architectureOperands.getOperandsMapping().values()) {
+			newOperands.addAll(componentMapping.getMappedComponents());
+		}
+
+		/* Remove the operands which are not there anymore */
+		for (String operand : new LinkedList<String>(instance.getOperands())) {
+			if (!newOperands.contains(operand)) {
+				ArchitectureInstanceBuilder.deleteComponentInstance(instance, rootComponents.remove(operand));
+				staleComponents.add(operand);
+			}
+		}
+
+		/* Plug the new operands */
+		for (String operand : newOperands) {
+			if (!instance.getOperands().contains(operand)) {
+				plugOperand(BIPExtractor.getComponentByName(architectureOperands.getBipFileModel(), operand),
+						instance);
+			}
+		}
+	}
+
+	/**
+	 * Helper method to delete the connector types whose number of port
+	 * parameters does not match the calculated multiplicities anymore, together
+	 * with all their connector instances, which are removed in one pass.
+	 */
+	private static void deleteStaleConnectorTypes(ArchitectureStyle architectureStyle, ArchitectureInstance instance)
+			throws ArchitectureExtractorException {
+
+		/* The connector types to delete */
+		Set<ConnectorType> staleTypes = new HashSet<ConnectorType>();
+
+		for (ConnectorTuple connectorTuple : architectureStyle.getConnectorsTuples()) {
+			/* The name of the connector type */
+			String connectorTypeName = BIPExtractor
+					.getConnectorByName(architectureStyle.getBipFileModel(), connectorTuple.getConnectorInstanceName())
+					.getType().getName();
+
+			if (BIPChecker.connectorTypeExists(instance.getBipFileModel(), connectorTypeName)) {
+				ConnectorType connectorType = BIPExtractor.getConnectorTypeByName(instance.getBipFileModel(),
+						connectorTypeName);
+
+				/* The expected number of port parameters */
+				int numPortParameters = 0;
+				for (PortTuple portTuple : connectorTuple.getPortTuples()) {
+					numPortParameters += portTuple.getCalculatedMultiplicity();
 				}
 
-				if (counter == multiplicity) {
-					break;
+				if (connectorType.getPortParameter().size() != numPortParameters) {
+					staleTypes.add(connectorType);
 				}
 			}
+		}
 
+		if (staleTypes.isEmpty()) {
+			return;
 		}
 
-		return result;
+		/* Delete the instances of the types */
+		Set<Connector> staleConnectors = new HashSet<Connector>();
+		for (Connector c : instance.getBipFileModel().getRootType().getConnector()) {
+			if (staleTypes.contains(c.getType())) {
+				staleConnectors.add(c);
+			}
+		}
+		ArchitectureInstanceBuilder.deleteConnectorInstances(instance, staleConnectors);
 
+		/* Delete the types */
+		for (ConnectorType connectorType : staleTypes) {
+			ArchitectureInstanceBuilder.deleteType(instance, connectorType);
+		}
 	}
 
-	public static void createAllConnectorInstances(ArchitectureStyle architectureStyle,
-			ArchitectureOperands architectureOperands, ArchitectureInstance instance)
+	/**
+	 * Helper method to replace the connector instances of the connector tuples
+	 * whose mappings changed or which refer to stale components. The ports are
+	 * chosen again only for these tuples, their old connector instances are
+	 * removed in one pass, and the connector instances of the other tuples are
+	 * left untouched.
+	 */
+	private static void updateConnectorInstances(ArchitectureStyle architectureStyle,
+			ArchitectureOperands architectureOperands, ArchitectureInstance instance,
+			Map<String, Component> rootComponents, Set<String> staleComponents)
 			throws ArchitectureExtractorException {
 
-		/* Get the list of all Connector Tuples */
-		List<ConnectorTuple> connectorTuples = architectureStyle.getConnectorsTuples();
+		/* Map of the existing connectors, where the key is the name */
+		Map<String, Connector> rootConnectors = new HashMap<String, Connector>();
+		for (Connector c : instance.getBipFileModel().getRootType().getConnector()) {
+			rootConnectors.put(c.getName(), c);
+		}
+
+		/* The connector instances to delete, and the changed tuples */
+		Set<Connector> oldConnectors = new HashSet<Connector>();
+		List<ConnectorTuple> changedTuples = new ArrayList<ConnectorTuple>();
+		List<ConnectorMappingTable> changedTables = new ArrayList<ConnectorMappingTable>();
+		List<Integer> matchingFactors = new ArrayList<Integer>();
 
 		/* Iterate over the connector tuples */
-		for (ConnectorTuple connectorTuple : connectorTuples) {
+		for (ConnectorTuple connectorTuple : architectureStyle.getConnectorsTuples()) {
 
-			/* Create map of credits for each mapped port */
-			Map<String, Integer> mapOfCredits = createMapOfCredits(architectureStyle, architectureOperands,
-					connectorTuple, CreditType.CREDIT_DEGREE);
+			/* The name of the connector instance */
+			String connectorInstanceName = connectorTuple.getConnectorInstanceName();
 
-			/* Calculate the matching factor */
-			int matchingFactor;
-			if (connectorTuple.getPortTuples().get(0).getType() == PortTupleType.COORDINATOR_TUPLE) {
-				matchingFactor = calculateMatchingFactor(connectorTuple.getPortTuples().get(0),
-						architectureStyle.getCoordinatorsMapping());
-			} else {
-				matchingFactor = calculateMatchingFactor(connectorTuple.getPortTuples().get(0),
-						architectureOperands.getOperandsMapping());
+			/* Compile the mappings of the connector tuple */
+			ConnectorMappingTable table = ConnectorMappingTable.compile(architectureStyle, architectureOperands,
+					connectorTuple);
+			int matchingFactor = calculateMatchingFactor(architectureStyle, architectureOperands, connectorTuple);
+
+			/* Take the existing connector instances of the tuple */
+			List<Connector> existingConnectors = new LinkedList<Connector>();
+			for (int i = 1; rootConnectors.containsKey(connectorInstanceName + i); i++) {
+				existingConnectors.add(rootConnectors.get(connectorInstanceName + i));
 			}
 
-			/* Get the coordinator port tuples */
-			List<PortTuple> coordinatorPortTuples = connectorTuple.getCoordinatorPortTuples();
-			/* Get the operand port tuples */
-			List<PortTuple> operandPortTuples = connectorTuple.getOperandPortTuples();
+			/* The same mappings choose the same ports */
+			boolean unchanged = table.equals(instance.getConnectorMappingTable(connectorInstanceName))
+					&& existingConnectors.size() == matchingFactor;
+
+			/* The ports of replaced or removed components are gone */
+			for (int id = 0; unchanged && id < table.getNumberOfPorts(); id++) {
+				unchanged = !staleComponents.contains(table.getPortName(id).split("\\.")[0]);
+			}
+
+			if (!unchanged) {
+				oldConnectors.addAll(existingConnectors);
+				changedTuples.add(connectorTuple);
+				changedTables.add(table);
+				matchingFactors.add(matchingFactor);
+			}
+		}
+
+		/* Delete the old connector instances */
+		ArchitectureInstanceBuilder.deleteConnectorInstances(instance, oldConnectors);
+
+		/* Create the new connector instances of the changed tuples */
+		for (int t = 0; t < changedTuples.size(); t++) {
+			ConnectorMappingTable table = changedTables.get(t);
+			List<List<String>> chosenPorts = chooseConnectorPorts(table, matchingFactors.get(t));
 
-			/* Get the name of the connector instance */
-			String connectorInstanceName = connectorTuple.getConnectorInstanceName();
 			/* Get the connector type */
+			String connectorInstanceName = changedTuples.get(t).getConnectorInstanceName();
 			String connectorTypeName = BIPExtractor
 					.getConnectorByName(architectureStyle.getBipFileModel(), connectorInstanceName).getType().getName();
 			ConnectorType connectorType = BIPExtractor.getConnectorTypeByName(instance.getBipFileModel(),
 					connectorTypeName);
 
-			for (int i = 0; i < matchingFactor; i++) {
-
-				/* Create actual port parameters */
-				List<ActualPortParameter> actualPortParameters = new LinkedList<ActualPortParameter>();
-				actualPortParameters.addAll(createActualPortParams(instance, coordinatorPortTuples,
-						architectureStyle.getCoordinatorsMapping(), mapOfCredits));
-				actualPortParameters.addAll(createActualPortParams(instance, operandPortTuples,
-						architectureOperands.getOperandsMapping(), mapOfCredits));
-				/* create connector instance */
+			for (int i = 0; i < chosenPorts.size(); i++) {
 				ArchitectureInstanceBuilder.createConnectorInstance(instance, connectorInstanceName + (i + 1),
-						connectorType, instance.getBipFileModel().getRootType(), actualPortParameters);
+						connectorType, instance.getBipFileModel().getRootType(),
+						createActualPortParams(rootComponents, chosenPorts.get(i)));
 			}
+			instance.setConnectorMappingTable(table);
+		}
+	}
 
+	/**
+	 * Method to load the architecture style from its configuration file
+	 * 
+	 * @param prefixToBip
+	 *            - the prefix before the relative path of the BIP file, or
+	 *            null if the path is absolute
+	 * @param pathToConfFile
+	 *            - path to the configuration file
+	 * @return the architecture style
+	 */
+	private static ArchitectureStyle loadArchitectureStyle(String prefixToBip, String pathToConfFile)
+			throws ConfigurationFileException, ArchitectureExtractorException, IOException {
+		if (prefixToBip == null) {
+			return new ArchitectureStyle(pathToConfFile);
 		}
 
+		return new ArchitectureStyle(prefixToBip, pathToConfFile);
+	}
+
+	/**
+	 * Method to load the architecture operands from their configuration file
+	 * 
+	 * @param prefixToBip
+	 *            - the prefix before the relative path of the BIP file, or
+	 *            null if the path is absolute
+	 * @param pathToConfFile
+	 *            - path to the configuration file
+	 * @return the architecture operands
+	 */
+	private static ArchitectureOperands loadArchitectureOperands(String prefixToBip, String pathToConfFile)
+			throws ConfigurationFileException, ArchitectureExtractorException, IOException {
+		if (prefixToBip == null) {
+			return new ArchitectureOperands(pathToConfFile);
+		}
+
+		return new ArchitectureOperands(prefixToBip, pathToConfFile);
+	}
+
+	/**
+	 * @param path
+	 *            - the path of a file
+	 * @param index
+	 *            - the index of the solution
+	 * @return the path with the suffix _index before the extension
+	 */
+	private static String indexedPath(String path, int index) {
+		/* The extension starts after the last dot of the file name */
+		int dot = path.lastIndexOf('.');
+		if (dot <= path.lastIndexOf(File.separatorChar)) {
+			return path + "_" + index;
+		}
+
+		return path.substring(0, dot) + "_" + index + path.substring(dot);
 	}
 
 	/****************************************************************************/
@@ -767,32 +1253,366 @@ public class ArchitectureInstantiator {
 			ArchitectureOperands architectureOperands, String systemName, String rootTypeName, String rootInstanceName,
 			String pathToSaveBIPFile, String pathToSaveConfFile)
 			throws ArchitectureBuilderException, ArchitectureExtractorException, IOException, InterruptedException,
-			Z3Exception, TestFailException, ListEmptyException {
+			Z3Exception, TestFailException, SolverUnknownException, ListEmptyException {
+
+		/* 1. Calculate variables */
+		ArchitectureStyleSolver.calculateVariables(architectureStyle, architectureOperands);
+
+		/* 2. Build the instance */
+		return buildArchitectureInstance(architectureStyle, architectureOperands, systemName, rootTypeName,
+				rootInstanceName, pathToSaveBIPFile, pathToSaveConfFile);
+	}
 
-		/* 1. Create an empty architecture instance */
+	/**
+	 * Method for instantiating the architecture, where the system, the root
+	 * type and the root component of the instance are named as in the style.
+	 * The variables are calculated before the BIP file of the style is needed,
+	 * so an infeasible configuration fails without parsing any BIP file.
+	 * 
+	 * @param architectureStyle
+	 *            - the architecture style
+	 * @param architectureOperands
+	 *            - the architecture operands
+	 * @param pathToSaveBIPFile
+	 *            - path to save the BIP file of the instance
+	 * @param pathToSaveConfFile
+	 *            - path to save the configuration file of the instance
+	 * @return the architecture instance
+	 */
+	public static ArchitectureInstance createArchitectureInstance(ArchitectureStyle architectureStyle,
+			ArchitectureOperands architectureOperands, String pathToSaveBIPFile, String pathToSaveConfFile)
+			throws ArchitectureBuilderException, ArchitectureExtractorException, IOException, InterruptedException,
+			Z3Exception, TestFailException, SolverUnknownException, ListEmptyException {
+
+		/* 1. Calculate variables, from the configuration only */
+		ArchitectureStyleSolver.calculateVariables(architectureStyle, architectureOperands);
+
+		/* 2. Build the instance, named as the style */
+		BIPFileModel styleModel = architectureStyle.getBipFileModel();
+		return buildArchitectureInstance(architectureStyle, architectureOperands, styleModel.getSystem().getName(),
+				styleModel.getRootType().getName(), styleModel.getRoot().getName(), pathToSaveBIPFile,
+				pathToSaveConfFile);
+	}
+
+	/**
+	 * Method for a dry run of the instantiation, which calculates the
+	 * variables in the style and predicts the size of the instance, without
+	 * creating any BIP element or parsing any BIP file. The variables stay
+	 * calculated, so the style can be instantiated right after.
+	 * 
+	 * @param architectureStyle
+	 *            - the architecture style
+	 * @param architectureOperands
+	 *            - the architecture operands
+	 * @return the projected size of the instance
+	 * @throws TestFailException
+	 *             if the variables have no solution
+	 * @throws SolverUnknownException
+	 *             if the backend gave up at some limit
+	 */
+	public static CapacityPlan planArchitectureInstance(ArchitectureStyle architectureStyle,
+			ArchitectureOperands architectureOperands)
+			throws Z3Exception, TestFailException, SolverUnknownException {
+
+		/* 1. Calculate variables, which also generates the port names */
+		ArchitectureStyleSolver.calculateVariables(architectureStyle, architectureOperands);
+
+		CapacityPlan plan = new CapacityPlan();
+
+		/* 2. One coordinator instance per mapped component, with its mapped ports */
+		for (ComponentMapping coordinatorMapping : architectureStyle.getCoordinatorsMapping().values()) {
+			long ports = 0;
+			for (GlobalPortMapping globalPortMapping : coordinatorMapping.getGlobalPortMappings().values()) {
+				for (ComponentPortMapping cpm : globalPortMapping.getComponentPortMappings().values()) {
+					ports += cpm.getMappedPorts().size();
+				}
+			}
+			plan.addCoordinators(coordinatorMapping.getMappedComponents().size(), ports);
+		}
+
+		/* 3. The operands, where only the mapped ports are known */
+		for (ComponentMapping operandMapping : architectureOperands.getOperandsMapping().values()) {
+			long ports = 0;
+			for (GlobalPortMapping globalPortMapping : operandMapping.getGlobalPortMappings().values()) {
+				for (ComponentPortMapping cpm : globalPortMapping.getComponentPortMappings().values()) {
+					ports += cpm.getMappedPorts().size();
+				}
+			}
+			plan.addOperands(operandMapping.getMappedComponents().size(), ports);
+		}
+
+		/* 4. As many connector instances as the matching factor */
+		for (ConnectorTuple connectorTuple : architectureStyle.getConnectorsTuples()) {
+			/* Every port tuple gives as many ports as its multiplicity */
+			int triggerPorts = 0;
+			int synchronPorts = 0;
+			for (PortTuple portTuple : connectorTuple.getPortTuples()) {
+				if (portTuple.isTrigger()) {
+					triggerPorts += portTuple.getCalculatedMultiplicity();
+				} else {
+					synchronPorts += portTuple.getCalculatedMultiplicity();
+				}
+			}
+
+			plan.addConnectors(calculateMatchingFactor(architectureStyle, architectureOperands, connectorTuple),
+					triggerPorts, synchronPorts);
+		}
+
+		return plan;
+	}
+
+	/**
+	 * Method for instantiating the architecture for every solution of the
+	 * variables in the style, up to a limit. The solutions are enumerated once
+	 * and then every one of them is instantiated on a pool of workers. The BIP
+	 * files are parsed once, and each worker loads its own copy of the
+	 * configuration files with its own copy of the BIP models. The output
+	 * files of the solution with index i are named with the suffix _i before
+	 * the extension.
+	 * 
+	 * @param prefixToBip
+	 *            - the prefix before the relative paths of the BIP files in
+	 *            the configuration files, or null if the paths are absolute
+	 * @param pathToStyleConfFile
+	 *            - path to the configuration file of the architecture style
+	 * @param pathToOperandsConfFile
+	 *            - path to the configuration file of the architecture operands
+	 * @param systemName
+	 *            - the name of the system of the instances
+	 * @param rootTypeName
+	 *            - the name of the root type of the instances
+	 * @param rootInstanceName
+	 *            - the name of the root component of the instances
+	 * @param pathToSaveBIPFile
+	 *            - path of the BIP files, before the suffix is added
+	 * @param pathToSaveConfFile
+	 *            - path of the configuration files, before the suffix is added
+	 * @param limit
+	 *            - the largest number of instances
+	 * @return the architecture instances, in the order of the solutions
+	 */
+	public static List<ArchitectureInstance> createAllArchitectureInstances(String prefixToBip,
+			String pathToStyleConfFile, String pathToOperandsConfFile, String systemName, String rootTypeName,
+			String rootInstanceName, String pathToSaveBIPFile, String pathToSaveConfFile, int limit)
+			throws ArchitectureBuilderException, ArchitectureExtractorException, ConfigurationFileException,
+			IOException, InterruptedException, TestFailException, SolverUnknownException {
+
+		/* 1. Enumerate the solutions on one copy of the style */
+		ArchitectureStyle firstStyle = loadArchitectureStyle(prefixToBip, pathToStyleConfFile);
+		ArchitectureOperands firstOperands = loadArchitectureOperands(prefixToBip, pathToOperandsConfFile);
+		List<CardinalitySolution> solutions = ArchitectureStyleSolver.calculateAllSolutions(firstStyle,
+				firstOperands, limit);
+
+		/* 2. Instantiate every solution */
+		return instantiateAllSolutions(prefixToBip, pathToStyleConfFile, pathToOperandsConfFile, firstStyle,
+				firstOperands, solutions, systemName, rootTypeName, rootInstanceName, pathToSaveBIPFile,
+				pathToSaveConfFile);
+	}
+
+	/**
+	 * Method for instantiating the architecture for every solution of the
+	 * variables in the style, up to a limit, where the system, the root type
+	 * and the root component of the instances are named as in the style. The
+	 * names are read once the solutions are enumerated, so an infeasible
+	 * configuration fails without parsing any BIP file.
+	 * 
+	 * @param prefixToBip
+	 *            - the prefix before the relative paths of the BIP files in
+	 *            the configuration files, or null if the paths are absolute
+	 * @param pathToStyleConfFile
+	 *            - path to the configuration file of the architecture style
+	 * @param pathToOperandsConfFile
+	 *            - path to the configuration file of the architecture operands
+	 * @param pathToSaveBIPFile
+	 *            - path of the BIP files, before the suffix is added
+	 * @param pathToSaveConfFile
+	 *            - path of the configuration files, before the suffix is added
+	 * @param limit
+	 *            - the largest number of instances
+	 * @return the architecture instances, in the order of the solutions
+	 */
+	public static List<ArchitectureInstance> createAllArchitectureInstances(String prefixToBip,
+			String pathToStyleConfFile, String pathToOperandsConfFile, String pathToSaveBIPFile,
+			String pathToSaveConfFile, int limit)
+			throws ArchitectureBuilderException, ArchitectureExtractorException, ConfigurationFileException,
+			IOException, InterruptedException, TestFailException, SolverUnknownException {
+
+		/* 1. Enumerate the solutions on one copy of the style */
+		ArchitectureStyle firstStyle = loadArchitectureStyle(prefixToBip, pathToStyleConfFile);
+		ArchitectureOperands firstOperands = loadArchitectureOperands(prefixToBip, pathToOperandsConfFile);
+		List<CardinalitySolution> solutions = ArchitectureStyleSolver.calculateAllSolutions(firstStyle,
+				firstOperands, limit);
+
+		/* 2. Instantiate every solution, named as the style */
+		BIPFileModel styleModel = firstStyle.getBipFileModel();
+		return instantiateAllSolutions(prefixToBip, pathToStyleConfFile, pathToOperandsConfFile, firstStyle,
+				firstOperands, solutions, styleModel.getSystem().getName(), styleModel.getRootType().getName(),
+				styleModel.getRoot().getName(), pathToSaveBIPFile, pathToSaveConfFile);
+	}
+
+	/**
+	 * Method for instantiating every enumerated solution on a pool of workers,
+	 * where the BIP files are parsed once from the first copy of the style and
+	 * the operands
+	 */
+	protected static List<ArchitectureInstance> instantiateAllSolutions(final String prefixToBip,
+			final String pathToStyleConfFile, final String pathToOperandsConfFile, ArchitectureStyle firstStyle,
+			ArchitectureOperands firstOperands, List<CardinalitySolution> solutions, final String systemName,
+			final String rootTypeName, final String rootInstanceName, final String pathToSaveBIPFile,
+			final String pathToSaveConfFile) throws ArchitectureBuilderException, ArchitectureExtractorException,
+			IOException, InterruptedException {
+
+		/* Parse the BIP files once, the workers take copies of the models */
+		final BIPFileModel styleModel = firstStyle.getBipFileModel();
+		final BIPFileModel operandsModel = firstOperands.getBipFileModel();
+
+		/* Instantiate every solution on its own copy */
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(solutions.size(), Runtime.getRuntime().availableProcessors()));
+		List<Future<ArchitectureInstance>> futures = new ArrayList<Future<ArchitectureInstance>>();
+
+		try {
+			for (int i = 0; i < solutions.size(); i++) {
+				final int index = i;
+				final CardinalitySolution solution = solutions.get(i);
+
+				futures.add(executor.submit(new Callable<ArchitectureInstance>() {
+					@Override
+					public ArchitectureInstance call() throws Exception {
+						/* Independent copies of the style and the operands */
+						ArchitectureStyle style = loadArchitectureStyle(prefixToBip, pathToStyleConfFile);
+						ArchitectureOperands operands = loadArchitectureOperands(prefixToBip,
+								pathToOperandsConfFile);
+						style.setBipFileModel(new BIPFileModel(styleModel));
+						operands.setBipFileModel(new BIPFileModel(operandsModel));
+
+						ArchitectureStyleSolver.applySolution(style, operands, solution);
+
+						return buildArchitectureInstance(style, operands, systemName, rootTypeName,
+								rootInstanceName, indexedPath(pathToSaveBIPFile, index),
+								indexedPath(pathToSaveConfFile, index));
+					}
+				}));
+			}
+
+			/* Collect the instances in the order of the solutions */
+			List<ArchitectureInstance> instances = new ArrayList<ArchitectureInstance>();
+			for (Future<ArchitectureInstance> future : futures) {
+				try {
+					instances.add(future.get());
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof ArchitectureBuilderException) {
+						throw (ArchitectureBuilderException) e.getCause();
+					} else if (e.getCause() instanceof ArchitectureExtractorException) {
+						throw (ArchitectureExtractorException) e.getCause();
+					} else if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new RuntimeException(e.getCause());
+				}
+			}
+
+			return instances;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Method for building the architecture instance, once the variables in the
+	 * style are calculated
+	 */
+	protected static ArchitectureInstance buildArchitectureInstance(ArchitectureStyle architectureStyle,
+			ArchitectureOperands architectureOperands, String systemName, String rootTypeName, String rootInstanceName,
+			String pathToSaveBIPFile, String pathToSaveConfFile) throws ArchitectureBuilderException,
+			ArchitectureExtractorException, IOException, InterruptedException, ListEmptyException {
+
+		/* Create an empty architecture instance */
 		ArchitectureInstance instance = new ArchitectureInstance(systemName, rootTypeName, rootInstanceName);
 
-		/* 2. Calculate variables */
+		/* Nobody listens to the new model while it is built */
+		instance.getBipFileModel().beginBulkBuild();
+		try {
+			/* 3.Take all Port Types and plug them */
+			plugAllPorts(architectureStyle, architectureOperands, instance);
+
+			/* 4.Take all coordinators and plug them */
+			plugAllCoordinators(architectureStyle, instance);
+
+			/* 5. Take all operands and plug them */
+			plugAllOperands(architectureOperands, instance);
+
+			/* 6. Plug all connectors */
+			plugAllConnectorTypes(architectureStyle, instance);
+
+			/* 7. Create all connector instances */
+			createAllConnectorInstances(architectureStyle, architectureOperands, instance);
+		} finally {
+			instance.getBipFileModel().commitBulkBuild();
+		}
+
+		/* End. Generate BIP file */
+		instance.generateBipFile(pathToSaveBIPFile);
+		/* End. Generate configuration file */
+		instance.generateConfigurationFile(pathToSaveConfFile);
+
+		return instance;
+	}
+
+	/**
+	 * Method for updating an existing Architecture Instance after operands are
+	 * added to or removed from the operands mapping. The variables of the
+	 * style are calculated again and only the affected parts of the instance
+	 * are changed: the added and removed operands, the coordinators whose
+	 * port cardinalities changed, and the connector instances of the
+	 * connector tuples whose mappings changed. The BIP and the configuration
+	 * files are generated again in full at the end, since both are printed
+	 * from the whole model.
+	 * 
+	 * @param instance
+	 *            - the existing architecture instance, created from the style
+	 * @param architectureStyle
+	 *            - the architecture style of the instance
+	 * @param architectureOperands
+	 *            - the architecture operands after the change
+	 * @param pathToSaveBIPFile
+	 *            - path where the BIP file of the instance should be saved
+	 * @param pathToSaveConfFile
+	 *            - path where the configuration file of the instance should be
+	 *            saved
+	 * @return the updated architecture instance
+	 */
+	public static ArchitectureInstance updateArchitectureInstance(ArchitectureInstance instance,
+			ArchitectureStyle architectureStyle, ArchitectureOperands architectureOperands, String pathToSaveBIPFile,
+			String pathToSaveConfFile) throws ArchitectureBuilderException, ArchitectureExtractorException,
+			IOException, InterruptedException, Z3Exception, TestFailException, SolverUnknownException,
+			ListEmptyException {
+
+		/* 1. Calculate the variables again */
+		ArchitectureStyleSolver.resetVariables(architectureStyle);
 		ArchitectureStyleSolver.calculateVariables(architectureStyle, architectureOperands);
 
-		/* 3.Take all Port Types and plug them */
+		/* 2. Plug the port types of the new operands */
 		plugAllPorts(architectureStyle, architectureOperands, instance);
 
-		/* 4.Take all coordinators and plug them */
-		plugAllCoordinators(architectureStyle, instance);
+		/* The components of the instance and the replaced or removed ones */
+		Map<String, Component> rootComponents = mapRootComponents(instance);
+		Set<String> staleComponents = new HashSet<String>();
 
-		/* 5. Take all operands and plug them */
-		plugAllOperands(architectureOperands, instance);
+		/* 3. Replace the coordinators with changed cardinalities */
+		updateCoordinators(architectureStyle, instance, rootComponents, staleComponents);
 
-		/* 6. Plug all connectors */
-		plugAllConnectorTypes(architectureStyle, instance);
+		/* 4. Remove and add operands */
+		updateOperands(architectureOperands, instance, rootComponents, staleComponents);
+		rootComponents = mapRootComponents(instance);
 
-		/* 7. Create all connector instances */
-		createAllConnectorInstances(architectureStyle, architectureOperands, instance);
+		/* 5. Replace the connector types with changed multiplicities */
+		deleteStaleConnectorTypes(architectureStyle, instance);
+		plugAllConnectorTypes(architectureStyle, instance);
 
-		/* 8. Calculate the predicate */
-		instance.setCharacteristicPredicate(
-				ArchitectureInstance.calculateCharacteristicPredicate(instance.getInteractions(), instance.getPorts()));
+		/* 6. Replace the changed connector instances */
+		updateConnectorInstances(architectureStyle, architectureOperands, instance, rootComponents,
+				staleComponents);
 
 		/* End. Generate BIP file */
 		instance.generateBipFile(pathToSaveBIPFile);
@@ -807,4 +1627,41 @@ public class ArchitectureInstantiator {
 
 	}
 
+	/**
+	 * The description of one coordinator type to be created for one mapped
+	 * component. It is calculated without changing the BIP model of the
+	 * instance.
+	 */
+	private static class CoordinatorTypeDescriptor {
+
+		/* The coordinator in the style */
+		protected final Component coordinator;
+
+		/* The component to which the coordinator is mapped */
+		protected final String mappedComponent;
+
+		/* For every port to map, the port instance in the coordinator */
+		protected final Map<String, Port> coordPorts = new LinkedHashMap<String, Port>();
+
+		/* For every port to map, the names of the ports to create */
+		protected final Map<String, List<String>> newPortNames = new HashMap<String, List<String>>();
+
+		/* For every port to map, the transitions labeled by it */
+		protected final Map<String, List<Transition>> transitions = new HashMap<String, List<Transition>>();
+
+		/* The names of the states of the type, in order of appearance */
+		protected final Set<String> stateNames = new LinkedHashSet<String>();
+
+		/* The structure of the type, without the name of the coordinator type */
+		protected String structure;
+
+		/* The structural signature of the type in the instance */
+		protected String signature;
+
+		protected CoordinatorTypeDescriptor(Component coordinator, String mappedComponent) {
+			this.coordinator = coordinator;
+			this.mappedComponent = mappedComponent;
+		}
+	}
+
 }
@@ -0,0 +1,237 @@
+package ch.epfl.risd.archman.builder;
+
+/**
+ * This class represents the projected size of an Architecture Instance, as
+ * predicted from the solved cardinalities before any BIP element is created.
+ * The counts follow the arithmetic of the instantiation, while the byte
+ * estimates are rough averages per element, meant to reject or reshape
+ * oversized jobs rather than to size them exactly.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public class CapacityPlan {
+
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* Average bytes in the BIP file for one component instance */
+	public static final long OUTPUT_BYTES_PER_COMPONENT = 64;
+
+	/* Average bytes in the BIP file for one port instance */
+	public static final long OUTPUT_BYTES_PER_PORT = 48;
+
+	/* Average bytes in the BIP file for one connector instance */
+	public static final long OUTPUT_BYTES_PER_CONNECTOR = 48;
+
+	/* Average bytes in the BIP file for one port of a connector instance */
+	public static final long OUTPUT_BYTES_PER_CONNECTOR_PORT = 24;
+
+	/* Average heap bytes of the EMF objects of one component instance */
+	public static final long HEAP_BYTES_PER_COMPONENT = 1024;
+
+	/* Average heap bytes of the EMF objects of one port instance */
+	public static final long HEAP_BYTES_PER_PORT = 512;
+
+	/* Average heap bytes of the EMF objects of one connector instance */
+	public static final long HEAP_BYTES_PER_CONNECTOR = 768;
+
+	/* Average heap bytes of the EMF objects of one port of a connector */
+	public static final long HEAP_BYTES_PER_CONNECTOR_PORT = 384;
+
+	/* Average heap bytes of one interaction, stored as a port id tuple */
+	public static final long HEAP_BYTES_PER_INTERACTION = 64;
+
+	/* The number of coordinator instances */
+	protected long coordinatorInstances;
+
+	/* The number of operand instances */
+	protected long operandInstances;
+
+	/* The number of port instances of the coordinators */
+	protected long coordinatorPorts;
+
+	/* The number of ports of the operands which are mapped */
+	protected long operandPorts;
+
+	/* The number of connector instances */
+	protected long connectorInstances;
+
+	/* The number of ports in all connector instances */
+	protected long connectorPorts;
+
+	/* The number of interactions of all connector instances */
+	protected long interactions;
+
+	/****************************************************************************/
+	/* PRIVATE(UTILITY) METHODS */
+	/****************************************************************************/
+
+	/**
+	 * @param left
+	 *            - the left term
+	 * @param right
+	 *            - the right term
+	 * @return the sum, saturated at Long.MAX_VALUE
+	 */
+	protected static long saturatedAdd(long left, long right) {
+		long sum = left + right;
+		return sum < 0 ? Long.MAX_VALUE : sum;
+	}
+
+	/**
+	 * @param left
+	 *            - the left factor
+	 * @param right
+	 *            - the right factor
+	 * @return the product of non-negative factors, saturated at
+	 *         Long.MAX_VALUE
+	 */
+	protected static long saturatedMultiply(long left, long right) {
+		if (left != 0 && right > Long.MAX_VALUE / left) {
+			return Long.MAX_VALUE;
+		}
+		return left * right;
+	}
+
+	/****************************************************************************/
+	/* PUBLIC METHODS */
+	/***************************************************************************/
+
+	/**
+	 * Method to add the coordinator instances of one coordinator
+	 *
+	 * @param instances
+	 *            - the number of instances
+	 * @param ports
+	 *            - the number of ports of all of the instances
+	 */
+	public void addCoordinators(long instances, long ports) {
+		this.coordinatorInstances = saturatedAdd(this.coordinatorInstances, instances);
+		this.coordinatorPorts = saturatedAdd(this.coordinatorPorts, ports);
+	}
+
+	/**
+	 * Method to add the operand instances of one operand mapping
+	 *
+	 * @param instances
+	 *            - the number of instances
+	 * @param ports
+	 *            - the number of mapped ports of all of the instances
+	 */
+	public void addOperands(long instances, long ports) {
+		this.operandInstances = saturatedAdd(this.operandInstances, instances);
+		this.operandPorts = saturatedAdd(this.operandPorts, ports);
+	}
+
+	/**
+	 * Method to add the connector instances of one connector tuple
+	 *
+	 * @param instances
+	 *            - the number of connector instances, i.e. the matching factor
+	 * @param triggerPorts
+	 *            - the number of trigger ports in one connector instance
+	 * @param synchronPorts
+	 *            - the number of synchron ports in one connector instance
+	 */
+	public void addConnectors(long instances, int triggerPorts, int synchronPorts) {
+		this.connectorInstances = saturatedAdd(this.connectorInstances, instances);
+		this.connectorPorts = saturatedAdd(this.connectorPorts,
+				saturatedMultiply(instances, triggerPorts + synchronPorts));
+
+		/*
+		 * Without triggers only the full interaction is enabled, otherwise
+		 * every set with at least one trigger, with any of the synchrons
+		 */
+		long perConnector;
+		if (triggerPorts == 0) {
+			perConnector = 1;
+		} else if (triggerPorts + synchronPorts >= Long.SIZE - 1) {
+			perConnector = Long.MAX_VALUE;
+		} else {
+			perConnector = ((1L << triggerPorts) - 1) << synchronPorts;
+		}
+		this.interactions = saturatedAdd(this.interactions, saturatedMultiply(instances, perConnector));
+	}
+
+	/**
+	 * @return the number of component instances
+	 */
+	public long getComponentInstances() {
+		return saturatedAdd(coordinatorInstances, operandInstances);
+	}
+
+	/**
+	 * @return the number of coordinator instances
+	 */
+	public long getCoordinatorInstances() {
+		return coordinatorInstances;
+	}
+
+	/**
+	 * @return the number of operand instances
+	 */
+	public long getOperandInstances() {
+		return operandInstances;
+	}
+
+	/**
+	 * @return the number of port instances, where only the mapped ports of
+	 *         the operands are counted
+	 */
+	public long getPortInstances() {
+		return saturatedAdd(coordinatorPorts, operandPorts);
+	}
+
+	/**
+	 * @return the number of connector instances
+	 */
+	public long getConnectorInstances() {
+		return connectorInstances;
+	}
+
+	/**
+	 * @return the number of ports in all connector instances
+	 */
+	public long getConnectorPorts() {
+		return connectorPorts;
+	}
+
+	/**
+	 * @return the number of interactions of all connector instances
+	 */
+	public long getInteractions() {
+		return interactions;
+	}
+
+	/**
+	 * @return the estimated size of the BIP file, in bytes
+	 */
+	public long getEstimatedOutputBytes() {
+		long result = saturatedMultiply(getComponentInstances(), OUTPUT_BYTES_PER_COMPONENT);
+		result = saturatedAdd(result, saturatedMultiply(getPortInstances(), OUTPUT_BYTES_PER_PORT));
+		result = saturatedAdd(result, saturatedMultiply(connectorInstances, OUTPUT_BYTES_PER_CONNECTOR));
+		return saturatedAdd(result, saturatedMultiply(connectorPorts, OUTPUT_BYTES_PER_CONNECTOR_PORT));
+	}
+
+	/**
+	 * @return the estimated heap needed for the instance, in bytes
+	 */
+	public long getEstimatedHeapBytes() {
+		long result = saturatedMultiply(getComponentInstances(), HEAP_BYTES_PER_COMPONENT);
+		result = saturatedAdd(result, saturatedMultiply(getPortInstances(), HEAP_BYTES_PER_PORT));
+		result = saturatedAdd(result, saturatedMultiply(connectorInstances, HEAP_BYTES_PER_CONNECTOR));
+		result = saturatedAdd(result, saturatedMultiply(connectorPorts, HEAP_BYTES_PER_CONNECTOR_PORT));
+		return saturatedAdd(result, saturatedMultiply(interactions, HEAP_BYTES_PER_INTERACTION));
+	}
+
+	@Override
+	public String toString() {
+		return "Components: " + getComponentInstances() + " (" + coordinatorInstances + " coordinators, "
+				+ operandInstances + " operands), ports: " + getPortInstances() + ", connectors: "
+				+ connectorInstances + " (" + connectorPorts + " connector ports), interactions: " + interactions
+				+ ", estimated output: " + getEstimatedOutputBytes() + " bytes, estimated heap: "
+				+ getEstimatedHeapBytes() + " bytes";
+	}
+
+}
@@ -0,0 +1,200 @@
+package ch.epfl.risd.archman.builder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.EcoreUtil.Copier;
+import org.eclipse.emf.ecore.util.EcoreUtil.EqualityHelper;
+
+import ch.epfl.risd.archman.checker.BIPChecker;
+import ch.epfl.risd.archman.exceptions.ArchitectureExtractorException;
+import ch.epfl.risd.archman.exceptions.IllegalTransitionPortException;
+import ch.epfl.risd.archman.exceptions.InvalidAtomTypeNameException;
+import ch.epfl.risd.archman.exceptions.InvalidPortNameException;
+import ch.epfl.risd.archman.exceptions.InvalidVariableNameException;
+import ch.epfl.risd.archman.extractor.BIPExtractor;
+import ch.epfl.risd.archman.model.ArchitectureInstance;
+import ujf.verimag.bip.Core.Behaviors.AtomType;
+import ujf.verimag.bip.Core.Behaviors.Behavior;
+import ujf.verimag.bip.Core.Behaviors.DefinitionBinding;
+import ujf.verimag.bip.Core.Behaviors.Port;
+import ujf.verimag.bip.Core.Behaviors.PortType;
+import ujf.verimag.bip.Core.Behaviors.Variable;
+
+/**
+ * This class is caching the synthesized coordinator types across the
+ * architecture instances. A type is kept under the structural signature of its
+ * description, together with the coordinator type from which it was
+ * synthesized. It is reused for any coordinator type with the same variables
+ * and behavior, whatever the name of the type or the style it comes from, by
+ * copying it in the instance.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public class CoordinatorTypeCache {
+
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* Map from the structural signature to the synthesized types */
+	private static final Map<String, List<SynthesizedType>> synthesizedTypes = new HashMap<String, List<SynthesizedType>>();
+
+	/****************************************************************************/
+	/* PRIVATE(UTILITY) METHODS */
+	/****************************************************************************/
+
+	/**
+	 * @param first
+	 *            - the first coordinator type
+	 * @param second
+	 *            - the second coordinator type
+	 * @return true if both types have the same variables and behavior, up to
+	 *         the types which contain them
+	 */
+	protected static boolean haveSameContent(AtomType first, AtomType second) {
+		if (first == second) {
+			return true;
+		}
+
+		/* The containers are not compared, so the names of the types are left out */
+		EqualityHelper equalityHelper = new EqualityHelper() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean haveEqualFeature(EObject eObject1, EObject eObject2, EStructuralFeature feature) {
+				if (feature instanceof EReference && ((EReference) feature).isContainer()) {
+					return true;
+				}
+				return super.haveEqualFeature(eObject1, eObject2, feature);
+			}
+		};
+
+		return equalityHelper.equals(new LinkedList<EObject>(first.getVariable()),
+				new LinkedList<EObject>(second.getVariable()))
+				&& equalityHelper.equals(first.getBehavior(), second.getBehavior());
+	}
+
+	/****************************************************************************/
+	/* PUBLIC METHODS */
+	/***************************************************************************/
+
+	/**
+	 * @param signature
+	 *            - the structural signature of the described type
+	 * @param coordinatorType
+	 *            - the type of the coordinator in the style
+	 * @return the synthesized type for the signature and the coordinator type,
+	 *         or null if there is no such type
+	 */
+	public static synchronized AtomType get(String signature, AtomType coordinatorType) {
+		List<SynthesizedType> candidates = synthesizedTypes.get(signature);
+
+		if (candidates != null) {
+			for (SynthesizedType candidate : candidates) {
+				if (haveSameContent(candidate.coordinatorType, coordinatorType)) {
+					return candidate.type;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Method to remember a copy of the synthesized type, such that later
+	 * changes of the instance do not affect it
+	 *
+	 * @param signature
+	 *            - the structural signature of the described type
+	 * @param coordinatorType
+	 *            - the type of the coordinator in the style
+	 * @param type
+	 *            - the synthesized type
+	 */
+	public static synchronized void put(String signature, AtomType coordinatorType, AtomType type) {
+		List<SynthesizedType> candidates = synthesizedTypes.get(signature);
+
+		if (candidates == null) {
+			candidates = new LinkedList<SynthesizedType>();
+			synthesizedTypes.put(signature, candidates);
+		}
+
+		candidates.add(new SynthesizedType(coordinatorType, EcoreUtil.copy(type)));
+	}
+
+	/**
+	 * Method to create a synthesized type in the instance, under a new name
+	 *
+	 * @param instance
+	 *            - the architecture instance
+	 * @param type
+	 *            - the synthesized type taken from the cache
+	 * @param name
+	 *            - the name of the type in the instance
+	 * @return the new type in the instance
+	 * @throws ArchitectureExtractorException
+	 * @throws InvalidAtomTypeNameException
+	 * @throws InvalidVariableNameException
+	 * @throws InvalidPortNameException
+	 * @throws IllegalTransitionPortException
+	 */
+	public static AtomType instantiate(ArchitectureInstance instance, AtomType type, String name)
+			throws ArchitectureExtractorException, InvalidAtomTypeNameException, InvalidVariableNameException,
+			InvalidPortNameException, IllegalTransitionPortException {
+
+		/* Copier for the whole content, the cached type is left untouched */
+		Copier copier = new Copier();
+		Collection<Variable> variables = copier.copyAll(type.getVariable());
+		copier.copyAll(type.getPortDefinition());
+		Collection<Port> ports = copier.copyAll(type.getPort());
+		Behavior behavior = (Behavior) copier.copy(type.getBehavior());
+		/* Redirect the references inside the copied elements */
+		copier.copyReferences();
+
+		/* The ports take the port types of the instance */
+		for (Port p : ports) {
+			PortType portType;
+
+			if (!BIPChecker.portTypeExists(instance.getBipFileModel(), p.getType())) {
+				/* Copy the port type */
+				portType = ArchitectureInstanceBuilder.copyPortType(instance, p.getType());
+			} else {
+				/* Get the port type */
+				portType = BIPExtractor.getPortTypeByName(instance.getBipFileModel(), p.getType().getName());
+			}
+
+			p.setType(portType);
+			((DefinitionBinding) p.getBinding()).getDefinition().setType(portType);
+		}
+
+		/* Create the new type */
+		return ArchitectureInstanceBuilder.createAtomicType(instance, name, behavior, new LinkedList<Port>(ports),
+				new LinkedList<Variable>(variables));
+	}
+
+	/**
+	 * The synthesized type together with the coordinator type from which it
+	 * was synthesized
+	 */
+	private static class SynthesizedType {
+
+		/* The type of the coordinator in the style */
+		protected final AtomType coordinatorType;
+
+		/* The copy of the synthesized type */
+		protected final AtomType type;
+
+		protected SynthesizedType(AtomType coordinatorType, AtomType type) {
+			this.coordinatorType = coordinatorType;
+			this.type = type;
+		}
+	}
+}
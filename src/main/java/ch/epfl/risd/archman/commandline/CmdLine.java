@@ -17,10 +17,14 @@ import ch.epfl.risd.archman.exceptions.InvalidComponentNameException;
 import ch.epfl.risd.archman.exceptions.InvalidConnectorTypeNameException;
 import ch.epfl.risd.archman.exceptions.InvalidPortParameterNameException;
 import ch.epfl.risd.archman.exceptions.ListEmptyException;
+import ch.epfl.risd.archman.exceptions.SolverUnknownException;
 import ch.epfl.risd.archman.exceptions.TestFailException;
 import ch.epfl.risd.archman.model.ArchitectureInstance;
 import ch.epfl.risd.archman.model.ArchitectureOperands;
 import ch.epfl.risd.archman.model.ArchitectureStyle;
+import ch.epfl.risd.archman.solver.ArchitectureStyleSolver;
+import ch.epfl.risd.archman.solver.CachingCardinalitySolver;
+import ch.epfl.risd.archman.solver.CardinalitySolver;
 
 /**
  * The main command line interface for the BIP Architecture Manipulation tool
@@ -65,16 +69,37 @@ public class CmdLine {
 					architectureOperands = new ArchitectureOperands(prefix, conf2Path);
 				}
 
-				String systemName = architectureStyle.getBipFileModel().getSystem().getName();
-				String rootTypeName = architectureStyle.getBipFileModel().getRootType().getName();
-				String rootInstanceName = architectureStyle.getBipFileModel().getRoot().getName();
+				/* Select the backend for the cardinality constraints */
+				CardinalitySolver solver = ArchitectureStyleSolver.createCardinalitySolver(cmdLineFactory.getSolver(),
+						cmdLineFactory.getSolverOptions());
+				if (cmdLineFactory.getSolverCache() != null) {
+					solver = new CachingCardinalitySolver(solver, new File(cmdLineFactory.getSolverCache()));
+				}
+				ArchitectureStyleSolver.setCardinalitySolver(solver);
+
+				/* Instantiate, where the BIP files are parsed only once a solution exists */
+				if (cmdLineFactory.getDryRun()) {
+					/* Only report the projected size */
+					logger.info(ArchitectureInstantiator.planArchitectureInstance(architectureStyle,
+							architectureOperands));
+				} else if (cmdLineFactory.getSolutions() > 1) {
+					/* Several solutions, each from its own copy of the configuration files */
+					String prefix = cmdLineFactory.getTesting() ? new File("").getAbsolutePath() : null;
+					ArchitectureInstantiator.createAllArchitectureInstances(prefix, conf1Path, conf2Path,
+							outputBIPPath, outputConf, cmdLineFactory.getSolutions());
+				} else {
+					ArchitectureInstantiator.createArchitectureInstance(architectureStyle, architectureOperands,
+							outputBIPPath, outputConf);
+				}
 
-				/* Instantiate */
-				ArchitectureInstantiator.createArchitectureInstance(architectureStyle, architectureOperands, systemName,
-						rootTypeName, rootInstanceName, outputBIPPath, outputConf);
+				/* Report the use of the cache */
+				if (solver instanceof CachingCardinalitySolver) {
+					logger.info("Solver cache hits: " + ((CachingCardinalitySolver) solver).getHits() + ", misses: "
+							+ ((CachingCardinalitySolver) solver).getMisses());
+				}
 
 			} catch (ConfigurationFileException | ArchitectureExtractorException | ArchitectureBuilderException
-					| IOException | InterruptedException e) {
+					| IOException | InterruptedException | SolverUnknownException e) {
 				System.out.println(ERROR_PREFIX + " : " + e.getMessage());
 				System.exit(0);
 			}
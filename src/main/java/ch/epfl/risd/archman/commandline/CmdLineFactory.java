@@ -1,11 +1,15 @@
 package ch.epfl.risd.archman.commandline;
 
+import ch.epfl.risd.archman.solver.ArchitectureStyleSolver;
+import ch.epfl.risd.archman.solver.SolverOptions;
 import jcmdline.BooleanParam;
 import jcmdline.CmdLineException;
 import jcmdline.CmdLineHandler;
 import jcmdline.FileParam;
 import jcmdline.HelpCmdLineHandler;
+import jcmdline.IntParam;
 import jcmdline.Parameter;
+import jcmdline.StringParam;
 import jcmdline.VersionCmdLineHandler;
 
 /**
@@ -30,6 +34,20 @@ public class CmdLineFactory {
 	private static final String helpBipOutput = "Path to BIP Output file";
 
 	private static final String helpConfOutput = "Path to Configuration Output file";
+
+	private static final String helpSolver = "Backend for the cardinality constraints, z3 (default) or bounded";
+
+	private static final String helpSolverCache = "Directory where the solutions of the cardinality constraints are cached";
+
+	private static final String helpSolverTimeout = "Time limit of one cardinality solve in milliseconds, 0 for no limit (default)";
+
+	private static final String helpSolverRlimit = "Resource limit of one cardinality solve, 0 for no limit (default)";
+
+	private static final String helpSolverMemory = "Memory limit of one cardinality solve in megabytes, 0 for no limit (default)";
+
+	private static final String helpDryRun = "Only predict the size of the instance, without creating it";
+
+	private static final String helpSolutions = "Number of cardinality solutions to instantiate, each in its own output files (default 1)";
 	/* Tool specific description */
 	private static final String helpText = "Architecture Manipulation Tool";
 	private static final String cmdLineTool = "java -jar /target/bip-am.jar";
@@ -44,6 +62,9 @@ public class CmdLineFactory {
 	/* Invisible flag for testing */
 	private BooleanParam testing;
 
+	/* Dry run flag for the instantiation */
+	private BooleanParam dryRun;
+
 	/* First Configuration File */
 	private FileParam confFile1;
 
@@ -56,6 +77,20 @@ public class CmdLineFactory {
 	/* Output Configuration File */
 	private FileParam outputConf;
 
+	/* Backend for the cardinality constraints */
+	private StringParam solver;
+
+	/* Cache directory for the cardinality solutions */
+	private FileParam solverCache;
+
+	/* Number of cardinality solutions to instantiate */
+	private IntParam solutions;
+
+	/* Limits of one cardinality solve */
+	private IntParam solverTimeout;
+	private IntParam solverRlimit;
+	private IntParam solverMemory;
+
 	/* Command Line Handler */
 	private CmdLineHandler cmdLineHandler;
 
@@ -84,12 +119,28 @@ public class CmdLineFactory {
 		this.composition = new BooleanParam("composition", helpComposition);
 		this.testing = new BooleanParam("test", helpTesting);
 		this.testing.setHidden(true);
+		this.dryRun = new BooleanParam("dry_run", helpDryRun);
+
+		/* Initialize String Parameters */
+		this.solver = new StringParam("solver", helpSolver,
+				new String[] { ArchitectureStyleSolver.Z3_SOLVER, ArchitectureStyleSolver.BOUNDED_SOLVER },
+				StringParam.OPTIONAL);
+		this.solverCache = new FileParam("solver_cache", helpSolverCache, FileParam.NO_ATTRIBUTES, FileParam.OPTIONAL,
+				!FileParam.MULTI_VALUED);
+
+		/* Initialize Integer Parameters */
+		this.solutions = new IntParam("solutions", helpSolutions, 1, Integer.MAX_VALUE, IntParam.OPTIONAL);
+		this.solverTimeout = new IntParam("solver_timeout", helpSolverTimeout, 0, Integer.MAX_VALUE,
+				IntParam.OPTIONAL);
+		this.solverRlimit = new IntParam("solver_rlimit", helpSolverRlimit, 0, Integer.MAX_VALUE, IntParam.OPTIONAL);
+		this.solverMemory = new IntParam("solver_memory", helpSolverMemory, 0, Integer.MAX_VALUE, IntParam.OPTIONAL);
 
 		/* Set initial values */
 		try {
 			instantiation.setValue(false);
 			composition.setValue(false);
 			testing.setValue(false);
+			dryRun.setValue(false);
 		} catch (CmdLineException e) {
 			e.printStackTrace();
 			System.err.println("ERROR while initializing! System will now exit...");
@@ -98,12 +149,19 @@ public class CmdLineFactory {
 
 		this.cmdLineHandler = new VersionCmdLineHandler("V 1.0",
 				(CmdLineHandler) new HelpCmdLineHandler(helpText, cmdLineTool, cmdLineDescription,
-						new Parameter[] { this.instantiation, this.composition, this.testing },
+						new Parameter[] { this.instantiation, this.composition, this.testing, this.dryRun, this.solver,
+								this.solverCache, this.solverTimeout, this.solverRlimit, this.solverMemory,
+								this.solutions },
 						new Parameter[] { this.confFile1, this.confFile2, this.outputBIP, this.outputConf }));
 
 		this.cmdLineHandler.parse(args);
 	}
 
+	/* A limit that was not given is 0, meaning no limit */
+	private static int getLimit(IntParam limit) {
+		return limit.isSet() ? limit.getValue() : 0;
+	}
+
 	/* Getters for the parameters at the command line interface */
 
 	public boolean getInstantiation() {
@@ -118,6 +176,27 @@ public class CmdLineFactory {
 		return testing.getValue();
 	}
 
+	public boolean getDryRun() {
+		return dryRun.getValue();
+	}
+
+	public String getSolver() {
+		/* A preset value would make jcmdline reject the option as given twice */
+		return solver.isSet() ? solver.getValue() : ArchitectureStyleSolver.Z3_SOLVER;
+	}
+
+	public SolverOptions getSolverOptions() {
+		return new SolverOptions(getLimit(solverTimeout), getLimit(solverRlimit), getLimit(solverMemory));
+	}
+
+	public String getSolverCache() {
+		return solverCache.isSet() ? solverCache.getValue().getAbsolutePath() : null;
+	}
+
+	public int getSolutions() {
+		return solutions.isSet() ? solutions.getValue() : 1;
+	}
+
 	public String getConfFile1() {
 		return confFile1.getValue().getAbsolutePath();
 	}
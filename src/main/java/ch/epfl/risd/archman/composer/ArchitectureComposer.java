@@ -248,7 +248,7 @@ public class ArchitectureComposer {
 		for (String interaction : interactions) {
 
 			if (interaction.equals("")) {
-				instance.getInteractions().add("");
+				instance.addEmptyInteraction();
 				continue;
 			}
 
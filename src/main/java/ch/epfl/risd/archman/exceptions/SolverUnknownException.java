@@ -0,0 +1,9 @@
+package ch.epfl.risd.archman.exceptions;
+
+public class SolverUnknownException extends Exception {
+
+	public SolverUnknownException(String reason) {
+		super("Check UNKNOWN: " + reason);
+	}
+
+}
@@ -4,4 +4,8 @@ public class TestFailException extends Exception {
 	public TestFailException() {
 		super("Check FAILED");
 	}
+
+	public TestFailException(String message) {
+		super(message);
+	}
 };
\ No newline at end of file
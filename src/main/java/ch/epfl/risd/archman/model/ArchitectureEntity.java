@@ -25,9 +25,12 @@ public abstract class ArchitectureEntity {
 	/* VARIABLES */
 	/***************************************************************************/
 
-	/* The model of the BIP file representing this entity */
+	/* The model of the BIP file representing this entity, null until loaded */
 	protected BIPFileModel bipFileModel;
 
+	/* The path to the BIP file, which is parsed at the first use of the model */
+	protected String pathToBipFile;
+
 	/* The model of the configuration file for this entity */
 	protected ConfigurationFileModel archEntityConfigFile;
 
@@ -68,7 +71,7 @@ public abstract class ArchitectureEntity {
 
 		/* Iterate over the set of component instance names */
 		for (String componentInstanceName : componentInstanceNames) {
-			if (!BIPChecker.componentExists(this.bipFileModel, componentInstanceName)) {
+			if (!BIPChecker.componentExists(this.getBipFileModel(), componentInstanceName)) {
 				throw new ComponentNotFoundException(
 						"The component with name " + componentInstanceName + "does not exist in the BIP file");
 			}
@@ -94,7 +97,7 @@ public abstract class ArchitectureEntity {
 			String[] tokens = fullPortName.split("\\.");
 			String portInstanceName = tokens[1];
 			String componentInstanceName = tokens[0];
-			if (!BIPChecker.portExists(this.bipFileModel, portInstanceName, componentInstanceName)) {
+			if (!BIPChecker.portExists(this.getBipFileModel(), portInstanceName, componentInstanceName)) {
 				throw new PortNotFoundException("The port with name " + portInstanceName
 						+ " in the component with name " + componentInstanceName + " does not exist");
 			}
@@ -107,7 +110,9 @@ public abstract class ArchitectureEntity {
 
 	/**
 	 * Constructor for this class, when the configuration file is having values
-	 * for the required parameters where the path to the BIP file is absolute
+	 * for the required parameters where the path to the BIP file is absolute.
+	 * Only the configuration file is read, the BIP file is parsed at the first
+	 * call of {@link #getBipFileModel()}.
 	 * 
 	 * @param pathToConfFile
 	 *            - absolute path to the configuration file
@@ -120,7 +125,7 @@ public abstract class ArchitectureEntity {
 	public ArchitectureEntity(String pathToConfFile, List<String> requiredParams)
 			throws ConfigurationFileException, ComponentNotFoundException, ArchitectureExtractorException {
 		this.archEntityConfigFile = new ConfigurationFileModel(pathToConfFile, requiredParams);
-		this.bipFileModel = new BIPFileModel(this.archEntityConfigFile.getParameters().get(ConstantFields.PATH_PARAM));
+		this.pathToBipFile = this.archEntityConfigFile.getParameters().get(ConstantFields.PATH_PARAM);
 		this.parseParameters();
 		// this.validate();
 	}
@@ -128,7 +133,8 @@ public abstract class ArchitectureEntity {
 	/**
 	 * Constructor for this class, when the configuration file is having values
 	 * for the required parameters, where the path to the BIP file is relative,
-	 * so the prefix must be given.
+	 * so the prefix must be given. Only the configuration file is read, the BIP
+	 * file is parsed at the first call of {@link #getBipFileModel()}.
 	 * 
 	 * @param prefixToBip
 	 *            - the prefix before the relative path of the BIP file
@@ -143,8 +149,7 @@ public abstract class ArchitectureEntity {
 	public ArchitectureEntity(String prefixToBip, String pathToConfFile, List<String> requiredParams)
 			throws ConfigurationFileException, ComponentNotFoundException, ArchitectureExtractorException {
 		this.archEntityConfigFile = new ConfigurationFileModel(pathToConfFile, requiredParams);
-		this.bipFileModel = new BIPFileModel(
-				prefixToBip + this.archEntityConfigFile.getParameters().get(ConstantFields.PATH_PARAM));
+		this.pathToBipFile = prefixToBip + this.archEntityConfigFile.getParameters().get(ConstantFields.PATH_PARAM);
 		this.parseParameters();
 		// this.validate();
 	}
@@ -179,7 +184,7 @@ public abstract class ArchitectureEntity {
 	 */
 	public void generateBipFile(String pathToBipFile) throws FileNotFoundException {
 		this.archEntityConfigFile.getParameters().put(ConstantFields.PATH_PARAM, pathToBipFile);
-		this.bipFileModel.createFile(pathToBipFile);
+		this.getBipFileModel().createFile(pathToBipFile);
 	}
 
 	/**
@@ -192,10 +197,34 @@ public abstract class ArchitectureEntity {
 	}
 
 	/**
-	 * @return the BIP file model of the Architecture Entity
+	 * @return the BIP file model of the Architecture Entity, where the BIP file
+	 *         is parsed if it is not yet
 	 */
 	public BIPFileModel getBipFileModel() {
+		/* Parse the BIP file at the first use */
+		if (this.bipFileModel == null) {
+			this.bipFileModel = new BIPFileModel(this.pathToBipFile);
+		}
+
 		return bipFileModel;
 	}
 
+	/**
+	 * @param bipFileModel
+	 *            - the BIP file model of the Architecture Entity, used instead
+	 *            of parsing the BIP file, such as a copy of an already parsed
+	 *            model
+	 */
+	public void setBipFileModel(BIPFileModel bipFileModel) {
+		this.bipFileModel = bipFileModel;
+	}
+
+	/**
+	 * @return true if the BIP file model is already created, false if the BIP
+	 *         file is not yet parsed
+	 */
+	public boolean isBipFileModelLoaded() {
+		return this.bipFileModel != null;
+	}
+
 }
@@ -4,13 +4,27 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.bpodgursky.jbool_expressions.And;
 import com.bpodgursky.jbool_expressions.Expression;
@@ -25,6 +39,8 @@ import ch.epfl.risd.archman.exceptions.ArchitectureExtractorException;
 import ch.epfl.risd.archman.exceptions.ConfigurationFileException;
 import ch.epfl.risd.archman.exceptions.PortNotFoundException;
 import ch.epfl.risd.archman.helper.HelperMethods;
+import ujf.verimag.bip.Core.Behaviors.ComponentType;
+import ujf.verimag.bip.Core.Interactions.Connector;
 
 /**
  * This class represents one instance of the architecture when the parameter
@@ -44,15 +60,33 @@ public class ArchitectureInstance extends ArchitectureEntity {
 	/* List of operands for this Architecture Instance */
 	private Set<String> operands;
 
-	/* List of ports for this Architecture Instance */
-	private Set<String> ports;
+	/* List of ports for this Architecture Instance, by their ids in the port table */
+	private Set<Integer> ports;
+
+	/* Table of all port names used in this instance, indexed by the port id */
+	private List<String> portTable;
+
+	/* The id of every port name in the port table */
+	private Map<String, Integer> portIds;
 
 	/* List of interactions for this Architecture Instance */
-	private Set<String> interactions;
+	private Set<InteractionTuple> interactions;
 
-	/* The characteristic predicate for this Architecture instance */
+	/*
+	 * The characteristic predicate for this Architecture instance, calculated
+	 * on the first access. It is null when it has to be calculated again.
+	 */
 	private String characteristicPredicate;
 
+	/* The reverse indexes over this instance, built on the first access */
+	private ArchitectureInstanceIndex index;
+
+	/* The synthesized coordinator types, by their structural signature */
+	private Map<String, ComponentType> synthesizedTypes = new HashMap<String, ComponentType>();
+
+	/* The mappings from which the connectors were created, by connector tuple */
+	private Map<String, ConnectorMappingTable> connectorMappingTables = new HashMap<String, ConnectorMappingTable>();
+
 	/****************************************************************************/
 	/* PRIVATE(UTILITY) METHODS */
 	/****************************************************************************/
@@ -70,13 +104,87 @@ public class ArchitectureInstance extends ArchitectureEntity {
 		this.operands = new HashSet<String>(Arrays.asList(HelperMethods.splitConcatenatedString(
 				this.archEntityConfigFile.getParameters().get(ConstantFields.OPERANDS_PARAM), delim)));
 
+		/* Initialize the port table */
+		this.portTable = new ArrayList<String>();
+		this.portIds = new HashMap<String, Integer>();
+
 		/* Get all ports */
-		this.ports = new HashSet<String>(Arrays.asList(HelperMethods.splitConcatenatedString(
-				this.archEntityConfigFile.getParameters().get(ConstantFields.PORTS_PARAM), delim)));
+		this.ports = new LinkedHashSet<Integer>();
+		for (String port : HelperMethods.splitConcatenatedString(
+				this.archEntityConfigFile.getParameters().get(ConstantFields.PORTS_PARAM), delim)) {
+			this.ports.add(this.internPort(port));
+		}
 
 		/* Get all interactions */
-		this.interactions = new HashSet<String>(Arrays.asList(HelperMethods.splitConcatenatedString(
-				this.archEntityConfigFile.getParameters().get(ConstantFields.INTERACTIONS_PARAM), delim)));
+		this.interactions = new LinkedHashSet<InteractionTuple>();
+		for (String interaction : HelperMethods.splitConcatenatedString(
+				this.archEntityConfigFile.getParameters().get(ConstantFields.INTERACTIONS_PARAM), delim)) {
+			this.interactions.add(this.toInteractionTuple(interaction));
+		}
+
+		/* The strings are generated again only when the file is written */
+		this.archEntityConfigFile.getParameters().put(ConstantFields.PORTS_PARAM, "");
+		this.archEntityConfigFile.getParameters().put(ConstantFields.INTERACTIONS_PARAM, "");
+	}
+
+	/**
+	 * Method to get the id of the port in the port table, where the port is
+	 * added in the table if it is not there.
+	 */
+	private int internPort(String portName) {
+		Integer id = this.portIds.get(portName);
+
+		if (id == null) {
+			id = this.portTable.size();
+			this.portTable.add(portName);
+			this.portIds.put(portName, id);
+		}
+
+		return id;
+	}
+
+	/**
+	 * Method to transform the interaction from the string format, where the
+	 * ports are separated by space and the trigger ports end with an
+	 * apostrophe, to the compact format.
+	 */
+	private InteractionTuple toInteractionTuple(String interaction) {
+		return this.toInteractionTuple(interaction, true);
+	}
+
+	/**
+	 * Method to transform the interaction from the string format to the
+	 * compact format. When the unknown ports are not interned, null is
+	 * returned if the interaction has a port that is not in the port table.
+	 */
+	private InteractionTuple toInteractionTuple(String interaction, boolean internUnknown) {
+		/* The empty interaction */
+		if (interaction.equals("")) {
+			return new InteractionTuple(new int[0], new boolean[0]);
+		}
+
+		String[] interactionPorts = interaction.split(" ");
+		int[] ids = new int[interactionPorts.length];
+		boolean[] triggers = new boolean[interactionPorts.length];
+
+		for (int i = 0; i < interactionPorts.length; i++) {
+			String port = interactionPorts[i];
+			triggers[i] = port.charAt(port.length() - 1) == '\'';
+			String portName = triggers[i] ? port.substring(0, port.length() - 1) : port;
+
+			if (internUnknown) {
+				ids[i] = this.internPort(portName);
+			} else {
+				/* An unknown port can not be part of any stored interaction */
+				Integer id = this.portIds.get(portName);
+				if (id == null) {
+					return null;
+				}
+				ids[i] = id;
+			}
+		}
+
+		return new InteractionTuple(ids, triggers);
 	}
 
 	@Override
@@ -86,7 +194,7 @@ public class ArchitectureInstance extends ArchitectureEntity {
 		/* Validate operands */
 		this.validateComponents(this.operands);
 		/* Validate ports */
-		this.validatePorts(this.ports);
+		this.validatePorts(this.getPorts());
 	}
 
 	/****************************************************************************/
@@ -112,9 +220,11 @@ public class ArchitectureInstance extends ArchitectureEntity {
 		/* Initialize parameters values */
 		this.coordinators = new HashSet<String>();
 		this.operands = new HashSet<String>();
-		this.ports = new HashSet<String>();
-		this.interactions = new HashSet<String>();
-		this.characteristicPredicate = "";
+		this.ports = new LinkedHashSet<Integer>();
+		this.portTable = new ArrayList<String>();
+		this.portIds = new HashMap<String, Integer>();
+		this.interactions = new LinkedHashSet<InteractionTuple>();
+		this.characteristicPredicate = null;
 	}
 
 	/**
@@ -137,12 +247,8 @@ public class ArchitectureInstance extends ArchitectureEntity {
 		super(pathToConfFile, ConstantFields.architectureInstanceRequiredParams);
 
 		if (emptyInteraction) {
-			this.interactions.add("");
+			this.addEmptyInteraction();
 		}
-
-		/* Calculate the characteristic predicate */
-		this.characteristicPredicate = ArchitectureInstance.calculateCharacteristicPredicate(this.interactions,
-				this.ports);
 	}
 
 	public ArchitectureInstance(String prefixToBip, String pathToConfFile, boolean emptyInteraction)
@@ -151,12 +257,8 @@ public class ArchitectureInstance extends ArchitectureEntity {
 		super(prefixToBip, pathToConfFile, ConstantFields.architectureInstanceRequiredParams);
 
 		if (emptyInteraction) {
-			this.interactions.add("");
+			this.addEmptyInteraction();
 		}
-
-		/* Calculate the characteristic predicate */
-		this.characteristicPredicate = ArchitectureInstance.calculateCharacteristicPredicate(this.interactions,
-				this.ports);
 	}
 
 	/**
@@ -214,187 +316,278 @@ public class ArchitectureInstance extends ArchitectureEntity {
 	 * @return the list of terms in the characteristic predicate
 	 */
 	public static String calculateCharacteristicPredicate(Set<String> interactions, Set<String> ports) {
-		/* List of predicate terms */
-		List<String> predicateTerms = new LinkedList<String>();
+		/* The ids of the ports, in the order of the ports */
+		Map<String, Integer> portIds = new HashMap<String, Integer>();
+		for (String port : ports) {
+			portIds.put(port, portIds.size());
+		}
+
+		/* The resulting characteristic predicate */
+		StringBuilder predicate = new StringBuilder();
+
+		/* The ports of the current generated interaction */
+		BitSet genPorts = new BitSet(portIds.size());
 
 		/* Iterate the interactions */
 		for (String interaction : interactions) {
+			/* Get the possible interactions, as given by the causal tree */
+			List<List<String>> generatedInteractions;
 			if (!interaction.equals("")) {
-				/* Connector as in the Algebra of Connectors */
-				ch.epfl.risd.ac.model.ConnectorNode connectorNode = ch.epfl.risd.ac.model.Connector
-						.FromString(interaction);
-				ch.epfl.risd.ac.model.Connector connector = new ch.epfl.risd.ac.model.Connector(new HashSet(),
-						connectorNode);
-				/* Transform it to the Causal Tree */
-				ch.epfl.risd.ac.model.CausalTree causalTree = connector.toCausalTree();
-				/* Get the possible interactions */
-				List<String> generatedInteractions = causalTree.getInteractions();
-
-				/* Iterate over the generated interactions */
-				for (String genInt : generatedInteractions) {
-					/* The current term in the predicate */
-					StringBuilder predicateTerm = new StringBuilder();
-
-					/* Iterate over the ports */
-					for (String port : ports) {
-						/* If the generated interaction contains the port */
-						if (genInt.contains(port)) {
-							predicateTerm.append(port);
-						} else {
-							predicateTerm.append("!" + port);
-						}
-						/* Append AND */
-						predicateTerm.append("&");
-					}
-
-					/* Cut the last & */
-					predicateTerm.setLength(predicateTerm.length() - 1);
-					/* Add the predicate term in the final predicate */
-					predicateTerms.add(predicateTerm.toString());
-				}
+				generatedInteractions = InteractionExpansionCache.expand(interaction);
 			}
 			/* If we have the empty interaction */
 			else {
-				/* The current term in the predicate */
-				StringBuilder predicateTerm = new StringBuilder();
+				generatedInteractions = Collections.singletonList(Collections.<String> emptyList());
+			}
 
-				for (String port : ports) {
-					predicateTerm.append("!" + port);
-					predicateTerm.append("&");
+			/* Iterate over the generated interactions */
+			for (List<String> genInt : generatedInteractions) {
+				genPorts.clear();
+				for (String port : genInt) {
+					Integer portId = portIds.get(port);
+					if (portId != null) {
+						genPorts.set(portId);
+					}
 				}
-				/* Cut the last & */
-				predicateTerm.setLength(predicateTerm.length() - 1);
-				/* Add the predicate term in the final predicate */
-				predicateTerms.add(predicateTerm.toString());
-			}
-		}
 
-		/* The resulting characteristic predicate */
-		StringBuilder predicate = new StringBuilder();
+				/* The current term in the predicate, over all ports */
+				int portId = 0;
+				for (String port : ports) {
+					/* If the generated interaction does not contain the port */
+					if (!genPorts.get(portId++)) {
+						predicate.append("!");
+					}
+					predicate.append(port).append("&");
+				}
 
-		/* Iterate over predicate terms */
-		for (String pt : predicateTerms) {
-			predicate.append(pt);
-			predicate.append("|");
+				/* Replace the last & with | */
+				if (!ports.isEmpty()) {
+					predicate.setLength(predicate.length() - 1);
+				}
+				predicate.append("|");
+			}
 		}
 
 		/* Cut the last | */
-		predicate.setLength(predicate.length() - 1);
+		if (predicate.length() > 0) {
+			predicate.setLength(predicate.length() - 1);
+		}
 
 		return predicate.toString();
 	}
 
-	/* Both instances have ports and predicates */
-	public static Set<String> calculateInteractionsFromInstances(ArchitectureInstance instance1,
-			ArchitectureInstance instance2) {
-
-		/* Union of the ports */
-		Set<String> union = new HashSet<String>();
-		Set<String> portsInstance1 = instance1.getPorts();
-		Set<String> portsInstance2 = instance2.getPorts();
-
-		union.addAll(portsInstance1);
-		union.addAll(portsInstance2);
+	/**
+	 * Method to calculate the characteristic predicate of this instance from
+	 * the interactions in the compact form. Every interaction is expanded
+	 * through its causal tree, and each generated interaction gives one term
+	 * over the ports of the instance.
+	 * 
+	 * @return the characteristic predicate
+	 */
+	protected String calculateCharacteristicPredicate() {
+		/* The resulting characteristic predicate */
+		StringBuilder predicate = new StringBuilder();
 
-		/* Map the ports, to not have dot */
-		Hashtable<String, String> mapPorts = new Hashtable<String, String>();
-		Hashtable<String, String> inverseMapPorts = new Hashtable<String, String>();
-		String prefix = "b";
-		int counter = 1;
+		/* The ports of the current generated interaction */
+		BitSet genPorts = new BitSet(this.portTable.size());
 
-		/* All ports are unique */
-		for (String s : union) {
-			mapPorts.put(s, prefix + String.valueOf(counter));
-			inverseMapPorts.put(prefix + String.valueOf(counter), s);
-			counter++;
-		}
+		/* Iterate the interactions */
+		for (InteractionTuple interaction : this.interactions) {
+			/* Iterate over the generated interactions of the causal tree */
+			for (int[] genInt : InteractionExpansionCache.expand(interaction)) {
+				genPorts.clear();
+				for (int portId : genInt) {
+					genPorts.set(portId);
+				}
 
-		/* Calculate new ports */
-		Set<String> newPortInstance1 = new HashSet<String>();
-		Set<String> newPortInstance2 = new HashSet<String>();
+				/* The current term in the predicate, over all ports */
+				for (int portId : this.ports) {
+					/* If the generated interaction does not contain the port */
+					if (!genPorts.get(portId)) {
+						predicate.append("!");
+					}
+					predicate.append(this.portTable.get(portId)).append("&");
+				}
 
-		for (String s : portsInstance1) {
-			newPortInstance1.add(mapPorts.get(s));
+				/* Replace the last & with | */
+				if (!this.ports.isEmpty()) {
+					predicate.setLength(predicate.length() - 1);
+				}
+				predicate.append("|");
+			}
 		}
 
-		for (String s : portsInstance2) {
-			newPortInstance2.add(mapPorts.get(s));
+		/* Cut the last | */
+		if (predicate.length() > 0) {
+			predicate.setLength(predicate.length() - 1);
 		}
 
-		/* Calculate new interactions */
-		Set<String> interactionsInstance1 = instance1.getInteractions();
-		Set<String> interactionsInstance2 = instance2.getInteractions();
+		return predicate.toString();
+	}
 
-		Set<String> newInteractions1 = new HashSet<String>();
-		Set<String> newInteractions2 = new HashSet<String>();
+	/**
+	 * Method to expand every interaction of this instance to all of the
+	 * interactions that it allows, as given by its causal tree. Every expanded
+	 * interaction is given as the set of ports taking part in it.
+	 * 
+	 * @return the set of expanded interactions
+	 */
+	protected Set<Set<String>> expandInteractions() {
+		Set<Set<String>> result = new LinkedHashSet<Set<String>>();
 
-		for (String interaction : interactionsInstance1) {
-			String[] interactionPorts = interaction.split(" ");
-			StringBuilder sb = new StringBuilder();
+		/* Iterate the interactions */
+		for (InteractionTuple interaction : this.interactions) {
+			/* Iterate over the generated interactions of the causal tree */
+			for (int[] genInt : InteractionExpansionCache.expand(interaction)) {
+				/* Only the ports of the instance are taken */
+				Set<String> expanded = new HashSet<String>();
+				for (int portId : genInt) {
+					if (this.ports.contains(portId)) {
+						expanded.add(this.portTable.get(portId));
+					}
+				}
 
-			for (String intPort : interactionPorts) {
-				sb.append(mapPorts.get(intPort)).append(" ");
+				result.add(expanded);
 			}
-			sb.setLength(sb.length() - 1);
-			newInteractions1.add(sb.toString());
 		}
 
-		for (String interaction : interactionsInstance2) {
-			String[] interactionPorts = interaction.split(" ");
-			StringBuilder sb = new StringBuilder();
+		return result;
+	}
 
-			for (String intPort : interactionPorts) {
-				sb.append(mapPorts.get(intPort)).append(" ");
+	/**
+	 * Method to group the expanded interactions of one instance by the shared
+	 * ports taking part in them
+	 * 
+	 * @param expandedInteractions
+	 *            - the expanded interactions of the instance
+	 * @param sharedPorts
+	 *            - the ports shared by both instances
+	 * @return map from the shared ports to the interactions with exactly those
+	 *         shared ports
+	 */
+	protected static Map<Set<String>, List<Set<String>>> clusterInteractions(
+			Set<Set<String>> expandedInteractions, Set<String> sharedPorts) {
+		Map<Set<String>, List<Set<String>>> result = new LinkedHashMap<Set<String>, List<Set<String>>>();
+
+		for (Set<String> interaction : expandedInteractions) {
+			/* The shared ports of the interaction are the key of the cluster */
+			Set<String> key = new HashSet<String>(interaction);
+			key.retainAll(sharedPorts);
+
+			List<Set<String>> cluster = result.get(key);
+			if (cluster == null) {
+				cluster = new ArrayList<Set<String>>();
+				result.put(key, cluster);
 			}
-			sb.setLength(sb.length() - 1);
-			newInteractions2.add(sb.toString());
+
+			cluster.add(interaction);
 		}
 
-		/* New characteristic predicates */
-		String newPredicate1 = ArchitectureInstance.calculateCharacteristicPredicate(newInteractions1,
-				newPortInstance1);
-		String newPredicate2 = ArchitectureInstance.calculateCharacteristicPredicate(newInteractions2,
-				newPortInstance2);
+		return result;
+	}
 
-		/* Merge predicates */
-		String mergedPredicate = "(" + newPredicate1 + ") & (" + newPredicate2 + ")";
-		Expression<String> nonStandard = ExprParser.parse(mergedPredicate);
-		Expression<String> dnf = RuleSet.toDNF(nonStandard);
+	/**
+	 * Method to calculate the interactions of the composition of two instances.
+	 * An interaction of the first instance and an interaction of the second
+	 * one can be joined iff they agree on the ports shared by both instances,
+	 * which is the conjunction of the two characteristic predicates. The
+	 * interactions are partitioned in clusters by the shared ports they
+	 * contain, and every cluster is composed independently and in parallel,
+	 * such that interactions that can never be joined are never multiplied.
+	 * 
+	 * @param instance1
+	 *            - the first architecture instance
+	 * @param instance2
+	 *            - the second architecture instance
+	 * @return the set of interactions of the composition
+	 */
+	public static Set<String> calculateInteractionsFromInstances(ArchitectureInstance instance1,
+			ArchitectureInstance instance2) {
 
-		Expression<String>[] expressions = ((Or<String>) dnf).expressions;
+		/* The ports in both instances */
+		Set<String> sharedPorts = new HashSet<String>(instance1.getPorts());
+		sharedPorts.retainAll(instance2.getPorts());
 
-		StringBuilder temp = new StringBuilder();
+		/* The clusters in both instances */
+		Map<Set<String>, List<Set<String>>> clusters1 = clusterInteractions(instance1.expandInteractions(),
+				sharedPorts);
+		Map<Set<String>, List<Set<String>>> clusters2 = clusterInteractions(instance2.expandInteractions(),
+				sharedPorts);
 
-		for (int i = 0; i < expressions.length; i++) {
-			temp.append(expressions[i].toString().subSequence(1, expressions[i].toString().length() - 1));
-			temp.append("|");
-		}
-		temp.setLength(temp.length() - 1);
+		/* Compose each cluster present in both instances in parallel */
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		List<Future<List<String>>> futures = new LinkedList<Future<List<String>>>();
 
-		/* Calculate new interactions */
-		Set<String> newInteractions = ArchitectureInstance.calculateInteractions(temp.toString());
+		try {
+			for (Map.Entry<Set<String>, List<Set<String>>> entry : clusters1.entrySet()) {
+				final List<Set<String>> cluster1 = entry.getValue();
+				final List<Set<String>> cluster2 = clusters2.get(entry.getKey());
 
-		Set<String> resultInteractions = new HashSet<String>();
+				/* No interaction of the other instance agrees on these ports */
+				if (cluster2 == null) {
+					continue;
+				}
 
-		for (String interaction : newInteractions) {
+				futures.add(executor.submit(new Callable<List<String>>() {
+					@Override
+					public List<String> call() {
+						return composeCluster(cluster1, cluster2);
+					}
+				}));
+			}
 
-			if (interaction.equals("")) {
-				resultInteractions.add("");
-				continue;
+			/* Combine the results in the order of the clusters */
+			Set<String> resultInteractions = new LinkedHashSet<String>();
+			for (Future<List<String>> future : futures) {
+				resultInteractions.addAll(future.get());
 			}
 
-			String[] interactionPorts = interaction.split(" ");
-			StringBuilder sb = new StringBuilder();
+			return resultInteractions;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
 
-			for (String intPort : interactionPorts) {
-				sb.append(inverseMapPorts.get(intPort));
-				sb.append(" ");
+	/**
+	 * Method to compose one cluster, i.e. to join every interaction of the
+	 * first instance with every interaction of the second one, where all of
+	 * them contain the same shared ports.
+	 * 
+	 * @param cluster1
+	 *            - the interactions of the first instance in the cluster
+	 * @param cluster2
+	 *            - the interactions of the second instance in the cluster
+	 * @return the joined interactions
+	 */
+	protected static List<String> composeCluster(List<Set<String>> cluster1, List<Set<String>> cluster2) {
+		List<String> result = new ArrayList<String>(cluster1.size() * cluster2.size());
+
+		for (Set<String> interaction1 : cluster1) {
+			for (Set<String> interaction2 : cluster2) {
+				/* Sorted, to have the same string for the same interaction */
+				Set<String> joined = new TreeSet<String>(interaction1);
+				joined.addAll(interaction2);
+
+				StringBuilder sb = new StringBuilder();
+				for (String port : joined) {
+					sb.append(port).append(" ");
+				}
+
+				/* Cut the last space, the empty interaction stays empty */
+				if (sb.length() > 0) {
+					sb.setLength(sb.length() - 1);
+				}
+
+				result.add(sb.toString());
 			}
-			sb.setLength(sb.length() - 1);
-			resultInteractions.add(sb.toString());
 		}
 
-		return resultInteractions;
+		return result;
 	}
 
 	/**
@@ -426,28 +619,61 @@ public class ArchitectureInstance extends ArchitectureEntity {
 	}
 
 	/**
-	 * Method to add the port instance name to both, the list of ports and the
-	 * parameters
+	 * Method to add the port instance name to the list of ports. The parameter
+	 * is generated when the configuration file is written
 	 * 
 	 * @param portInstanceName
 	 *            - the name of the port instance
 	 */
 	public void addPort(String portInstanceName) {
-		/* Add to the list */
-		this.ports.add(portInstanceName);
-		/* Add the parameter */
-		this.archEntityConfigFile.addToParameters(ConstantFields.PORTS_PARAM, portInstanceName);
+		/* Add to the list, the name is kept only once in the port table */
+		this.ports.add(this.internPort(portInstanceName));
+		/* Update the index */
+		if (this.index != null) {
+			this.index.portAdded(portInstanceName);
+		}
+		/* The predicate has to be calculated again */
+		this.characteristicPredicate = null;
 	}
 
-	public void removePort(String portInstanceName) throws PortNotFoundException {
+	/**
+	 * Method to remove the coordinator instance name from both, the list of
+	 * coordinators and the parameters
+	 * 
+	 * @param coordinatorInstanceName
+	 *            - the name of the coordinator component instance
+	 */
+	public void removeCoordinator(String coordinatorInstanceName) {
+		if (this.coordinators.remove(coordinatorInstanceName)) {
+			this.archEntityConfigFile.removeFromParameters(ConstantFields.COORDINATORS_PARAM,
+					coordinatorInstanceName);
+		}
+	}
 
-		for (String p : ports) {
-			System.out.println(p);
+	/**
+	 * Method to remove the operand instance name from both, the list of
+	 * operands and the parameters
+	 * 
+	 * @param operandInstanceName
+	 *            - the name of the operand component instance
+	 */
+	public void removeOperand(String operandInstanceName) {
+		if (this.operands.remove(operandInstanceName)) {
+			this.archEntityConfigFile.removeFromParameters(ConstantFields.OPERANDS_PARAM, operandInstanceName);
 		}
+	}
 
-		if (ports.contains(portInstanceName)) {
-			this.ports.remove(portInstanceName);
-			this.archEntityConfigFile.removeFromParameters(ConstantFields.PORTS_PARAM, portInstanceName);
+	public void removePort(String portInstanceName) throws PortNotFoundException {
+
+		Integer portId = this.portIds.get(portInstanceName);
+
+		if (portId != null && this.ports.remove(portId)) {
+			/* Update the index */
+			if (this.index != null) {
+				this.index.portRemoved(portInstanceName);
+			}
+			/* The predicate has to be calculated again */
+			this.characteristicPredicate = null;
 
 		} else {
 			throw new PortNotFoundException(
@@ -457,23 +683,155 @@ public class ArchitectureInstance extends ArchitectureEntity {
 	}
 
 	/**
-	 * Method to add an interaction to both, the list of interactions and the
-	 * parameters
+	 * Method to add an interaction to the list of interactions. The parameter
+	 * is generated when the configuration file is written
 	 * 
 	 * @param interactionName
 	 *            - the name of the port instance
 	 */
 	public void addInteraction(String interactionName) {
+		InteractionTuple interaction = this.toInteractionTuple(interactionName);
 		/* Add to the list */
-		this.interactions.add(interactionName);
-		/* Add the parameter */
-		this.archEntityConfigFile.addToParameters(ConstantFields.INTERACTIONS_PARAM, interactionName);
+		if (this.interactions.add(interaction) && this.index != null) {
+			/* Update the index */
+			this.index.interactionAdded(interaction);
+		}
+		/* The predicate has to be calculated again */
+		this.characteristicPredicate = null;
+	}
+
+	/**
+	 * Method to add the empty interaction in the list of interactions. The
+	 * empty interaction is not written in the configuration file.
+	 */
+	public void addEmptyInteraction() {
+		/* Add to the list */
+		this.interactions.add(this.toInteractionTuple(""));
+		/* The predicate has to be calculated again */
+		this.characteristicPredicate = null;
+	}
+
+	/**
+	 * Method to remove an interaction from the list of interactions
+	 * 
+	 * @param interactionName
+	 *            - the interaction to remove
+	 */
+	public void removeInteraction(String interactionName) {
+		/* Look up without interning, so the port table does not grow */
+		InteractionTuple interaction = this.toInteractionTuple(interactionName, false);
+
+		if (interaction != null && this.interactions.remove(interaction)) {
+			/* Update the index */
+			if (this.index != null) {
+				this.index.interactionRemoved(interaction);
+			}
+			/* The predicate has to be calculated again */
+			this.characteristicPredicate = null;
+		}
+	}
+
+	/**
+	 * Method to update the index after a connector instance is created in the
+	 * BIP system of this instance
+	 * 
+	 * @param connector
+	 *            - the new connector instance
+	 */
+	public void addConnector(Connector connector) {
+		if (this.index != null) {
+			this.index.connectorAdded(connector);
+		}
+	}
+
+	/**
+	 * Method to update the index after a connector instance is deleted from
+	 * the BIP system of this instance
+	 * 
+	 * @param connector
+	 *            - the deleted connector instance
+	 */
+	public void removeConnector(Connector connector) {
+		if (this.index != null) {
+			this.index.connectorRemoved(connector);
+		}
+	}
+
+	/**
+	 * The index is built on the first access and then kept up to date by the
+	 * methods that change this instance.
+	 * 
+	 * @return the reverse indexes over this Architecture Instance
+	 * @throws ArchitectureExtractorException
+	 */
+	public ArchitectureInstanceIndex getIndex() throws ArchitectureExtractorException {
+		if (index == null) {
+			index = new ArchitectureInstanceIndex(this);
+		}
+		return index;
+	}
+
+	/**
+	 * @param signature
+	 *            - the structural signature of the synthesized type
+	 * @return the synthesized type with the given signature, or null if there
+	 *         is no such type in the BIP system of this instance
+	 */
+	public ComponentType getSynthesizedType(String signature) {
+		ComponentType type = synthesizedTypes.get(signature);
+
+		/* The type is deleted from the system in the meantime */
+		if (type != null && type.eContainer() == null) {
+			synthesizedTypes.remove(signature);
+			return null;
+		}
+
+		return type;
+	}
+
+	/**
+	 * Method to remember the synthesized type under its structural signature
+	 * 
+	 * @param signature
+	 *            - the structural signature of the synthesized type
+	 * @param type
+	 *            - the synthesized type
+	 */
+	public void addSynthesizedType(String signature, ComponentType type) {
+		synthesizedTypes.put(signature, type);
+	}
+
+	/**
+	 * @param connectorInstanceName
+	 *            - the name of the connector instance of the connector tuple
+	 * @return the mappings from which the connector instances of the tuple
+	 *         were created, or null if they are not known
+	 */
+	public ConnectorMappingTable getConnectorMappingTable(String connectorInstanceName) {
+		return connectorMappingTables.get(connectorInstanceName);
+	}
+
+	/**
+	 * Method to remember the mappings from which the connector instances of
+	 * one connector tuple were created
+	 * 
+	 * @param table
+	 *            - the compiled mappings of the connector tuple
+	 */
+	public void setConnectorMappingTable(ConnectorMappingTable table) {
+		connectorMappingTables.put(table.getConnectorName(), table);
 	}
 
 	/**
+	 * The characteristic predicate is calculated on the first access and kept
+	 * until the ports or the interactions of the instance change.
+	 * 
 	 * @return the characteristic predicate for this Architecture Instance
 	 */
 	public String getCharacteristicPredicate() {
+		if (characteristicPredicate == null) {
+			characteristicPredicate = this.calculateCharacteristicPredicate();
+		}
 		return characteristicPredicate;
 	}
 
@@ -496,17 +854,146 @@ public class ArchitectureInstance extends ArchitectureEntity {
 	}
 
 	/**
+	 * The names are taken from the port table, so the returned set is a view
+	 * of the ports which can not be modified.
+	 * 
 	 * @return the set of ports of the Architecture Instance
 	 */
 	public Set<String> getPorts() {
-		return ports;
+		return new AbstractSet<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				final Iterator<Integer> ids = ports.iterator();
+
+				return new Iterator<String>() {
+					@Override
+					public boolean hasNext() {
+						return ids.hasNext();
+					}
+
+					@Override
+					public String next() {
+						return portTable.get(ids.next());
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				Integer id = portIds.get(o);
+				return id != null && ports.contains(id);
+			}
+
+			@Override
+			public int size() {
+				return ports.size();
+			}
+		};
 	}
 
 	/**
+	 * The interactions are generated from the compact form on every call, so
+	 * changing the returned set does not change the instance.
+	 * 
 	 * @return the set of interactions of the Architecture Instance
 	 */
 	public Set<String> getInteractions() {
-		return interactions;
+		Set<String> result = new LinkedHashSet<String>();
+
+		for (InteractionTuple interaction : this.interactions) {
+			result.add(this.getInteractionString(interaction));
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return the set of interactions of the Architecture Instance in the
+	 *         compact form
+	 */
+	public Set<InteractionTuple> getInteractionTuples() {
+		return Collections.unmodifiableSet(interactions);
+	}
+
+	/**
+	 * @param interaction
+	 *            - the interaction in the compact form
+	 * @return the interaction as a string of ports separated by space, where
+	 *         the trigger ports end with an apostrophe
+	 */
+	public String getInteractionString(InteractionTuple interaction) {
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < interaction.size(); i++) {
+			if (i > 0) {
+				sb.append(" ");
+			}
+			sb.append(this.portTable.get(interaction.getPortId(i)));
+			if (interaction.isTrigger(i)) {
+				sb.append("'");
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * @param portId
+	 *            - the id of the port in the port table
+	 * @return the name of the port
+	 */
+	public String getPortName(int portId) {
+		return portTable.get(portId);
+	}
+
+	/**
+	 * @param portName
+	 *            - the name of the port
+	 * @return the id of the port in the port table, or -1 if the port is not
+	 *         in the table
+	 */
+	public int getPortId(String portName) {
+		Integer id = portIds.get(portName);
+		return id == null ? -1 : id;
+	}
+
+	@Override
+	public void generateConfigurationFile(String pathToConfFile) throws IOException {
+		/* The ports and the interactions are written only here */
+		StringBuilder portsParam = new StringBuilder();
+		for (String port : this.getPorts()) {
+			if (portsParam.length() > 0) {
+				portsParam.append(",");
+			}
+			portsParam.append(port);
+		}
+
+		StringBuilder interactionsParam = new StringBuilder();
+		for (InteractionTuple interaction : this.interactions) {
+			/* The empty interaction is not written */
+			if (interaction.size() == 0) {
+				continue;
+			}
+			if (interactionsParam.length() > 0) {
+				interactionsParam.append(",");
+			}
+			interactionsParam.append(this.getInteractionString(interaction));
+		}
+
+		this.archEntityConfigFile.getParameters().put(ConstantFields.PORTS_PARAM, portsParam.toString());
+		this.archEntityConfigFile.getParameters().put(ConstantFields.INTERACTIONS_PARAM,
+				interactionsParam.toString());
+
+		super.generateConfigurationFile(pathToConfFile);
+
+		/* Free the generated strings */
+		this.archEntityConfigFile.getParameters().put(ConstantFields.PORTS_PARAM, "");
+		this.archEntityConfigFile.getParameters().put(ConstantFields.INTERACTIONS_PARAM, "");
 	}
 
 	public static void main(String[] args) {
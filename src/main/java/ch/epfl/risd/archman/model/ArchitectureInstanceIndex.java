@@ -0,0 +1,286 @@
+package ch.epfl.risd.archman.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ch.epfl.risd.archman.exceptions.ArchitectureExtractorException;
+import ch.epfl.risd.archman.extractor.BIPExtractor;
+import ujf.verimag.bip.Core.Interactions.Connector;
+
+/**
+ * This class represents the reverse indexes over one Architecture Instance. It
+ * maps every port to the interactions where the port takes part, every
+ * component to its ports and every connector type to its connector instances.
+ * The index is built once and then kept up to date by the Architecture
+ * Instance, such that the queries are answered without scanning the whole
+ * instance.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public class ArchitectureInstanceIndex {
+
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* The indexed Architecture Instance */
+	protected ArchitectureInstance instance;
+
+	/* For each port id, the interactions where the port takes part */
+	protected List<Set<InteractionTuple>> interactionsByPort;
+
+	/* For each component name, the names of its ports */
+	protected Map<String, Set<String>> portsByComponent;
+
+	/* For each connector type name, the connector instances of that type */
+	protected Map<String, Set<Connector>> connectorsByType;
+
+	/****************************************************************************/
+	/* PRIVATE(UTILITY) METHODS */
+	/****************************************************************************/
+
+	/**
+	 * @param portName
+	 *            - the name of the port instance, in the format
+	 *            component.port
+	 * @return the name of the component where the port belongs
+	 */
+	protected static String componentOf(String portName) {
+		int dot = portName.lastIndexOf('.');
+		return dot == -1 ? portName : portName.substring(0, dot);
+	}
+
+	/**
+	 * Method to get the set of interactions of the port with the given id,
+	 * where the set is created if it does not exist
+	 */
+	protected Set<InteractionTuple> interactionsOf(int portId) {
+		/* The port table only grows, so do the indexed ports */
+		while (interactionsByPort.size() <= portId) {
+			interactionsByPort.add(null);
+		}
+
+		Set<InteractionTuple> result = interactionsByPort.get(portId);
+		if (result == null) {
+			result = new LinkedHashSet<InteractionTuple>();
+			interactionsByPort.set(portId, result);
+		}
+
+		return result;
+	}
+
+	/****************************************************************************/
+	/* PUBLIC METHODS */
+	/***************************************************************************/
+
+	/**
+	 * Constructor for this class, which builds the index in one pass over the
+	 * ports, the interactions and the connectors of the instance.
+	 *
+	 * @param instance
+	 *            - the Architecture Instance to index
+	 * @throws ArchitectureExtractorException
+	 */
+	public ArchitectureInstanceIndex(ArchitectureInstance instance) throws ArchitectureExtractorException {
+		this.instance = instance;
+		this.interactionsByPort = new ArrayList<Set<InteractionTuple>>();
+		this.portsByComponent = new HashMap<String, Set<String>>();
+		this.connectorsByType = new HashMap<String, Set<Connector>>();
+
+		/* Index the ports */
+		for (String port : instance.getPorts()) {
+			this.portAdded(port);
+		}
+
+		/* Index the interactions */
+		for (InteractionTuple interaction : instance.getInteractionTuples()) {
+			this.interactionAdded(interaction);
+		}
+
+		/* Index the connectors, if the BIP system is already there */
+		if (instance.getBipFileModel() != null && instance.getBipFileModel().getRootType() != null) {
+			for (Connector connector : BIPExtractor.getAllConnectors(instance.getBipFileModel())) {
+				this.connectorAdded(connector);
+			}
+		}
+	}
+
+	/**
+	 * Update the index after a port is added in the instance
+	 *
+	 * @param portName
+	 *            - the name of the port instance
+	 */
+	public void portAdded(String portName) {
+		String component = componentOf(portName);
+
+		Set<String> componentPorts = portsByComponent.get(component);
+		if (componentPorts == null) {
+			componentPorts = new LinkedHashSet<String>();
+			portsByComponent.put(component, componentPorts);
+		}
+
+		componentPorts.add(portName);
+	}
+
+	/**
+	 * Update the index after a port is removed from the instance
+	 *
+	 * @param portName
+	 *            - the name of the port instance
+	 */
+	public void portRemoved(String portName) {
+		String component = componentOf(portName);
+
+		Set<String> componentPorts = portsByComponent.get(component);
+		if (componentPorts != null) {
+			componentPorts.remove(portName);
+			if (componentPorts.isEmpty()) {
+				portsByComponent.remove(component);
+			}
+		}
+	}
+
+	/**
+	 * Update the index after an interaction is added in the instance
+	 *
+	 * @param interaction
+	 *            - the interaction in the compact form
+	 */
+	public void interactionAdded(InteractionTuple interaction) {
+		for (int i = 0; i < interaction.size(); i++) {
+			this.interactionsOf(interaction.getPortId(i)).add(interaction);
+		}
+	}
+
+	/**
+	 * Update the index after an interaction is removed from the instance
+	 *
+	 * @param interaction
+	 *            - the interaction in the compact form
+	 */
+	public void interactionRemoved(InteractionTuple interaction) {
+		for (int i = 0; i < interaction.size(); i++) {
+			this.interactionsOf(interaction.getPortId(i)).remove(interaction);
+		}
+	}
+
+	/**
+	 * Update the index after a connector instance is created
+	 *
+	 * @param connector
+	 *            - the connector instance
+	 */
+	public void connectorAdded(Connector connector) {
+		String type = connector.getType().getName();
+
+		Set<Connector> connectors = connectorsByType.get(type);
+		if (connectors == null) {
+			connectors = new LinkedHashSet<Connector>();
+			connectorsByType.put(type, connectors);
+		}
+
+		connectors.add(connector);
+	}
+
+	/**
+	 * Update the index after a connector instance is deleted
+	 *
+	 * @param connector
+	 *            - the connector instance
+	 */
+	public void connectorRemoved(Connector connector) {
+		Set<Connector> connectors = connectorsByType.get(connector.getType().getName());
+
+		if (connectors != null) {
+			connectors.remove(connector);
+		}
+	}
+
+	/**
+	 * @param portName
+	 *            - the name of the port instance
+	 * @return the interactions where the port takes part, in the compact form
+	 */
+	public Set<InteractionTuple> getInteractionTuplesOfPort(String portName) {
+		int portId = instance.getPortId(portName);
+
+		if (portId == -1 || portId >= interactionsByPort.size() || interactionsByPort.get(portId) == null) {
+			return Collections.emptySet();
+		}
+
+		return Collections.unmodifiableSet(interactionsByPort.get(portId));
+	}
+
+	/**
+	 * @param portName
+	 *            - the name of the port instance
+	 * @return the interactions where the port takes part
+	 */
+	public Set<String> getInteractionsOfPort(String portName) {
+		Set<String> result = new LinkedHashSet<String>();
+
+		for (InteractionTuple interaction : this.getInteractionTuplesOfPort(portName)) {
+			result.add(instance.getInteractionString(interaction));
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param componentName
+	 *            - the name of the component instance
+	 * @return the interactions where at least one port of the component takes
+	 *         part
+	 */
+	public Set<String> getInteractionsOfComponent(String componentName) {
+		Set<InteractionTuple> tuples = new LinkedHashSet<InteractionTuple>();
+
+		for (String port : this.getPortsOfComponent(componentName)) {
+			tuples.addAll(this.getInteractionTuplesOfPort(port));
+		}
+
+		Set<String> result = new LinkedHashSet<String>();
+		for (InteractionTuple interaction : tuples) {
+			result.add(instance.getInteractionString(interaction));
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param componentName
+	 *            - the name of the component instance
+	 * @return the names of the ports of the component in the instance
+	 */
+	public Set<String> getPortsOfComponent(String componentName) {
+		Set<String> result = portsByComponent.get(componentName);
+
+		if (result == null) {
+			return Collections.emptySet();
+		}
+
+		return Collections.unmodifiableSet(result);
+	}
+
+	/**
+	 * @param connectorTypeName
+	 *            - the name of the connector type
+	 * @return the connector instances of the given type
+	 */
+	public Set<Connector> getConnectorsOfType(String connectorTypeName) {
+		Set<Connector> result = connectorsByType.get(connectorTypeName);
+
+		if (result == null) {
+			return Collections.emptySet();
+		}
+
+		return Collections.unmodifiableSet(result);
+	}
+
+}
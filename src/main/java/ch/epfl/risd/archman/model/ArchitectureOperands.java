@@ -1,12 +1,16 @@
 package ch.epfl.risd.archman.model;
 
 import java.io.FileNotFoundException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
 
 import ch.epfl.risd.archman.constants.ConstantFields;
@@ -30,10 +34,84 @@ public class ArchitectureOperands extends ArchitectureEntity {
 	/* Mapping of the operands */
 	protected Map<String, ComponentMapping> operandsMapping;
 
+	/* The placeholder of the index of the mapped operand in a port set */
+	protected static final String INDEX_PLACEHOLDER = "[i]";
+
 	/****************************************************************************/
 	/* PRIVATE(UTILITY) METHODS */
 	/****************************************************************************/
 
+	/**
+	 * The sets of mapped ports of one port, written once with the placeholder
+	 * [i] and generated for every index of the range of mapped operands, when
+	 * they are asked for.
+	 */
+	private static class IndexedPortSets extends AbstractList<Set<String>> implements RandomAccess {
+
+		/* The names in the set, with the placeholder */
+		private final String[] template;
+
+		/* The range of the mapped operands */
+		private final IndexedNameSet mappedOperands;
+
+		IndexedPortSets(String[] template, IndexedNameSet mappedOperands) {
+			this.template = template;
+			this.mappedOperands = mappedOperands;
+		}
+
+		@Override
+		public Set<String> get(int index) {
+			if (index < 0 || index >= size()) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+			}
+
+			/* Replace the placeholder with the index of the operand */
+			String operandIndex = String.valueOf(mappedOperands.getFirst() + index);
+			String[] names = new String[template.length];
+			for (int i = 0; i < template.length; i++) {
+				names[i] = template[i].replace(INDEX_PLACEHOLDER, operandIndex);
+			}
+
+			return parseNames(names);
+		}
+
+		@Override
+		public int size() {
+			return mappedOperands.size();
+		}
+	}
+
+	/**
+	 * Method to parse a set of names, where every name is either written
+	 * literally or as a range prefix[first..last]suffix. A single range is kept
+	 * as it is, without generating the names.
+	 * 
+	 * @param names
+	 *            - the names and the ranges
+	 * @return the set of names
+	 */
+	private static Set<String> parseNames(String[] names) {
+		/* A single range needs no copy */
+		if (names.length == 1) {
+			IndexedNameSet range = IndexedNameSet.parse(names[0]);
+			if (range != null) {
+				return range;
+			}
+		}
+
+		Set<String> result = new HashSet<String>();
+		for (String name : names) {
+			IndexedNameSet range = IndexedNameSet.parse(name);
+			if (range != null) {
+				result.addAll(range);
+			} else {
+				result.add(name);
+			}
+		}
+
+		return result;
+	}
+
 	/**
 	 * This method parses operand mappings and port mappings
 	 * 
@@ -55,7 +133,11 @@ public class ArchitectureOperands extends ArchitectureEntity {
 	}
 
 	/**
-	 * Method to parse operand mappings (not very understandable code)
+	 * Method to parse operand mappings (not very understandable code). The
+	 * mapped operands can be given as a range, as in B B[1..5000], and then a
+	 * set of mapped ports can be written once for all of them with the index
+	 * placeholder, as in B.begin {B[i].begin}. The names of the ports can be
+	 * ranges as well, as in {C[i].use2[1..3]}.
 	 * 
 	 * @param operandsMappingStr
 	 * @param portsMappingStr
@@ -83,12 +165,7 @@ public class ArchitectureOperands extends ArchitectureEntity {
 		Map<String, Set<String>> componentMappings = new HashMap<String, Set<String>>();
 		for (String[] tokens : operandTokens) {
 			String operandToMap = tokens[0];
-			Set<String> mappedOperands = new HashSet<String>();
-			for (int i = 1; i < tokens.length; i++) {
-				mappedOperands.add(tokens[i]);
-			}
-
-			componentMappings.put(operandToMap, mappedOperands);
+			componentMappings.put(operandToMap, parseNames(Arrays.copyOfRange(tokens, 1, tokens.length)));
 		}
 
 		/*
@@ -127,16 +204,23 @@ public class ArchitectureOperands extends ArchitectureEntity {
 				tempList2 = mappedPorts.get(operandName);
 			}
 
-			List<Set<String>> tempList3 = new LinkedList<Set<String>>();
+			List<Set<String>> tempList3 = new ArrayList<Set<String>>();
 			for (int i = 1; i < tokens.length; i++) {
-				Set<String> tempSet = new HashSet<String>();
 				/* Remove brackets */
 				String token = tokens[i].substring(1, tokens[i].length() - 1);
 				String[] subTokens = token.split(delim3);
-				for (int j = 0; j < subTokens.length; j++) {
-					tempSet.add(subTokens[j]);
+
+				/* One set written for all of the mapped operands */
+				if (token.contains(INDEX_PLACEHOLDER)) {
+					Set<String> mappedOperands = componentMappings.get(operandName);
+					if (tokens.length != 2 || !(mappedOperands instanceof IndexedNameSet)) {
+						throw new ConfigurationFileException("The ports of " + portToMap + " can use " + INDEX_PLACEHOLDER
+								+ " only as the single set of ports, with a range of mapped operands");
+					}
+					tempList3 = new IndexedPortSets(subTokens, (IndexedNameSet) mappedOperands);
+				} else {
+					tempList3.add(parseNames(subTokens));
 				}
-				tempList3.add(tempSet);
 			}
 
 			tempList2.add(tempList3);
@@ -185,13 +269,6 @@ public class ArchitectureOperands extends ArchitectureEntity {
 		super(prefixToBip, pathToConfFile, ConstantFields.architectureOperandsRequiredParams);
 	}
 
-	/**
-	 * @return the BIP file model for the Architecture Operands
-	 */
-	public BIPFileModel getBipFileModel() {
-		return bipFileModel;
-	}
-
 	/**
 	 * @return the parameters for the Architecture Operands
 	 */
@@ -298,7 +298,7 @@ public class ArchitectureStyle extends ArchitectureEntity {
 	private void validateConnectors(List<ConnectorTuple> connectorTuples) throws ArchitectureExtractorException {
 		/* Iterate the connector tuples */
 		for (ConnectorTuple tuple : connectorTuples) {
-			if (!BIPChecker.connectorExists(this.bipFileModel, tuple.getConnectorInstanceName())) {
+			if (!BIPChecker.connectorExists(this.getBipFileModel(), tuple.getConnectorInstanceName())) {
 				throw new ConnectorNotFoundException("The connector instance with name "
 						+ tuple.getConnectorInstanceName() + " does not exist in the BIP file");
 			}
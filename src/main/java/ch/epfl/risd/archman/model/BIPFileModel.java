@@ -1,8 +1,14 @@
 package ch.epfl.risd.archman.model;
 
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil.Copier;
+
 import BIPTransformation.TransformationFunction;
 import ch.epfl.risd.archman.exceptions.ArchitectureExtractorException;
 import ch.epfl.risd.archman.extractor.BIPExtractor;
@@ -49,6 +55,26 @@ public class BIPFileModel {
 	 */
 	private CompoundType rootType;
 
+	/**
+	 * The lock held while the model is changed. Each model has its own lock,
+	 * such that changes of different models do not block each other.
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * The lock held while a BIP file is parsed, since the parser keeps the
+	 * parsed model in static fields (Parser.BIP_Model and
+	 * TransformationFunction.top). The generation of a BIP file has no shared
+	 * state and is not locked.
+	 */
+	private static final Object parserLock = new Object();
+
+	/**
+	 * The objects whose notifications are turned off during a bulk build, or
+	 * null if there is no bulk build.
+	 */
+	private List<Notifier> silencedObjects;
+
 	/****************************************************************************/
 	/* PRIVATE(UTILITY) METHODS */
 	/****************************************************************************/
@@ -64,8 +90,10 @@ public class BIPFileModel {
 	 *            - The path to the BIP file
 	 */
 	public BIPFileModel(String path) {
-		/* Parse the BIP model */
-		this.rootType = TransformationFunction.ParseBIPFile(path);
+		/* Parse the BIP model, one file at a time */
+		synchronized (parserLock) {
+			this.rootType = TransformationFunction.ParseBIPFile(path);
+		}
 
 		/* Get the system of the BIP model */
 		this.system = (SystemImpl) this.rootType.getModule();
@@ -102,6 +130,27 @@ public class BIPFileModel {
 		root.setName(rootInstanceName);
 	}
 
+	/**
+	 * Constructor of the class, for an independent copy of another BIP model,
+	 * such that the copy can be changed while the original is not, without
+	 * parsing the BIP file again
+	 * 
+	 * @param original
+	 *            - the BIP model to copy
+	 */
+	public BIPFileModel(BIPFileModel original) {
+		/* Copy the system with its types and its root, under the lock of the original */
+		Copier copier = new Copier();
+		synchronized (original.lock) {
+			this.system = (SystemImpl) copier.copy(original.system);
+			copier.copyReferences();
+		}
+
+		/* The root and its type, in the copy */
+		this.root = (RootImpl) this.system.getRoot();
+		this.rootType = (CompoundType) copier.get(original.rootType);
+	}
+
 	/**
 	 * This method changes the system of every component, port and connector
 	 * type
@@ -187,6 +236,79 @@ public class BIPFileModel {
 		return rootType;
 	}
 
+	/**
+	 * Method to start a bulk build of this model. Until the build is
+	 * committed, the notifications of the objects in the model and of the
+	 * objects created by the builder are turned off, and the builder adds the
+	 * new components and connectors to their parents without checking for
+	 * duplicates in the lists.
+	 */
+	public void beginBulkBuild() {
+		synchronized (lock) {
+			/* Already started */
+			if (this.silencedObjects != null) {
+				return;
+			}
+
+			this.silencedObjects = new ArrayList<Notifier>();
+
+			/* Turn off the notifications of everything in the system */
+			this.silence(this.system);
+			TreeIterator<EObject> iterator = this.system.eAllContents();
+			while (iterator.hasNext()) {
+				this.silence(iterator.next());
+			}
+		}
+	}
+
+	/**
+	 * Method to turn off the notifications of one object during the bulk
+	 * build. It does nothing if there is no bulk build.
+	 * 
+	 * @param notifier
+	 *            - the object
+	 */
+	public void silence(Notifier notifier) {
+		synchronized (lock) {
+			if (this.silencedObjects != null && notifier.eDeliver()) {
+				notifier.eSetDeliver(false);
+				this.silencedObjects.add(notifier);
+			}
+		}
+	}
+
+	/**
+	 * Method to commit the bulk build, i.e. to turn on the notifications of
+	 * every object that was silenced.
+	 */
+	public void commitBulkBuild() {
+		synchronized (lock) {
+			if (this.silencedObjects == null) {
+				return;
+			}
+
+			for (Notifier notifier : this.silencedObjects) {
+				notifier.eSetDeliver(true);
+			}
+
+			this.silencedObjects = null;
+		}
+	}
+
+	/**
+	 * @return true if there is a bulk build of this model, false otherwise
+	 */
+	public boolean isBulkBuild() {
+		return silencedObjects != null;
+	}
+
+	/**
+	 * @return The lock to hold while this model is changed
+	 */
+	public Object getLock() {
+		return lock;
+	}
+
 	public static void main(String[] args) {
 		BIPFileModel bipFileModel = new BIPFileModel(
 				"/home/vladimir/workspace/bip-architecture-manipulation/TestCases/Instantiation/Output/ParallelMem/SaveToMemInstance.bip");
@@ -1,7 +1,7 @@
 package ch.epfl.risd.archman.model;
 
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -84,16 +84,18 @@ public class ComponentMapping {
 
 			/* Iterate over the mappings */
 			for (int j = 1; j <= currentMappedPorts.size(); j++) {
+				/* The ports in the current mapped component, which can be generated */
+				Set<String> currentPorts = currentMappedPorts.get(j - 1);
 
 				/* Create the cardinality term */
 				NameValue currCardinalityTerm = new NameValue(
 						GlobalPortMapping.PORT_CARD_DEFAULT_NAME_PREFIX + currPortToMap + "_" + j,
-						currentMappedPorts.get(j - 1).size());
+						currentPorts.size());
 				/* Get the name of the component where the ports map */
-				String componentName = currentMappedPorts.get(j - 1).iterator().next().split("\\.")[0];
+				String componentName = currentPorts.iterator().next().split("\\.")[0];
 
 				componentPortMappings.put(componentName,
-						new ComponentPortMapping(componentName, currentMappedPorts.get(j - 1), currCardinalityTerm));
+						new ComponentPortMapping(componentName, currentPorts, currCardinalityTerm));
 			}
 
 			/* Add new port mapping */
@@ -127,11 +129,8 @@ public class ComponentMapping {
 		this.componentToMap = componentToMap;
 		this.cardinalityTerm = new NameValue(COMP_CARD_DEFAULT_NAME_PREFIX + "_" + componentToMap, cardinalityValue);
 
-		/* Generate names of the mapping components */
-		this.mappedComponents = new HashSet<String>();
-		for (int i = 1; i <= cardinalityTerm.getValue(); i++) {
-			mappedComponents.add(componentToMap + i);
-		}
+		/* Names of the mapping components, generated when iterated */
+		this.mappedComponents = new IndexedNameSet(componentToMap, "", 1, cardinalityTerm.getValue());
 
 		/* portsToMap.size = cardinalities.size */
 		/* cardinalities.get(i).size = cardinalityTerm.value */
@@ -153,7 +152,7 @@ public class ComponentMapping {
 			for (int j = 0; j < cardinality.size(); j++) {
 				/* The set of ports to which the current port */
 				/* Will map in the (j+1) component */
-				Set<String> setOfMappedPorts = new HashSet<String>();
+				Set<String> setOfMappedPorts;
 				String c = cardinality.get(j);
 
 				/* The cardinality term */
@@ -163,10 +162,9 @@ public class ComponentMapping {
 				/* We can generate the set of port names */
 				if (HelperMethods.isNumeric(c)) {
 					int value = Integer.parseInt(c);
-					for (int k = 1; k <= value; k++) {
-						/* Create the name of the port */
-						setOfMappedPorts.add(componentToMap + (j + 1) + "." + currPortToMap.split("\\.")[1] + k);
-					}
+					/* The names of the ports, generated when iterated */
+					setOfMappedPorts = new IndexedNameSet(
+							componentToMap + (j + 1) + "." + currPortToMap.split("\\.")[1], "", 1, value);
 					/* Create cardinality term with value */
 					currCardinalityTerm = new NameValue(
 							GlobalPortMapping.PORT_CARD_DEFAULT_NAME_PREFIX + currPortToMap + "_" + (j + 1), value);
@@ -174,6 +172,8 @@ public class ComponentMapping {
 				}
 				/* Otherwise, the set will be empty */
 				else {
+					/* Generated after the value is calculated */
+					setOfMappedPorts = Collections.emptySet();
 					/* Create cardinality term without value */
 					currCardinalityTerm = new NameValue(c);
 				}
@@ -52,4 +52,15 @@ public class ComponentPortMapping {
 		return cardinalityTerm;
 	}
 
+	/* Setters */
+
+	/**
+	 * @param mappedPorts
+	 *            - the set of ports to which it is mapped, which replaces the
+	 *            current one
+	 */
+	public void setMappedPorts(Set<String> mappedPorts) {
+		this.mappedPorts = mappedPorts;
+	}
+
 }
@@ -89,8 +89,10 @@ public class ConfigurationFileModel {
 			}
 		}
 
-		/* Cut the last comma */
-		sb.setLength(sb.length() - 1);
+		/* Cut the last comma, if any value is left */
+		if (sb.length() > 0) {
+			sb.setLength(sb.length() - 1);
+		}
 
 		/* Update parameters */
 		this.parameters.put(key, sb.toString());
@@ -0,0 +1,273 @@
+package ch.epfl.risd.archman.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.epfl.risd.archman.model.PortTuple.PortTupleType;
+
+/**
+ * This class represents the mappings of the port tuples of one connector tuple,
+ * compiled in flat arrays after the variables are calculated. Every mapped
+ * port gets an integer id local to the connector tuple, and the ports are
+ * reached from the port tuples through ranges, instead of through the names:
+ *
+ * <pre>
+ * port tuple t : component port mappings tupleOffsets[t] .. tupleOffsets[t + 1] - 1
+ * component port mapping c : ports portIds[mappingOffsets[c]] .. portIds[mappingOffsets[c + 1] - 1]
+ * </pre>
+ *
+ * The port tuples are ordered with the coordinator tuples first, and the
+ * component port mappings and the ports keep the iteration order of the
+ * mappings, so walking the arrays visits the ports in the same order as
+ * walking the maps. The arrays are shared, they must not be modified.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public class ConnectorMappingTable {
+
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* The name of the connector instance */
+	protected final String connectorName;
+
+	/* For every port id, the name of the port */
+	protected final String[] portNames;
+
+	/* For every port id, the initial credit, i.e. the degree of its tuple */
+	protected final int[] credits;
+
+	/* For every port tuple, the calculated multiplicity */
+	protected final int[] multiplicities;
+
+	/* For every port tuple, the first of its component port mappings */
+	protected final int[] tupleOffsets;
+
+	/* For every component port mapping, the first of its ports */
+	protected final int[] mappingOffsets;
+
+	/* The ids of the ports of all component port mappings */
+	protected final int[] portIds;
+
+	/****************************************************************************/
+	/* PRIVATE(UTILITY) METHODS */
+	/****************************************************************************/
+
+	/**
+	 * @return the global port mapping of the port tuple
+	 */
+	protected static GlobalPortMapping getGlobalPortMapping(ArchitectureStyle architectureStyle,
+			ArchitectureOperands architectureOperands, PortTuple portTuple) {
+		/* The name of the component where the port belongs */
+		String portInstanceName = portTuple.getPortInstanceName();
+		String compInstanceName = portInstanceName.split("\\.")[0];
+
+		/* The mappings where the port belongs */
+		ComponentMapping componentMapping;
+		if (portTuple.getType() == PortTupleType.COORDINATOR_TUPLE) {
+			componentMapping = architectureStyle.getCoordinatorsMapping().get(compInstanceName);
+		} else {
+			componentMapping = architectureOperands.getOperandsMapping().get(compInstanceName);
+		}
+
+		return componentMapping.getGlobalPortMappings().get(portInstanceName);
+	}
+
+	/**
+	 * Constructor for this class, with the compiled arrays
+	 */
+	protected ConnectorMappingTable(String connectorName, String[] portNames, int[] credits, int[] multiplicities,
+			int[] tupleOffsets, int[] mappingOffsets, int[] portIds) {
+		this.connectorName = connectorName;
+		this.portNames = portNames;
+		this.credits = credits;
+		this.multiplicities = multiplicities;
+		this.tupleOffsets = tupleOffsets;
+		this.mappingOffsets = mappingOffsets;
+		this.portIds = portIds;
+	}
+
+	/****************************************************************************/
+	/* PUBLIC METHODS */
+	/***************************************************************************/
+
+	/**
+	 * Method to compile the mappings of one connector tuple, once the
+	 * variables in the style are calculated
+	 *
+	 * @param architectureStyle
+	 *            - the architecture style
+	 * @param architectureOperands
+	 *            - the architecture operands
+	 * @param connectorTuple
+	 *            - the connector tuple
+	 * @return the compiled mappings
+	 */
+	public static ConnectorMappingTable compile(ArchitectureStyle architectureStyle,
+			ArchitectureOperands architectureOperands, ConnectorTuple connectorTuple) {
+
+		/* The port tuples, with the coordinator tuples first */
+		List<PortTuple> portTuples = new ArrayList<PortTuple>(connectorTuple.getCoordinatorPortTuples());
+		portTuples.addAll(connectorTuple.getOperandPortTuples());
+
+		/* The mappings of every port tuple, and the sizes of the arrays */
+		Map<PortTuple, Integer> tupleIndexes = new IdentityHashMap<PortTuple, Integer>();
+		List<GlobalPortMapping> globalPortMappings = new ArrayList<GlobalPortMapping>(portTuples.size());
+		int numberOfMappings = 0;
+		int numberOfPorts = 0;
+		for (PortTuple portTuple : portTuples) {
+			tupleIndexes.put(portTuple, tupleIndexes.size());
+			GlobalPortMapping globalPortMapping = getGlobalPortMapping(architectureStyle, architectureOperands,
+					portTuple);
+			globalPortMappings.add(globalPortMapping);
+
+			for (ComponentPortMapping cpm : globalPortMapping.getComponentPortMappings().values()) {
+				numberOfMappings++;
+				numberOfPorts += cpm.getMappedPorts().size();
+			}
+		}
+
+		/* The id of every port name, and its credit */
+		Map<String, Integer> ids = new HashMap<String, Integer>();
+		String[] portNames = new String[numberOfPorts];
+		int[] credits = new int[numberOfPorts];
+
+		int[] multiplicities = new int[portTuples.size()];
+		int[] tupleOffsets = new int[portTuples.size() + 1];
+		int[] mappingOffsets = new int[numberOfMappings + 1];
+		int[] portIds = new int[numberOfPorts];
+		int mapping = 0;
+		int position = 0;
+
+		for (int t = 0; t < portTuples.size(); t++) {
+			multiplicities[t] = portTuples.get(t).getCalculatedMultiplicity();
+			tupleOffsets[t] = mapping;
+
+			for (ComponentPortMapping cpm : globalPortMappings.get(t).getComponentPortMappings().values()) {
+				mappingOffsets[mapping++] = position;
+
+				for (String mappedPort : cpm.getMappedPorts()) {
+					Integer id = ids.get(mappedPort);
+					if (id == null) {
+						id = ids.size();
+						ids.put(mappedPort, id);
+						portNames[id] = mappedPort;
+					}
+					portIds[position++] = id;
+				}
+			}
+		}
+		tupleOffsets[portTuples.size()] = mapping;
+		mappingOffsets[mapping] = position;
+
+		/* The credits, where a port in more tuples takes the degree of the last one */
+		for (PortTuple portTuple : connectorTuple.getPortTuples()) {
+			int t = tupleIndexes.get(portTuple);
+			for (int m = tupleOffsets[t]; m < tupleOffsets[t + 1]; m++) {
+				for (int p = mappingOffsets[m]; p < mappingOffsets[m + 1]; p++) {
+					credits[portIds[p]] = portTuple.getCalculatedDegree();
+				}
+			}
+		}
+
+		return new ConnectorMappingTable(connectorTuple.getConnectorInstanceName(),
+				Arrays.copyOf(portNames, ids.size()), Arrays.copyOf(credits, ids.size()), multiplicities,
+				tupleOffsets, mappingOffsets, portIds);
+	}
+
+	/**
+	 * @return the name of the connector instance
+	 */
+	public String getConnectorName() {
+		return connectorName;
+	}
+
+	/**
+	 * @return the number of port tuples
+	 */
+	public int getNumberOfPortTuples() {
+		return multiplicities.length;
+	}
+
+	/**
+	 * @return the number of port ids
+	 */
+	public int getNumberOfPorts() {
+		return portNames.length;
+	}
+
+	/**
+	 * @param id
+	 *            - the id of a port
+	 * @return the name of the port, in the format Comp.port
+	 */
+	public String getPortName(int id) {
+		return portNames[id];
+	}
+
+	/**
+	 * @return a new array with the initial credit of every port id, which
+	 *         can be spent
+	 */
+	public int[] createCredits() {
+		return credits.clone();
+	}
+
+	/**
+	 * @return for every port tuple, the calculated multiplicity
+	 */
+	public int[] getMultiplicities() {
+		return multiplicities;
+	}
+
+	/**
+	 * @return for every port tuple, the first of its component port mappings,
+	 *         followed by the number of component port mappings
+	 */
+	public int[] getTupleOffsets() {
+		return tupleOffsets;
+	}
+
+	/**
+	 * @return for every component port mapping, the first of its ports,
+	 *         followed by the number of ports
+	 */
+	public int[] getMappingOffsets() {
+		return mappingOffsets;
+	}
+
+	/**
+	 * @return the ids of the ports of all component port mappings
+	 */
+	public int[] getPortIds() {
+		return portIds;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ConnectorMappingTable)) {
+			return false;
+		}
+
+		/* The same mappings choose the same ports */
+		ConnectorMappingTable other = (ConnectorMappingTable) obj;
+		return connectorName.equals(other.connectorName) && Arrays.equals(portNames, other.portNames)
+				&& Arrays.equals(credits, other.credits) && Arrays.equals(multiplicities, other.multiplicities)
+				&& Arrays.equals(tupleOffsets, other.tupleOffsets)
+				&& Arrays.equals(mappingOffsets, other.mappingOffsets) && Arrays.equals(portIds, other.portIds);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * connectorName.hashCode() + Arrays.hashCode(portIds);
+	}
+
+}
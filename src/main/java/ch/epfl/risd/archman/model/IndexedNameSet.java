@@ -0,0 +1,173 @@
+package ch.epfl.risd.archman.model;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class represents a range of names, which differ only in one index, such
+ * as B1, B2, ..., B5000 or C1.use21, C1.use22, C1.use23. It is written in the
+ * configuration files as B[1..5000] or C1.use2[1..3]. The names are not
+ * stored, they are generated on iteration, and the membership is checked by
+ * parsing the index, so the size of the set does not depend on the size of
+ * the range. The set cannot be modified.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public class IndexedNameSet extends AbstractSet<String> {
+
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* The pattern of a range, i.e. prefix[first..last]suffix */
+	protected static final Pattern RANGE_PATTERN = Pattern.compile("^([^\\[\\]]*)\\[(\\d+)\\.\\.(\\d+)\\]([^\\[\\]]*)$");
+
+	/* The part of the names before the index */
+	protected final String prefix;
+
+	/* The part of the names after the index */
+	protected final String suffix;
+
+	/* The first index */
+	protected final int first;
+
+	/* The last index, inclusive */
+	protected final int last;
+
+	/****************************************************************************/
+	/* PUBLIC METHODS */
+	/***************************************************************************/
+
+	/**
+	 * Constructor for this class
+	 *
+	 * @param prefix
+	 *            - the part of the names before the index
+	 * @param suffix
+	 *            - the part of the names after the index
+	 * @param first
+	 *            - the first index
+	 * @param last
+	 *            - the last index, inclusive, the set is empty if it is
+	 *            smaller than the first
+	 */
+	public IndexedNameSet(String prefix, String suffix, int first, int last) {
+		this.prefix = prefix;
+		this.suffix = suffix;
+		this.first = first;
+		this.last = last;
+	}
+
+	/**
+	 * Method to parse a range of names
+	 *
+	 * @param token
+	 *            - the range, as prefix[first..last]suffix
+	 * @return the set of names, or null if the token is not a range
+	 */
+	public static IndexedNameSet parse(String token) {
+		Matcher matcher = RANGE_PATTERN.matcher(token);
+
+		if (!matcher.matches()) {
+			return null;
+		}
+
+		return new IndexedNameSet(matcher.group(1), matcher.group(4), Integer.parseInt(matcher.group(2)),
+				Integer.parseInt(matcher.group(3)));
+	}
+
+	/**
+	 * @param index
+	 *            - the index
+	 * @return the name with the given index
+	 */
+	public String getName(int index) {
+		return prefix + index + suffix;
+	}
+
+	/**
+	 * @return the first index
+	 */
+	public int getFirst() {
+		return first;
+	}
+
+	/**
+	 * @return the last index, inclusive
+	 */
+	public int getLast() {
+		return last;
+	}
+
+	@Override
+	public int size() {
+		return last < first ? 0 : last - first + 1;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof String)) {
+			return false;
+		}
+
+		String name = (String) o;
+		int end = name.length() - suffix.length();
+
+		/* The name must have the prefix, the suffix and an index between */
+		if (end <= prefix.length() || !name.startsWith(prefix) || !name.endsWith(suffix)) {
+			return false;
+		}
+
+		/* The index is written without leading zeros */
+		if (name.charAt(prefix.length()) == '0' && end - prefix.length() > 1) {
+			return false;
+		}
+
+		long index = 0;
+		for (int i = prefix.length(); i < end; i++) {
+			char c = name.charAt(i);
+			if (c < '0' || c > '9' || index > Integer.MAX_VALUE) {
+				return false;
+			}
+			index = index * 10 + (c - '0');
+		}
+
+		return index >= first && index <= last;
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+
+			/* The next index, as long so it does not overflow after the last */
+			private long next = first;
+
+			@Override
+			public boolean hasNext() {
+				return next <= last;
+			}
+
+			@Override
+			public String next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return getName((int) next++);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return prefix + "[" + first + ".." + last + "]" + suffix;
+	}
+
+}
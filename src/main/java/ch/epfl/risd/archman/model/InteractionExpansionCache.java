@@ -0,0 +1,204 @@
+package ch.epfl.risd.archman.model;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is caching the expansions of interactions through the causal
+ * trees of the Algebra of Connectors. Interactions with the same shape, i.e.
+ * the same number of ports and the same trigger ports, have the same
+ * expansion up to the names of the ports. The expansion is calculated once per
+ * shape with placeholder ports and then instantiated with the actual ports.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public class InteractionExpansionCache {
+
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* Map from the shape to the expansion, given by the positions of the ports */
+	private static final Map<String, List<int[]>> expansions = new ConcurrentHashMap<String, List<int[]>>();
+
+	/****************************************************************************/
+	/* PRIVATE(UTILITY) METHODS */
+	/****************************************************************************/
+
+	/**
+	 * @param position
+	 *            - the position of the port in the interaction
+	 * @return the placeholder port, which is never a substring of another
+	 *         placeholder, nor of a concatenation of them
+	 */
+	protected static String placeholder(int position) {
+		return "x" + position + "x";
+	}
+
+	/**
+	 * @param triggers
+	 *            - for each port in the interaction, whether it is trigger
+	 * @return the shape of the interaction
+	 */
+	protected static String shapeOf(boolean[] triggers) {
+		StringBuilder shape = new StringBuilder();
+
+		for (boolean trigger : triggers) {
+			shape.append(trigger ? '1' : '0');
+		}
+
+		return shape.toString();
+	}
+
+	/**
+	 * Method to expand the interaction with the given shape through its causal
+	 * tree, using placeholder ports
+	 *
+	 * @param triggers
+	 *            - for each port in the interaction, whether it is trigger
+	 * @return for each generated interaction, the positions of its ports
+	 */
+	protected static List<int[]> expandShape(boolean[] triggers) {
+		/* The interaction with placeholder ports */
+		StringBuilder interaction = new StringBuilder();
+		for (int i = 0; i < triggers.length; i++) {
+			interaction.append(placeholder(i));
+			if (triggers[i]) {
+				interaction.append("'");
+			}
+			interaction.append(" ");
+		}
+		interaction.setLength(interaction.length() - 1);
+
+		/* Connector as in the Algebra of Connectors */
+		ch.epfl.risd.ac.model.ConnectorNode connectorNode = ch.epfl.risd.ac.model.Connector
+				.FromString(interaction.toString());
+		ch.epfl.risd.ac.model.Connector connector = new ch.epfl.risd.ac.model.Connector(new HashSet<String>(),
+				connectorNode);
+
+		/* Get the possible interactions */
+		List<int[]> result = new ArrayList<int[]>();
+		for (String genInt : connector.toCausalTree().getInteractions()) {
+			/* The positions of the placeholders in the generated interaction */
+			int[] positions = new int[triggers.length];
+			int size = 0;
+
+			for (int i = 0; i < triggers.length; i++) {
+				if (genInt.contains(placeholder(i))) {
+					positions[size++] = i;
+				}
+			}
+
+			int[] trimmed = new int[size];
+			System.arraycopy(positions, 0, trimmed, 0, size);
+			result.add(trimmed);
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param triggers
+	 *            - for each port in the interaction, whether it is trigger
+	 * @return the expansion of the shape, calculated only the first time
+	 */
+	protected static List<int[]> expandShapeOnce(boolean[] triggers) {
+		String shape = shapeOf(triggers);
+		List<int[]> expansion = expansions.get(shape);
+
+		if (expansion == null) {
+			expansion = expandShape(triggers);
+			expansions.put(shape, expansion);
+		}
+
+		return expansion;
+	}
+
+	/****************************************************************************/
+	/* PUBLIC METHODS */
+	/***************************************************************************/
+
+	/**
+	 * Method to expand a non-empty interaction to all of the interactions it
+	 * allows, as given by its causal tree.
+	 *
+	 * @param interaction
+	 *            - the interaction as ports separated by space, where the
+	 *            trigger ports end with an apostrophe
+	 * @return the list of generated interactions, each one as a list of ports
+	 */
+	public static List<List<String>> expand(String interaction) {
+		/* Split the interaction in ports and trigger flags */
+		String[] interactionPorts = interaction.split(" ");
+		boolean[] triggers = new boolean[interactionPorts.length];
+
+		for (int i = 0; i < interactionPorts.length; i++) {
+			String port = interactionPorts[i];
+			triggers[i] = port.charAt(port.length() - 1) == '\'';
+			if (triggers[i]) {
+				interactionPorts[i] = port.substring(0, port.length() - 1);
+			}
+		}
+
+		/* Substitute the actual ports */
+		List<int[]> expansion = expandShapeOnce(triggers);
+		List<List<String>> result = new ArrayList<List<String>>(expansion.size());
+		for (int[] positions : expansion) {
+			List<String> generated = new ArrayList<String>(positions.length);
+			for (int position : positions) {
+				generated.add(interactionPorts[position]);
+			}
+			result.add(generated);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Method to expand an interaction in the compact form to all of the
+	 * interactions it allows, as given by its causal tree. The empty
+	 * interaction allows only itself.
+	 *
+	 * @param interaction
+	 *            - the interaction in the compact form
+	 * @return the list of generated interactions, each one as the ids of its
+	 *         ports
+	 */
+	public static List<int[]> expand(InteractionTuple interaction) {
+		List<int[]> result = new ArrayList<int[]>();
+
+		/* The empty interaction has no ports */
+		if (interaction.size() == 0) {
+			result.add(new int[0]);
+			return result;
+		}
+
+		/* The trigger flags of the ports */
+		boolean[] triggers = new boolean[interaction.size()];
+		for (int i = 0; i < triggers.length; i++) {
+			triggers[i] = interaction.isTrigger(i);
+		}
+
+		/* Substitute the actual ports */
+		for (int[] positions : expandShapeOnce(triggers)) {
+			int[] generated = new int[positions.length];
+			for (int i = 0; i < positions.length; i++) {
+				generated[i] = interaction.getPortId(positions[i]);
+			}
+			result.add(generated);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Method to clear the cache
+	 */
+	public static void clear() {
+		expansions.clear();
+	}
+
+}
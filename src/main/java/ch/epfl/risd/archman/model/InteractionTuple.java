@@ -0,0 +1,82 @@
+package ch.epfl.risd.archman.model;
+
+import java.util.Arrays;
+
+/**
+ * This class is representing one interaction of an Architecture Instance in a
+ * compact form. Instead of the names of the ports, the interaction holds the
+ * ids of the ports in the port table of the instance, together with a flag
+ * whether the port is trigger. The empty interaction has no ports.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public class InteractionTuple {
+
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* The ports of the interaction, each one as (port id << 1) | trigger flag */
+	protected final int[] ports;
+
+	/****************************************************************************/
+	/* PUBLIC METHODS */
+	/***************************************************************************/
+
+	/**
+	 * Constructor for this class
+	 *
+	 * @param portIds
+	 *            - the ids of the ports in the interaction
+	 * @param triggers
+	 *            - for each port, whether the port is trigger
+	 */
+	public InteractionTuple(int[] portIds, boolean[] triggers) {
+		this.ports = new int[portIds.length];
+
+		for (int i = 0; i < portIds.length; i++) {
+			this.ports[i] = (portIds[i] << 1) | (triggers[i] ? 1 : 0);
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof InteractionTuple) {
+			return Arrays.equals(this.ports, ((InteractionTuple) obj).ports);
+		}
+
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(this.ports);
+	}
+
+	/**
+	 * @return the number of ports in the interaction
+	 */
+	public int size() {
+		return ports.length;
+	}
+
+	/**
+	 * @param i
+	 *            - the position of the port in the interaction
+	 * @return the id of the port at the given position
+	 */
+	public int getPortId(int i) {
+		return ports[i] >>> 1;
+	}
+
+	/**
+	 * @param i
+	 *            - the position of the port in the interaction
+	 * @return true if the port at the given position is trigger, false
+	 *         otherwise
+	 */
+	public boolean isTrigger(int i) {
+		return (ports[i] & 1) == 1;
+	}
+
+}
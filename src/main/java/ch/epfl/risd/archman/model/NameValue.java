@@ -22,6 +22,9 @@ public class NameValue {
 	/* Flag whether we have a value or not */
 	protected boolean isCalculated;
 
+	/* Flag whether the value has to be calculated by the solver */
+	protected boolean isVariable;
+
 	/****************************************************************************/
 	/* PUBLIC METHODS */
 	/***************************************************************************/
@@ -37,6 +40,7 @@ public class NameValue {
 		this.name = name;
 		this.value = -1;
 		this.isCalculated = false;
+		this.isVariable = true;
 	}
 
 	/**
@@ -51,6 +55,7 @@ public class NameValue {
 		this.name = name;
 		this.value = value;
 		this.isCalculated = true;
+		this.isVariable = false;
 	}
 
 	@Override
@@ -86,4 +91,20 @@ public class NameValue {
 		return isCalculated;
 	}
 
+	public boolean isVariable() {
+		return isVariable;
+	}
+
+	/**
+	 * Forget the value calculated by the solver, such that the term can be
+	 * calculated again. Terms whose value was given from the beginning are
+	 * not affected.
+	 */
+	public void reset() {
+		if (this.isVariable) {
+			this.value = -1;
+			this.isCalculated = false;
+		}
+	}
+
 }
@@ -1,44 +1,51 @@
 package ch.epfl.risd.archman.solver;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
-import com.microsoft.z3.ArithExpr;
 import com.microsoft.z3.BoolExpr;
 import com.microsoft.z3.Context;
-import com.microsoft.z3.IntExpr;
-import com.microsoft.z3.IntNum;
 import com.microsoft.z3.Model;
 import com.microsoft.z3.Solver;
 import com.microsoft.z3.Status;
 import com.microsoft.z3.Z3Exception;
 
+import ch.epfl.risd.archman.exceptions.SolverUnknownException;
 import ch.epfl.risd.archman.exceptions.TestFailException;
 import ch.epfl.risd.archman.model.ArchitectureOperands;
 import ch.epfl.risd.archman.model.ArchitectureStyle;
 import ch.epfl.risd.archman.model.ComponentMapping;
 import ch.epfl.risd.archman.model.ComponentPortMapping;
 import ch.epfl.risd.archman.model.ConnectorTuple;
-import ch.epfl.risd.archman.model.NameValue;
 import ch.epfl.risd.archman.model.GlobalPortMapping;
+import ch.epfl.risd.archman.model.IndexedNameSet;
 import ch.epfl.risd.archman.model.PortTuple;
 import ch.epfl.risd.archman.model.PortTuple.PortTupleType;
 
 /**
- * Class using the SMT Z3 solver, to find the unknown variables in the style in
- * order to instantiate an architecture.
+ * Class using a cardinality solver, to find the unknown variables in the style
+ * in order to instantiate an architecture. The backend is the SMT Z3 solver by
+ * default, and it can be replaced by any other {@link CardinalitySolver}.
  * 
  * @author Vladimir Ilievski, RiSD@EPFL
  */
 public class ArchitectureStyleSolver {
 
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* The names of the backends */
+	public static final String Z3_SOLVER = "z3";
+	public static final String BOUNDED_SOLVER = "bounded";
+
+	/* The backend used to calculate the variables */
+	private static CardinalitySolver cardinalitySolver = new Z3CardinalitySolver();
+
 	/****************************************************************************/
 	/* PRIVATE(UTILITY) METHODS */
 	/****************************************************************************/
-	private static Map<String, String> cfg = new HashMap<String, String>();
 
 	private static void checkNameValues(ArchitectureStyle architectureStyle,
 			ArchitectureOperands architectureOperands) {
@@ -84,6 +91,17 @@ public class ArchitectureStyleSolver {
 		}
 	}
 
+	private static void applySolution(ArchitectureStyle architectureStyle, ArchitectureOperands architectureOperands,
+			CardinalityConstraintSystem system, CardinalitySolution solution) {
+		/* Insert values for variables */
+		system.applySolution(solution);
+
+		/* Generate the missing ports */
+		generateMissingPortNames(architectureStyle);
+
+		checkNameValues(architectureStyle, architectureOperands);
+	}
+
 	private static void generateMissingPortNames(ArchitectureStyle architectureStyle) {
 
 		/* Iterate in component mappings */
@@ -101,10 +119,9 @@ public class ArchitectureStyleSolver {
 					/* If the ports are not generated */
 					if (componentPortMapping.getMappedPorts().size() == 0
 							&& componentPortMapping.getCardinalityTerm().isCalculated()) {
-						/* Generate port names */
-						for (int i = 0; i < componentPortMapping.getCardinalityTerm().getValue(); i++) {
-							componentPortMapping.getMappedPorts().add(mappedComp + "." + portInnerName + (i + 1));
-						}
+						/* Port names from 1 to the cardinality, generated when iterated */
+						componentPortMapping.setMappedPorts(new IndexedNameSet(mappedComp + "." + portInnerName, "", 1,
+								componentPortMapping.getCardinalityTerm().getValue()));
 					}
 
 				}
@@ -116,215 +133,214 @@ public class ArchitectureStyleSolver {
 	/* PUBLIC METHODS */
 	/***************************************************************************/
 
-	public static void calculateVariables(ArchitectureStyle architectureStyle,
-			ArchitectureOperands architectureOperands) throws Z3Exception, TestFailException {
-
-		/* Configuration of the solver */
-		Map<String, String> cfg = new HashMap<String, String>();
-		/* Model generation turned on */
-		cfg.put("model", "true");
-		/* Create the context */
-		Context ctx = new Context(cfg);
-
-		/* Map of all variables */
-		Map<String, NameValue> variables = new HashMap<String, NameValue>();
-
-		/* Map of variables in the additional constraints */
-		Map<String, ArithExpr> additionalConstraints = new HashMap<String, ArithExpr>();
-		Map<String, Integer> mapOfOccurences = architectureStyle.getOccurrencesOfVariables();
-
-		/* Map of variables in Z3 */
-		Map<String, ArithExpr> variableEpressions = new HashMap<String, ArithExpr>();
-		/* List of all constraints in the model */
-		List<BoolExpr> constraints = new LinkedList<BoolExpr>();
-
-		/* Get the list of all Connector Tuples */
-		List<ConnectorTuple> connectorTuples = architectureStyle.getConnectorsTuples();
-
-		/* Expression for the zero */
-		IntExpr zero = ctx.mkInt(0);
-
-		/* Iterate the connector tuples */
-		for (ConnectorTuple connectorTuple : connectorTuples) {
-			/* Get the port tuples */
-			List<PortTuple> portTuples = connectorTuple.getPortTuples();
-			/* List of matching factors */
-			List<ArithExpr> matchingFactors = new LinkedList<ArithExpr>();
-
-			/* Iterate the port tuples */
-			for (PortTuple portTuple : portTuples) {
-
-				/* Take multiplicity and degree terms */
-				NameValue multiplicityTerm = portTuple.getMultiplicityTerm();
-				NameValue degreeTerm = portTuple.getDegreeTerm();
-
-				/* The multiplicity and degree expressions in Z3 */
-				IntExpr multiplicityExpr = ctx.mkIntConst(multiplicityTerm.getName());
-				IntExpr degreeExp = ctx.mkIntConst(degreeTerm.getName());
-
-				/* Add constraint that they must be greater than zero */
-				constraints.add(ctx.mkGt(multiplicityExpr, zero));
-				constraints.add(ctx.mkGt(degreeExp, zero));
-
-				/* If multiplicity is variable */
-				if (!multiplicityTerm.isCalculated()) {
-					variables.put(multiplicityTerm.getName(), multiplicityTerm);
-					variableEpressions.put(multiplicityTerm.getName(), multiplicityExpr);
-
-					/* If in the map of additional constraints */
-					if (mapOfOccurences.containsKey(multiplicityTerm.getName())) {
-						additionalConstraints.put(multiplicityTerm.getName(), multiplicityExpr);
-					}
-				} else {
-					/* Add constraint for equality */
-					IntExpr value = ctx.mkInt(multiplicityTerm.getValue());
-					constraints.add(ctx.mkEq(multiplicityExpr, value));
-				}
-
-				/* If degree is variable */
-				if (!degreeTerm.isCalculated()) {
-					variables.put(degreeTerm.getName(), degreeTerm);
-					variableEpressions.put(degreeTerm.getName(), degreeExp);
+	/**
+	 * Method for resetting all variables calculated in the style, so the style
+	 * can be solved again, for example for a different set of operands. The
+	 * port names generated for the variable port cardinalities are removed as
+	 * well.
+	 *
+	 * @param architectureStyle
+	 *            - the architecture style to reset
+	 */
+	public static void resetVariables(ArchitectureStyle architectureStyle) {
+
+		/* Reset the multiplicities and the degrees */
+		for (ConnectorTuple connectorTuple : architectureStyle.getConnectorsTuples()) {
+			for (PortTuple portTuple : connectorTuple.getPortTuples()) {
+				portTuple.getMultiplicityTerm().reset();
+				portTuple.getDegreeTerm().reset();
+			}
+		}
 
-					/* If in the map of additional constraints */
-					if (mapOfOccurences.containsKey(degreeTerm.getName())) {
-						additionalConstraints.put(degreeTerm.getName(), degreeExp);
+		/* Reset the port cardinalities of the coordinators */
+		for (ComponentMapping componentMapping : architectureStyle.getCoordinatorsMapping().values()) {
+			for (GlobalPortMapping globalPortMapping : componentMapping.getGlobalPortMappings().values()) {
+				for (ComponentPortMapping cpm : globalPortMapping.getComponentPortMappings().values()) {
+					/* Only the generated port names are removed */
+					if (cpm.getCardinalityTerm().isVariable()) {
+						cpm.getCardinalityTerm().reset();
+						cpm.setMappedPorts(Collections.<String> emptySet());
 					}
-
-				} else {
-					/* Add constraint for equality */
-					IntExpr value = ctx.mkInt(degreeTerm.getValue());
-					constraints.add(ctx.mkEq(degreeExp, value));
-				}
-
-				/* name and the component instance where it belongs */
-				String portInstanceName = portTuple.getPortInstanceName();
-				String compInstanceName = portInstanceName.split("\\.")[0];
-
-				/* The mappings where the port belongs */
-				ComponentMapping componentMapping;
-				GlobalPortMapping globalPortMapping;
-
-				System.err.println(portInstanceName);
-
-				/* If the port tuple is coordinator tuple */
-				if (portTuple.getType() == PortTupleType.COORDINATOR_TUPLE) {
-					componentMapping = architectureStyle.getCoordinatorsMapping().get(compInstanceName);
-					globalPortMapping = componentMapping.getGlobalPortMappings().get(portInstanceName);
-				} else {
-					componentMapping = architectureOperands.getOperandsMapping().get(compInstanceName);
-					globalPortMapping = componentMapping.getGlobalPortMappings().get(portInstanceName);
 				}
+			}
+		}
+	}
 
-				/* The cardinality of the component where it belongs */
-				NameValue componentCardinality = componentMapping.getCardinalityTerm();
-				/* Create expression and constraint for the comp card. */
-				IntExpr compCardExpr = ctx.mkIntConst(componentCardinality.getName());
-				constraints.add(ctx.mkGt(compCardExpr, zero));
-
-				/* Take the collection of all port mappings */
-				Collection<ComponentPortMapping> componentPortMappings = globalPortMapping.getComponentPortMappings()
-						.values();
-				/* Array of port cardinalities */
-				IntExpr[] portCardinalitiesExpr = new IntExpr[componentPortMappings.size()];
-
-				/* Counter */
-				int i = 0;
-				/* Iterate over them to take the cardinalities */
-				for (ComponentPortMapping cpm : componentPortMappings) {
-
-					/* Create expression and constrain for the port card. */
-					IntExpr portCardExpr = ctx.mkIntConst(cpm.getCardinalityTerm().getName());
-					constraints.add(ctx.mkGt(portCardExpr, zero));
-
-					/* If the port cardinality is not known */
-					if (!cpm.getCardinalityTerm().isCalculated()) {
-						/* Add in the list of variables */
-						variables.put(cpm.getCardinalityTerm().getName(), cpm.getCardinalityTerm());
-						variableEpressions.put(cpm.getCardinalityTerm().getName(), portCardExpr);
-
-						/* If in the map of additional constraints */
-						if (mapOfOccurences.containsKey(cpm.getCardinalityTerm().getName())) {
-							additionalConstraints.put(cpm.getCardinalityTerm().getName(), portCardExpr);
-						}
-
-					} else {
-						/* Make equality constrain */
-						constraints.add(ctx.mkEq(portCardExpr, ctx.mkInt(cpm.getCardinalityTerm().getValue())));
-					}
-
-					/* Add in the list of port card. expressions */
-					portCardinalitiesExpr[i] = portCardExpr;
-					i++;
-				}
+	/**
+	 * Method to get the backend with the given name
+	 *
+	 * @param name
+	 *            - the name of the backend, "z3" or "bounded"
+	 * @return the backend
+	 */
+	public static CardinalitySolver createCardinalitySolver(String name) {
+		return createCardinalitySolver(name, SolverOptions.UNLIMITED);
+	}
 
-				/* Make sum of cardinalities */
-				ArithExpr sumOfPortCard = ctx.mkAdd(portCardinalitiesExpr);
-				/* Add constraint for the sum */
-				constraints.add(ctx.mkGt(sumOfPortCard, zero));
+	/**
+	 * Method to get the backend with the given name and limits
+	 *
+	 * @param name
+	 *            - the name of the backend, "z3" or "bounded"
+	 * @param options
+	 *            - the limits of every solve
+	 * @return the backend
+	 */
+	public static CardinalitySolver createCardinalitySolver(String name, SolverOptions options) {
+		if (Z3_SOLVER.equals(name)) {
+			return new Z3CardinalitySolver(options);
+		} else if (BOUNDED_SOLVER.equals(name)) {
+			return new BoundedSearchCardinalitySolver(BoundedSearchCardinalitySolver.DEFAULT_BOUND, options);
+		}
 
-				/* Add the first consistency constraint */
-				constraints.add(ctx.mkLe(multiplicityExpr, sumOfPortCard));
+		throw new IllegalArgumentException("Unknown cardinality solver " + name);
+	}
 
-				/* Create matching factor */
-				ArithExpr matchingFactor = ctx.mkDiv(ctx.mkMul(new ArithExpr[] { sumOfPortCard, degreeExp }),
-						multiplicityExpr);
-				matchingFactors.add(matchingFactor);
+	/**
+	 * @return the backend used to calculate the variables
+	 */
+	public static CardinalitySolver getCardinalitySolver() {
+		return cardinalitySolver;
+	}
 
-			}
+	/**
+	 * @param cardinalitySolver
+	 *            - the backend used to calculate the variables
+	 */
+	public static void setCardinalitySolver(CardinalitySolver cardinalitySolver) {
+		ArchitectureStyleSolver.cardinalitySolver = cardinalitySolver;
+	}
 
-			/* This is not a solution */
-			if (matchingFactors.size() == 1) {
-				constraints.add(ctx.mkGt(matchingFactors.get(0), zero));
-			} else {
-				/* Make all matching factors equal */
-				for (int i = 1; i < matchingFactors.size(); i++) {
-					constraints.add(ctx.mkEq(matchingFactors.get(i), matchingFactors.get(i - 1)));
-				}
-			}
+	public static CardinalitySolution calculateVariables(ArchitectureStyle architectureStyle,
+			ArchitectureOperands architectureOperands)
+			throws Z3Exception, TestFailException, SolverUnknownException {
+		return calculateVariables(architectureStyle, architectureOperands, cardinalitySolver);
+	}
 
-		}
+	/**
+	 * Method to calculate the variables in the style with the given backend
+	 *
+	 * @param architectureStyle
+	 *            - the architecture style
+	 * @param architectureOperands
+	 *            - the architecture operands
+	 * @param solver
+	 *            - the backend
+	 * @return the solution, with the statistics of the backend
+	 * @throws TestFailException
+	 *             if there is no solution
+	 * @throws SolverUnknownException
+	 *             if the backend gave up at some limit
+	 */
+	public static CardinalitySolution calculateVariables(ArchitectureStyle architectureStyle,
+			ArchitectureOperands architectureOperands, CardinalitySolver solver)
+			throws TestFailException, SolverUnknownException {
+
+		/* The system of constraints */
+		CardinalityConstraintSystem system = new CardinalityConstraintSystem(architectureStyle,
+				architectureOperands);
+		CardinalitySolution solution = solver.solve(system);
 
-		/* Take the additional constraints */
-		List<String> listOfAdditionalConst = architectureStyle.getAdditionalConstraints();
-		/* Strings for splitting */
-		String equal = "=";
-		String mathOperation = "[*+/-]";
-
-		for (String constraint : listOfAdditionalConst) {
-			String[] tokens = constraint.split(equal);
-			String leftSide = tokens[0];
-			String rightSide = tokens[1];
-			
-			/*  */
-			String[] leftSideTokens = leftSide.split(mathOperation);
-		}
+		/* Insert values for variables */
+		applySolution(architectureStyle, architectureOperands, system, solution);
 
-		BoolExpr[] arrayConstraints = new BoolExpr[constraints.size()];
-		for (int i = 0; i < constraints.size(); i++) {
-			arrayConstraints[i] = constraints.get(i);
-		}
+		return solution;
+	}
 
-		/* The final constraint */
-		BoolExpr finalConstraint = ctx.mkAnd(arrayConstraints);
-		Model model = Check(ctx, finalConstraint, Status.SATISFIABLE);
+	/**
+	 * Method to check whether the variables in the style have a solution,
+	 * without changing the style. Only the configuration parameters are used,
+	 * so the BIP files of the style and the operands are not parsed, and an
+	 * infeasible configuration is reported before any BIP file is loaded.
+	 *
+	 * @param architectureStyle
+	 *            - the architecture style
+	 * @param architectureOperands
+	 *            - the architecture operands
+	 * @return one solution
+	 * @throws TestFailException
+	 *             if there is no solution
+	 * @throws SolverUnknownException
+	 *             if the backend gave up at some limit
+	 */
+	public static CardinalitySolution checkFeasibility(ArchitectureStyle architectureStyle,
+			ArchitectureOperands architectureOperands)
+			throws TestFailException, SolverUnknownException {
+		return cardinalitySolver.solve(new CardinalityConstraintSystem(architectureStyle, architectureOperands));
+	}
 
-		/* Insert values for variables */
-		for (String name : variableEpressions.keySet()) {
-			variables.get(name)
-					.setValue(Integer.parseInt(model.evaluate(variableEpressions.get(name), false).toString()));
-		}
+	/**
+	 * Method to enumerate the different solutions for the variables in the
+	 * style, without changing the style
+	 *
+	 * @param architectureStyle
+	 *            - the architecture style
+	 * @param architectureOperands
+	 *            - the architecture operands
+	 * @param limit
+	 *            - the largest number of solutions
+	 * @return at most limit different solutions
+	 * @throws TestFailException
+	 *             if there is no solution
+	 * @throws SolverUnknownException
+	 *             if the backend gave up before the first solution
+	 */
+	public static List<CardinalitySolution> calculateAllSolutions(ArchitectureStyle architectureStyle,
+			ArchitectureOperands architectureOperands, int limit)
+			throws TestFailException, SolverUnknownException {
+		return cardinalitySolver.solveAll(new CardinalityConstraintSystem(architectureStyle, architectureOperands),
+				limit);
+	}
 
-		/* Generate the missing ports */
-		generateMissingPortNames(architectureStyle);
+	/**
+	 * Method to give the values of one solution to the variables in the style.
+	 * The solution can come from another copy of the same style and operands.
+	 *
+	 * @param architectureStyle
+	 *            - the architecture style
+	 * @param architectureOperands
+	 *            - the architecture operands
+	 * @param solution
+	 *            - the solution
+	 */
+	public static void applySolution(ArchitectureStyle architectureStyle, ArchitectureOperands architectureOperands,
+			CardinalitySolution solution) {
+		applySolution(architectureStyle, architectureOperands,
+				new CardinalityConstraintSystem(architectureStyle, architectureOperands), solution);
+	}
 
-		checkNameValues(architectureStyle, architectureOperands);
+	public static Model Check(Context ctx, BoolExpr f, Status sat)
+			throws Z3Exception, TestFailException, SolverUnknownException {
+		return Check(ctx, f, sat, SolverOptions.UNLIMITED);
 	}
 
-	public static Model Check(Context ctx, BoolExpr f, Status sat) throws Z3Exception, TestFailException {
+	/**
+	 * Method to check a formula with the given limits, where giving up at a
+	 * limit is reported apart from the wrong status
+	 *
+	 * @param ctx
+	 *            - the Z3 context
+	 * @param f
+	 *            - the formula
+	 * @param sat
+	 *            - the expected status
+	 * @param options
+	 *            - the limits of the check
+	 * @return the model if the expected status is satisfiable, null otherwise
+	 * @throws TestFailException
+	 *             if the status is not the expected one
+	 * @throws SolverUnknownException
+	 *             if the solver gave up at some limit
+	 */
+	public static Model Check(Context ctx, BoolExpr f, Status sat, SolverOptions options)
+			throws Z3Exception, TestFailException, SolverUnknownException {
 		Solver s = ctx.mkSolver();
+		Z3CardinalitySolver.applyOptions(ctx, s, options);
 		s.add(f);
-		if (s.check() != sat)
+		Status status = s.check();
+		if (status == Status.UNKNOWN && sat != Status.UNKNOWN)
+			throw new SolverUnknownException(s.getReasonUnknown());
+		if (status != sat)
 			throw new TestFailException();
 		if (sat == Status.SATISFIABLE)
 			return s.getModel();
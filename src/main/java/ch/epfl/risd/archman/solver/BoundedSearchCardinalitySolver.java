@@ -0,0 +1,456 @@
+package ch.epfl.risd.archman.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.epfl.risd.archman.exceptions.SolverUnknownException;
+import ch.epfl.risd.archman.exceptions.TestFailException;
+import ch.epfl.risd.archman.solver.CardinalityConstraintSystem.ConnectorConstraint;
+import ch.epfl.risd.archman.solver.CardinalityConstraintSystem.PortConstraint;
+
+/**
+ * Backend solving the system of cardinality constraints in pure Java, by
+ * a depth-first search over the values from 1 to a bound for every unknown.
+ * The matching factor of a connector is not searched, it follows from the
+ * other terms. Every constraint is checked as soon as all of its unknowns have
+ * a value, such that the search is pruned early. No native library is needed.
+ * The timeout of the solver options bounds the time of the search and the
+ * resource limit bounds the number of visited nodes, the memory limit is not
+ * used. An unknown is searched beyond the bound only when the constraints
+ * give it a smaller upper limit, so when no solution is found below the bound
+ * the result is unknown rather than unsatisfiable, unless the bound was never
+ * reached.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public class BoundedSearchCardinalitySolver implements CardinalitySolver {
+
+	/**
+	 * The constraints of one port tuple, where every term is given by the
+	 * position of the unknown, or by the negated value of the constant
+	 */
+	protected static class CompiledPortConstraint {
+
+		/* The multiplicity term */
+		protected int multiplicity;
+
+		/* The degree term */
+		protected int degree;
+
+		/* The port cardinality terms */
+		protected int[] portCardinalities;
+	}
+
+	/**
+	 * The progress of one search against the limits of the options
+	 */
+	protected static class SearchBudget {
+
+		/* The number of visited nodes */
+		protected long nodes;
+
+		/* The largest number of nodes, 0 for no limit */
+		protected long maxNodes;
+
+		/* The time when the search gives up, 0 for no limit */
+		protected long deadline;
+
+		/* The reason why the search gave up, null if it did not */
+		protected String exhausted;
+
+		/* Whether some values above the bound were not tried */
+		protected boolean truncated;
+
+		/**
+		 * @return true if some limit is reached, false otherwise
+		 */
+		protected boolean spend() {
+			nodes++;
+
+			if (maxNodes > 0 && nodes > maxNodes) {
+				exhausted = "resource limit";
+			} else if (deadline > 0 && System.currentTimeMillis() > deadline) {
+				exhausted = "timeout";
+			}
+
+			return exhausted != null;
+		}
+	}
+
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* The default bound of the values */
+	public static final int DEFAULT_BOUND = 16;
+
+	/* The largest value tried for an unknown */
+	protected int bound;
+
+	/* The limits of every solve */
+	protected SolverOptions options;
+
+	/****************************************************************************/
+	/* PRIVATE(UTILITY) METHODS */
+	/****************************************************************************/
+
+	/**
+	 * @param term
+	 *            - the compiled term
+	 * @param values
+	 *            - the current values of the unknowns
+	 * @return the value of the term
+	 */
+	protected static long valueOf(int term, int[] values) {
+		return term >= 0 ? values[term] : -term;
+	}
+
+	/**
+	 * Method to compile one term
+	 *
+	 * @param system
+	 *            - the system of constraints
+	 * @param positions
+	 *            - the position of every unknown
+	 * @param name
+	 *            - the name of the term
+	 * @return the compiled term
+	 */
+	protected static int compileTerm(CardinalityConstraintSystem system, Map<String, Integer> positions,
+			String name) {
+		if (system.isUnknown(name)) {
+			return positions.get(name);
+		}
+
+		return -system.getConstant(name);
+	}
+
+	/**
+	 * Method to calculate the largest value which an unknown can take, where
+	 * a multiplicity is never bigger than the sum of the constant port
+	 * cardinalities of its tuple
+	 *
+	 * @param portChecks
+	 *            - the compiled constraints of the port tuples, by depth
+	 * @param numberOfUnknowns
+	 *            - the number of unknowns
+	 * @return for every unknown, its upper limit, or Long.MAX_VALUE if the
+	 *         constraints do not limit it
+	 */
+	protected static long[] calculateLimits(List<List<CompiledPortConstraint>> portChecks, int numberOfUnknowns) {
+		long[] limits = new long[numberOfUnknowns];
+		Arrays.fill(limits, Long.MAX_VALUE);
+
+		for (List<CompiledPortConstraint> constraints : portChecks) {
+			for (CompiledPortConstraint constraint : constraints) {
+				/* Only a multiplicity with constant port cardinalities is limited */
+				if (constraint.multiplicity < 0) {
+					continue;
+				}
+
+				long sum = 0;
+				for (int portCardinality : constraint.portCardinalities) {
+					if (portCardinality >= 0) {
+						sum = Long.MAX_VALUE;
+						break;
+					}
+					sum += -portCardinality;
+				}
+
+				limits[constraint.multiplicity] = Math.min(limits[constraint.multiplicity], sum);
+			}
+		}
+
+		return limits;
+	}
+
+	/**
+	 * Method to check the constraints of one port tuple, which do not depend
+	 * on the matching factor
+	 *
+	 * @param constraint
+	 *            - the compiled constraint
+	 * @param values
+	 *            - the current values of the unknowns
+	 * @return true if the constraints hold, false otherwise
+	 */
+	protected static boolean checkPort(CompiledPortConstraint constraint, int[] values) {
+		/* The sum of the port cardinalities */
+		long sum = 0;
+		for (int portCardinality : constraint.portCardinalities) {
+			sum += valueOf(portCardinality, values);
+		}
+
+		long multiplicity = valueOf(constraint.multiplicity, values);
+
+		/* The sum is positive, the multiplicity is not bigger than it */
+		if (sum <= 0 || multiplicity > sum) {
+			return false;
+		}
+
+		/* The matching factor is an integer */
+		return (sum * valueOf(constraint.degree, values)) % multiplicity == 0;
+	}
+
+	/**
+	 * Method to check the constraints of one connector tuple, i.e. all of its
+	 * port tuples have the same matching factor, which is not smaller than any
+	 * of the degrees
+	 *
+	 * @param constraints
+	 *            - the compiled constraints of the port tuples
+	 * @param values
+	 *            - the current values of the unknowns
+	 * @return true if the constraints hold, false otherwise
+	 */
+	protected static boolean checkConnector(List<CompiledPortConstraint> constraints, int[] values) {
+		/* The common matching factor */
+		long matchingFactor = -1;
+
+		for (CompiledPortConstraint constraint : constraints) {
+			/* The sum of the port cardinalities */
+			long sum = 0;
+			for (int portCardinality : constraint.portCardinalities) {
+				sum += valueOf(portCardinality, values);
+			}
+
+			/* The matching factor of this port tuple */
+			long factor = (sum * valueOf(constraint.degree, values)) / valueOf(constraint.multiplicity, values);
+
+			if (matchingFactor == -1) {
+				matchingFactor = factor;
+			} else if (matchingFactor != factor) {
+				return false;
+			}
+		}
+
+		/* No port takes part more times than there are connectors */
+		for (CompiledPortConstraint constraint : constraints) {
+			if (valueOf(constraint.degree, values) > matchingFactor) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Method to check all of the constraints which get complete at the given
+	 * depth of the search
+	 */
+	protected static boolean checkAt(int depth, List<List<CompiledPortConstraint>> portChecks,
+			List<List<List<CompiledPortConstraint>>> connectorChecks, int[] values) {
+		for (CompiledPortConstraint constraint : portChecks.get(depth)) {
+			if (!checkPort(constraint, values)) {
+				return false;
+			}
+		}
+
+		for (List<CompiledPortConstraint> constraints : connectorChecks.get(depth)) {
+			if (!checkConnector(constraints, values)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Method to search the values of the unknowns from the given position on
+	 *
+	 * @param limits
+	 *            - the upper limit of every unknown
+	 * @param found
+	 *            - the list where the solutions are added
+	 * @param limit
+	 *            - the number of solutions to find
+	 * @param budget
+	 *            - the progress against the limits
+	 * @return true if enough solutions are found or some limit is reached,
+	 *         false otherwise
+	 */
+	protected boolean search(int position, List<List<CompiledPortConstraint>> portChecks,
+			List<List<List<CompiledPortConstraint>>> connectorChecks, int[] values, long[] limits, List<int[]> found,
+			int limit, SearchBudget budget) {
+		/* Give up at the limits */
+		if (budget.spend()) {
+			return true;
+		}
+
+		/* All unknowns have a value */
+		if (position == values.length) {
+			found.add(values.clone());
+			return found.size() >= limit;
+		}
+
+		/* The values up to the bound, or up to the limit of the unknown */
+		int last = (int) Math.min(bound, limits[position]);
+		for (int value = 1; value <= last; value++) {
+			values[position] = value;
+
+			/* The constraints are checked at the depth after the assignment */
+			if (checkAt(position + 1, portChecks, connectorChecks, values)
+					&& search(position + 1, portChecks, connectorChecks, values, limits, found, limit, budget)) {
+				return true;
+			}
+		}
+
+		/* The values above the bound may still work */
+		if (limits[position] > bound) {
+			budget.truncated = true;
+		}
+
+		return false;
+	}
+
+	/****************************************************************************/
+	/* PUBLIC METHODS */
+	/***************************************************************************/
+
+	/**
+	 * Constructor for this class, with the default bound
+	 */
+	public BoundedSearchCardinalitySolver() {
+		this(DEFAULT_BOUND);
+	}
+
+	/**
+	 * Constructor for this class
+	 *
+	 * @param bound
+	 *            - the largest value tried for an unknown
+	 */
+	public BoundedSearchCardinalitySolver(int bound) {
+		this(bound, SolverOptions.UNLIMITED);
+	}
+
+	/**
+	 * Constructor for this class
+	 *
+	 * @param bound
+	 *            - the largest value tried for an unknown
+	 * @param options
+	 *            - the limits of every solve
+	 */
+	public BoundedSearchCardinalitySolver(int bound, SolverOptions options) {
+		this.bound = bound;
+		this.options = options;
+	}
+
+	@Override
+	public CardinalitySolution solve(CardinalityConstraintSystem system)
+			throws TestFailException, SolverUnknownException {
+		return this.solveAll(system, 1).get(0);
+	}
+
+	@Override
+	public List<CardinalitySolution> solveAll(CardinalityConstraintSystem system, int limit)
+			throws TestFailException, SolverUnknownException {
+		/* Some known term is already not positive */
+		if (system.hasNonPositiveConstant()) {
+			throw new TestFailException();
+		}
+
+		/* The position of every unknown */
+		List<String> unknowns = new ArrayList<String>(system.getUnknowns());
+		Map<String, Integer> positions = new HashMap<String, Integer>();
+		for (int i = 0; i < unknowns.size(); i++) {
+			positions.put(unknowns.get(i), i);
+		}
+
+		/*
+		 * The constraints to check at every depth of the search, where the
+		 * depth is the number of unknowns having a value
+		 */
+		List<List<CompiledPortConstraint>> portChecks = new ArrayList<List<CompiledPortConstraint>>();
+		List<List<List<CompiledPortConstraint>>> connectorChecks = new ArrayList<List<List<CompiledPortConstraint>>>();
+		for (int i = 0; i <= unknowns.size(); i++) {
+			portChecks.add(new ArrayList<CompiledPortConstraint>());
+			connectorChecks.add(new ArrayList<List<CompiledPortConstraint>>());
+		}
+
+		/* Compile the constraints */
+		for (ConnectorConstraint connectorConstraint : system.getConnectorConstraints()) {
+			List<CompiledPortConstraint> compiled = new ArrayList<CompiledPortConstraint>();
+			int connectorDepth = 0;
+
+			for (PortConstraint portConstraint : connectorConstraint.getPortConstraints()) {
+				CompiledPortConstraint constraint = new CompiledPortConstraint();
+				constraint.multiplicity = compileTerm(system, positions, portConstraint.getMultiplicity());
+				constraint.degree = compileTerm(system, positions, portConstraint.getDegree());
+				constraint.portCardinalities = new int[portConstraint.getPortCardinalities().size()];
+				for (int i = 0; i < constraint.portCardinalities.length; i++) {
+					constraint.portCardinalities[i] = compileTerm(system, positions,
+							portConstraint.getPortCardinalities().get(i));
+				}
+
+				/* The depth where the last unknown gets a value */
+				int depth = Math.max(constraint.multiplicity, constraint.degree) + 1;
+				for (int portCardinality : constraint.portCardinalities) {
+					depth = Math.max(depth, portCardinality + 1);
+				}
+				/* A tuple with only known terms is checked before the search */
+				depth = Math.max(0, depth);
+
+				portChecks.get(depth).add(constraint);
+				compiled.add(constraint);
+				connectorDepth = Math.max(connectorDepth, depth);
+			}
+
+			connectorChecks.get(connectorDepth).add(compiled);
+		}
+
+		/* The limits of this search */
+		long start = System.currentTimeMillis();
+		SearchBudget budget = new SearchBudget();
+		budget.maxNodes = options.getResourceLimit();
+		budget.deadline = options.getTimeout() > 0 ? start + options.getTimeout() : 0;
+
+		/* Search the values */
+		int[] values = new int[unknowns.size()];
+		List<int[]> found = new ArrayList<int[]>();
+		long[] limits = calculateLimits(portChecks, unknowns.size());
+		if (checkAt(0, portChecks, connectorChecks, values)) {
+			search(0, portChecks, connectorChecks, values, limits, found, limit, budget);
+		}
+
+		if (found.isEmpty()) {
+			/* Giving up is not the same as having no solution */
+			if (budget.exhausted != null) {
+				throw new SolverUnknownException(budget.exhausted);
+			}
+			/* Neither is a search which did not try every value */
+			if (budget.truncated) {
+				throw new SolverUnknownException("no solution up to the bound " + bound);
+			}
+			throw new TestFailException();
+		}
+
+		/* The statistics of the search */
+		Map<String, String> statistics = new LinkedHashMap<String, String>();
+		statistics.put("nodes", String.valueOf(budget.nodes));
+		statistics.put(CardinalitySolution.TIME_STATISTIC, String.valueOf(System.currentTimeMillis() - start));
+
+		/* Take the values of the unknowns */
+		List<CardinalitySolution> solutions = new ArrayList<CardinalitySolution>();
+		for (int[] solution : found) {
+			Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+			for (int i = 0; i < unknowns.size(); i++) {
+				result.put(unknowns.get(i), solution[i]);
+			}
+			solutions.add(new CardinalitySolution(result, statistics));
+		}
+
+		return solutions;
+	}
+
+	@Override
+	public String getIdentity() {
+		return ArchitectureStyleSolver.BOUNDED_SOLVER + " bound=" + bound + ", " + options;
+	}
+
+}
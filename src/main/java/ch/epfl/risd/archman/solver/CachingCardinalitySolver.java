@@ -0,0 +1,237 @@
+package ch.epfl.risd.archman.solver;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ch.epfl.risd.archman.exceptions.SolverUnknownException;
+import ch.epfl.risd.archman.exceptions.TestFailException;
+
+/**
+ * Backend memoizing the results of another backend. The systems are looked up
+ * by the hash of their canonical form, first in memory and then in a cache
+ * directory on the disk, where every result is stored in one properties file
+ * named by the hash. The identity of the backend is hashed as well, so
+ * backends with different settings never share a cache entry. Systems without
+ * a solution are cached as well, while the systems where the backend gave up
+ * are not, since a later solve can succeed.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public class CachingCardinalitySolver implements CardinalitySolver {
+
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* The key marking a system without a solution */
+	protected static final String UNSATISFIABLE_KEY = "unsatisfiable";
+
+	/* The extension of the cache files */
+	protected static final String CACHE_FILE_EXTENSION = ".properties";
+
+	/* The backend solving the systems which are not cached */
+	protected CardinalitySolver delegate;
+
+	/* The cache directory, null if the results are kept only in memory */
+	protected File cacheDirectory;
+
+	/* The results in memory, by hash, in the canonical names */
+	protected Map<String, Properties> memory;
+
+	/* The number of systems found in the cache */
+	protected AtomicLong hits;
+
+	/* The number of systems solved by the backend */
+	protected AtomicLong misses;
+
+	/****************************************************************************/
+	/* PRIVATE(UTILITY) METHODS */
+	/****************************************************************************/
+
+	/**
+	 * Method to look up one result, first in memory and then on the disk
+	 *
+	 * @param hash
+	 *            - the hash of the backend and the canonical form
+	 * @return the result, or null if it is not cached
+	 */
+	protected Properties lookup(String hash) {
+		Properties result = memory.get(hash);
+
+		if (result == null && cacheDirectory != null) {
+			File file = new File(cacheDirectory, hash + CACHE_FILE_EXTENSION);
+
+			if (file.isFile()) {
+				try (InputStream in = new FileInputStream(file)) {
+					result = new Properties();
+					result.load(in);
+					memory.put(hash, result);
+				} catch (IOException e) {
+					/* An unreadable entry is the same as a missing one */
+					result = null;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Method to store one result in memory and on the disk
+	 *
+	 * @param hash
+	 *            - the hash of the backend and the canonical form
+	 * @param result
+	 *            - the result
+	 */
+	protected void store(String hash, Properties result) {
+		memory.put(hash, result);
+
+		if (cacheDirectory != null) {
+			/* Write to a temporary file first, such that readers never see half of it */
+			File file = new File(cacheDirectory, hash + CACHE_FILE_EXTENSION);
+			File temporary = new File(cacheDirectory, hash + "." + Thread.currentThread().getId() + ".tmp");
+
+			try {
+				try (OutputStream out = new FileOutputStream(temporary)) {
+					result.store(out, null);
+				}
+				if (!temporary.renameTo(file)) {
+					temporary.delete();
+				}
+			} catch (IOException e) {
+				/* The cache is only an optimization */
+				temporary.delete();
+			}
+		}
+	}
+
+	/****************************************************************************/
+	/* PUBLIC METHODS */
+	/***************************************************************************/
+
+	/**
+	 * Constructor for this class, which keeps the results only in memory
+	 *
+	 * @param delegate
+	 *            - the backend solving the systems which are not cached
+	 */
+	public CachingCardinalitySolver(CardinalitySolver delegate) {
+		this(delegate, null);
+	}
+
+	/**
+	 * Constructor for this class
+	 *
+	 * @param delegate
+	 *            - the backend solving the systems which are not cached
+	 * @param cacheDirectory
+	 *            - the cache directory, which is created if it does not
+	 *            exist, or null to keep the results only in memory
+	 */
+	public CachingCardinalitySolver(CardinalitySolver delegate, File cacheDirectory) {
+		this.delegate = delegate;
+		this.cacheDirectory = cacheDirectory;
+		this.memory = new ConcurrentHashMap<String, Properties>();
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+
+		if (cacheDirectory != null) {
+			cacheDirectory.mkdirs();
+		}
+	}
+
+	@Override
+	public CardinalitySolution solve(CardinalityConstraintSystem system)
+			throws TestFailException, SolverUnknownException {
+		/* The canonical form and its hash, for this backend */
+		CanonicalConstraintSystem canonical = new CanonicalConstraintSystem(system);
+		String hash = canonical.getHash(delegate.getIdentity());
+
+		/* The result is cached */
+		Properties cached = this.lookup(hash);
+		if (cached != null) {
+			hits.incrementAndGet();
+
+			if (cached.containsKey(UNSATISFIABLE_KEY)) {
+				throw new TestFailException();
+			}
+
+			Map<String, Integer> values = new LinkedHashMap<String, Integer>();
+			for (String name : cached.stringPropertyNames()) {
+				values.put(name, Integer.parseInt(cached.getProperty(name)));
+			}
+
+			return canonical.fromCanonical(values);
+		}
+
+		/* Solve it and cache the result */
+		misses.incrementAndGet();
+		Properties result = new Properties();
+
+		try {
+			CardinalitySolution solution = delegate.solve(system);
+
+			Map<String, Integer> values = canonical.toCanonical(solution);
+			for (String name : values.keySet()) {
+				result.setProperty(name, String.valueOf(values.get(name)));
+			}
+			this.store(hash, result);
+
+			return solution;
+			/* An unknown result is not caught, it is not cached */
+		} catch (TestFailException e) {
+			result.setProperty(UNSATISFIABLE_KEY, "true");
+			this.store(hash, result);
+
+			throw e;
+		}
+	}
+
+	/**
+	 * The enumeration of the solutions is not cached, it is always done by the
+	 * backend
+	 */
+	@Override
+	public List<CardinalitySolution> solveAll(CardinalityConstraintSystem system, int limit)
+			throws TestFailException, SolverUnknownException {
+		return delegate.solveAll(system, limit);
+	}
+
+	@Override
+	public String getIdentity() {
+		return delegate.getIdentity();
+	}
+
+	/**
+	 * @return the number of systems found in the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of systems solved by the backend
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the backend solving the systems which are not cached
+	 */
+	public CardinalitySolver getDelegate() {
+		return delegate;
+	}
+
+}
@@ -0,0 +1,256 @@
+package ch.epfl.risd.archman.solver;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.epfl.risd.archman.solver.CardinalityConstraintSystem.ConnectorConstraint;
+import ch.epfl.risd.archman.solver.CardinalityConstraintSystem.PortConstraint;
+
+/**
+ * This class represents the canonical form of a system of cardinality
+ * constraints. The connector and the port constraints are ordered by their
+ * shape, which does not depend on the names, the known port cardinalities are
+ * summed up and the unknowns are renamed to v0, v1, ... in the order of their
+ * first appearance. Two systems which differ only in the names of the terms
+ * and in the order of the constraints have, in most of the cases, the same
+ * canonical form, and two systems with the same canonical form have the same
+ * solutions up to the renaming.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public class CanonicalConstraintSystem {
+
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* The canonical form, as a string */
+	protected String canonicalForm;
+
+	/* For every unknown, its canonical name */
+	protected Map<String, String> canonicalNames;
+
+	/****************************************************************************/
+	/* PRIVATE(UTILITY) METHODS */
+	/****************************************************************************/
+
+	/**
+	 * @param system
+	 *            - the system of constraints
+	 * @param name
+	 *            - the name of the term
+	 * @return the shape of the term, i.e. its value if known, ? otherwise
+	 */
+	protected static String shapeOf(CardinalityConstraintSystem system, String name) {
+		return system.isUnknown(name) ? "?" : String.valueOf(system.getConstant(name));
+	}
+
+	/**
+	 * @param system
+	 *            - the system of constraints
+	 * @param portConstraint
+	 *            - the constraint of one port tuple
+	 * @return the shape of the constraint, which does not depend on the names
+	 */
+	protected static String shapeOf(CardinalityConstraintSystem system, PortConstraint portConstraint) {
+		/* The number of the unknown and the sum of the known cardinalities */
+		int unknownCardinalities = 0;
+		int knownCardinalities = 0;
+
+		for (String portCardinality : portConstraint.getPortCardinalities()) {
+			if (system.isUnknown(portCardinality)) {
+				unknownCardinalities++;
+			} else {
+				knownCardinalities += system.getConstant(portCardinality);
+			}
+		}
+
+		return shapeOf(system, portConstraint.getMultiplicity()) + "," + shapeOf(system, portConstraint.getDegree())
+				+ "," + knownCardinalities + "," + unknownCardinalities;
+	}
+
+	/**
+	 * Method to append one term to the canonical form
+	 *
+	 * @param system
+	 *            - the system of constraints
+	 * @param name
+	 *            - the name of the term
+	 * @param builder
+	 *            - the canonical form
+	 */
+	protected void appendTerm(CardinalityConstraintSystem system, String name, StringBuilder builder) {
+		/* Known terms are written with their value */
+		if (!system.isUnknown(name)) {
+			builder.append(system.getConstant(name));
+			return;
+		}
+
+		/* Unknowns are renamed at their first appearance */
+		String canonicalName = canonicalNames.get(name);
+		if (canonicalName == null) {
+			canonicalName = "v" + canonicalNames.size();
+			canonicalNames.put(name, canonicalName);
+		}
+
+		builder.append(canonicalName);
+	}
+
+	/****************************************************************************/
+	/* PUBLIC METHODS */
+	/***************************************************************************/
+
+	/**
+	 * Constructor for this class
+	 *
+	 * @param system
+	 *            - the system of constraints to canonicalize
+	 */
+	public CanonicalConstraintSystem(final CardinalityConstraintSystem system) {
+		this.canonicalNames = new LinkedHashMap<String, String>();
+
+		/* The shapes of the connector constraints, with the ports ordered */
+		final Map<ConnectorConstraint, List<PortConstraint>> orderedPorts = new LinkedHashMap<ConnectorConstraint, List<PortConstraint>>();
+		final Map<ConnectorConstraint, String> connectorShapes = new LinkedHashMap<ConnectorConstraint, String>();
+
+		for (ConnectorConstraint connectorConstraint : system.getConnectorConstraints()) {
+			/* Order the port constraints by shape */
+			List<PortConstraint> ports = new ArrayList<PortConstraint>(connectorConstraint.getPortConstraints());
+			Collections.sort(ports, new Comparator<PortConstraint>() {
+				@Override
+				public int compare(PortConstraint o1, PortConstraint o2) {
+					return shapeOf(system, o1).compareTo(shapeOf(system, o2));
+				}
+			});
+
+			StringBuilder shape = new StringBuilder();
+			for (PortConstraint port : ports) {
+				shape.append(shapeOf(system, port)).append(";");
+			}
+
+			orderedPorts.put(connectorConstraint, ports);
+			connectorShapes.put(connectorConstraint, shape.toString());
+		}
+
+		/* Order the connector constraints by shape */
+		List<ConnectorConstraint> connectors = new ArrayList<ConnectorConstraint>(system.getConnectorConstraints());
+		Collections.sort(connectors, new Comparator<ConnectorConstraint>() {
+			@Override
+			public int compare(ConnectorConstraint o1, ConnectorConstraint o2) {
+				return connectorShapes.get(o1).compareTo(connectorShapes.get(o2));
+			}
+		});
+
+		/* Write the canonical form */
+		StringBuilder builder = new StringBuilder();
+		if (system.hasNonPositiveConstant()) {
+			builder.append("!");
+		}
+
+		for (ConnectorConstraint connector : connectors) {
+			builder.append("[");
+			for (PortConstraint port : orderedPorts.get(connector)) {
+				this.appendTerm(system, port.getMultiplicity(), builder);
+				builder.append(",");
+				this.appendTerm(system, port.getDegree(), builder);
+				builder.append(",");
+
+				/* The known cardinalities are summed up */
+				int knownCardinalities = 0;
+				for (String portCardinality : port.getPortCardinalities()) {
+					if (system.isUnknown(portCardinality)) {
+						this.appendTerm(system, portCardinality, builder);
+						builder.append("+");
+					} else {
+						knownCardinalities += system.getConstant(portCardinality);
+					}
+				}
+				builder.append(knownCardinalities).append(";");
+			}
+			builder.append("]");
+		}
+
+		this.canonicalForm = builder.toString();
+	}
+
+	/**
+	 * @return the canonical form, as a string
+	 */
+	public String getCanonicalForm() {
+		return canonicalForm;
+	}
+
+	/**
+	 * @return the SHA-256 hash of the canonical form, in hexadecimal
+	 */
+	public String getHash() {
+		return getHash("");
+	}
+
+	/**
+	 * @param salt
+	 *            - a text hashed before the canonical form, such as the
+	 *            identity of the backend, or an empty text
+	 * @return the SHA-256 hash of the salt and the canonical form, in
+	 *         hexadecimal
+	 */
+	public String getHash(String salt) {
+		try {
+			String text = salt.isEmpty() ? canonicalForm : salt + "\n" + canonicalForm;
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+
+			StringBuilder hash = new StringBuilder();
+			for (byte b : digest) {
+				hash.append(String.format("%02x", b));
+			}
+
+			return hash.toString();
+		} catch (NoSuchAlgorithmException e) {
+			/* Every Java platform supports SHA-256 */
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Method to rename the values of a solution to the canonical names
+	 *
+	 * @param solution
+	 *            - the solution of the original system
+	 * @return the values of the canonical unknowns
+	 */
+	public Map<String, Integer> toCanonical(CardinalitySolution solution) {
+		Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+
+		for (String name : canonicalNames.keySet()) {
+			result.put(canonicalNames.get(name), solution.getValue(name));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Method to rename the values of the canonical unknowns back to the names
+	 * of the original system
+	 *
+	 * @param canonicalValues
+	 *            - the values of the canonical unknowns
+	 * @return the solution of the original system
+	 */
+	public CardinalitySolution fromCanonical(Map<String, Integer> canonicalValues) {
+		Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+
+		for (String name : canonicalNames.keySet()) {
+			result.put(name, canonicalValues.get(canonicalNames.get(name)));
+		}
+
+		return new CardinalitySolution(result);
+	}
+
+}
@@ -0,0 +1,280 @@
+package ch.epfl.risd.archman.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ch.epfl.risd.archman.model.ArchitectureOperands;
+import ch.epfl.risd.archman.model.ArchitectureStyle;
+import ch.epfl.risd.archman.model.ComponentMapping;
+import ch.epfl.risd.archman.model.ComponentPortMapping;
+import ch.epfl.risd.archman.model.ConnectorTuple;
+import ch.epfl.risd.archman.model.GlobalPortMapping;
+import ch.epfl.risd.archman.model.NameValue;
+import ch.epfl.risd.archman.model.PortTuple;
+import ch.epfl.risd.archman.model.PortTuple.PortTupleType;
+
+/**
+ * This class represents the system of cardinality constraints of one
+ * Architecture Style with one set of Architecture Operands, independently of
+ * the solver used to solve it. Every term is referred by its name, where the
+ * known terms are constants and the others are unknowns. For every connector
+ * tuple, there is one matching factor m, such that for every port tuple of the
+ * connector:
+ *
+ * <pre>
+ * multiplicity * m = (sum of port cardinalities) * degree
+ * multiplicity &lt;= sum of port cardinalities
+ * degree &lt;= m
+ * </pre>
+ *
+ * and all terms, as well as m, are greater than zero.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public class CardinalityConstraintSystem {
+
+	/**
+	 * The constraints coming from one port tuple
+	 */
+	public static class PortConstraint {
+
+		/* The name of the multiplicity term */
+		protected String multiplicity;
+
+		/* The name of the degree term */
+		protected String degree;
+
+		/* The names of the cardinalities of the mapped ports */
+		protected List<String> portCardinalities;
+
+		public PortConstraint(String multiplicity, String degree, List<String> portCardinalities) {
+			this.multiplicity = multiplicity;
+			this.degree = degree;
+			this.portCardinalities = portCardinalities;
+		}
+
+		public String getMultiplicity() {
+			return multiplicity;
+		}
+
+		public String getDegree() {
+			return degree;
+		}
+
+		public List<String> getPortCardinalities() {
+			return portCardinalities;
+		}
+	}
+
+	/**
+	 * The constraints coming from one connector tuple, sharing one matching
+	 * factor
+	 */
+	public static class ConnectorConstraint {
+
+		/* The name of the connector instance */
+		protected String connectorName;
+
+		/* The constraints of the port tuples */
+		protected List<PortConstraint> portConstraints;
+
+		public ConnectorConstraint(String connectorName, List<PortConstraint> portConstraints) {
+			this.connectorName = connectorName;
+			this.portConstraints = portConstraints;
+		}
+
+		public String getConnectorName() {
+			return connectorName;
+		}
+
+		public List<PortConstraint> getPortConstraints() {
+			return portConstraints;
+		}
+	}
+
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* For every name, all of the terms having that name */
+	protected Map<String, List<NameValue>> terms;
+
+	/* The names of the unknowns */
+	protected Set<String> unknowns;
+
+	/* For every known name, its value */
+	protected Map<String, Integer> constants;
+
+	/* The constraints of all connector tuples */
+	protected List<ConnectorConstraint> connectorConstraints;
+
+	/* Whether some known term is not greater than zero */
+	protected boolean hasNonPositiveConstant;
+
+	/****************************************************************************/
+	/* PRIVATE(UTILITY) METHODS */
+	/****************************************************************************/
+
+	/**
+	 * Method to register one term in the system
+	 *
+	 * @param term
+	 *            - the term
+	 * @return the name of the term
+	 */
+	protected String registerTerm(NameValue term) {
+		/* The term is known */
+		if (term.isCalculated()) {
+			constants.put(term.getName(), term.getValue());
+			if (term.getValue() <= 0) {
+				hasNonPositiveConstant = true;
+			}
+		}
+
+		/* Every term with the same name gets the value */
+		List<NameValue> sameName = terms.get(term.getName());
+		if (sameName == null) {
+			sameName = new LinkedList<NameValue>();
+			terms.put(term.getName(), sameName);
+		}
+		sameName.add(term);
+
+		return term.getName();
+	}
+
+	/****************************************************************************/
+	/* PUBLIC METHODS */
+	/***************************************************************************/
+
+	/**
+	 * Constructor for this class, which derives the constraints from the
+	 * connector tuples, the port tuples and the component mappings
+	 *
+	 * @param architectureStyle
+	 *            - the architecture style
+	 * @param architectureOperands
+	 *            - the architecture operands
+	 */
+	public CardinalityConstraintSystem(ArchitectureStyle architectureStyle,
+			ArchitectureOperands architectureOperands) {
+		this.terms = new LinkedHashMap<String, List<NameValue>>();
+		this.constants = new LinkedHashMap<String, Integer>();
+		this.connectorConstraints = new ArrayList<ConnectorConstraint>();
+		this.hasNonPositiveConstant = false;
+
+		/* Iterate the connector tuples */
+		for (ConnectorTuple connectorTuple : architectureStyle.getConnectorsTuples()) {
+			/* The constraints of the port tuples */
+			List<PortConstraint> portConstraints = new ArrayList<PortConstraint>();
+
+			/* Iterate the port tuples */
+			for (PortTuple portTuple : connectorTuple.getPortTuples()) {
+				/* name and the component instance where it belongs */
+				String portInstanceName = portTuple.getPortInstanceName();
+				String compInstanceName = portInstanceName.split("\\.")[0];
+
+				/* The mappings where the port belongs */
+				ComponentMapping componentMapping;
+
+				/* If the port tuple is coordinator tuple */
+				if (portTuple.getType() == PortTupleType.COORDINATOR_TUPLE) {
+					componentMapping = architectureStyle.getCoordinatorsMapping().get(compInstanceName);
+				} else {
+					componentMapping = architectureOperands.getOperandsMapping().get(compInstanceName);
+				}
+				GlobalPortMapping globalPortMapping = componentMapping.getGlobalPortMappings().get(portInstanceName);
+
+				/* The cardinality of the component must be positive if known */
+				NameValue componentCardinality = componentMapping.getCardinalityTerm();
+				if (componentCardinality.isCalculated() && componentCardinality.getValue() <= 0) {
+					hasNonPositiveConstant = true;
+				}
+
+				/* The cardinalities of the mapped ports */
+				List<String> portCardinalities = new ArrayList<String>();
+				for (ComponentPortMapping cpm : globalPortMapping.getComponentPortMappings().values()) {
+					portCardinalities.add(this.registerTerm(cpm.getCardinalityTerm()));
+				}
+
+				portConstraints.add(new PortConstraint(this.registerTerm(portTuple.getMultiplicityTerm()),
+						this.registerTerm(portTuple.getDegreeTerm()), portCardinalities));
+			}
+
+			connectorConstraints
+					.add(new ConnectorConstraint(connectorTuple.getConnectorInstanceName(), portConstraints));
+		}
+
+		/* The names with a known value are not unknown */
+		this.unknowns = new LinkedHashSet<String>(terms.keySet());
+		this.unknowns.removeAll(constants.keySet());
+	}
+
+	/**
+	 * @return the names of the unknowns, in the order of their first
+	 *         appearance
+	 */
+	public Set<String> getUnknowns() {
+		return Collections.unmodifiableSet(unknowns);
+	}
+
+	/**
+	 * @param name
+	 *            - the name of a term
+	 * @return true if the value of the term has to be found, false otherwise
+	 */
+	public boolean isUnknown(String name) {
+		return unknowns.contains(name);
+	}
+
+	/**
+	 * @param name
+	 *            - the name of a known term
+	 * @return the value of the term, or null if the term is not known
+	 */
+	public Integer getConstant(String name) {
+		return constants.get(name);
+	}
+
+	/**
+	 * @return the constraints of all connector tuples
+	 */
+	public List<ConnectorConstraint> getConnectorConstraints() {
+		return Collections.unmodifiableList(connectorConstraints);
+	}
+
+	/**
+	 * @return true if some known term is not greater than zero, which makes
+	 *         the system unsatisfiable
+	 */
+	public boolean hasNonPositiveConstant() {
+		return hasNonPositiveConstant;
+	}
+
+	/**
+	 * Method to give the values to all terms which are not calculated, where
+	 * the value of an unknown comes from the solution and the value of a term
+	 * sharing the name of a known term is the known value
+	 *
+	 * @param solution
+	 *            - the solution of the system
+	 */
+	public void applySolution(CardinalitySolution solution) {
+		for (String name : terms.keySet()) {
+			/* The value for this name */
+			int value = unknowns.contains(name) ? solution.getValue(name) : constants.get(name);
+
+			for (NameValue term : terms.get(name)) {
+				if (!term.isCalculated()) {
+					term.setValue(value);
+				}
+			}
+		}
+	}
+
+}
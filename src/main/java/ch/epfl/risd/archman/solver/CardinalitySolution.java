@@ -0,0 +1,85 @@
+package ch.epfl.risd.archman.solver;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class represents one solution of a system of cardinality constraints,
+ * i.e. a value for every unknown in the system, together with the statistics
+ * of the backend which found it.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public class CardinalitySolution {
+
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* The key of the time spent by the backend, in milliseconds */
+	public static final String TIME_STATISTIC = "time";
+
+	/* The value of every unknown */
+	protected Map<String, Integer> values;
+
+	/* The statistics of the backend, by name */
+	protected Map<String, String> statistics;
+
+	/****************************************************************************/
+	/* PUBLIC METHODS */
+	/***************************************************************************/
+
+	/**
+	 * Constructor for this class
+	 *
+	 * @param values
+	 *            - the value of every unknown
+	 */
+	public CardinalitySolution(Map<String, Integer> values) {
+		this(values, Collections.<String, String> emptyMap());
+	}
+
+	/**
+	 * Constructor for this class
+	 *
+	 * @param values
+	 *            - the value of every unknown
+	 * @param statistics
+	 *            - the statistics of the backend, by name
+	 */
+	public CardinalitySolution(Map<String, Integer> values, Map<String, String> statistics) {
+		this.values = new LinkedHashMap<String, Integer>(values);
+		this.statistics = new LinkedHashMap<String, String>(statistics);
+	}
+
+	@Override
+	public String toString() {
+		return values.toString();
+	}
+
+	/**
+	 * @param name
+	 *            - the name of the unknown
+	 * @return the value of the unknown
+	 */
+	public int getValue(String name) {
+		return values.get(name);
+	}
+
+	/**
+	 * @return the value of every unknown
+	 */
+	public Map<String, Integer> getValues() {
+		return Collections.unmodifiableMap(values);
+	}
+
+	/**
+	 * @return the statistics of the backend, by name, which are empty if the
+	 *         backend does not give any
+	 */
+	public Map<String, String> getStatistics() {
+		return Collections.unmodifiableMap(statistics);
+	}
+
+}
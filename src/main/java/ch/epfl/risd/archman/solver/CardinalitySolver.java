@@ -0,0 +1,53 @@
+package ch.epfl.risd.archman.solver;
+
+import java.util.List;
+
+import ch.epfl.risd.archman.exceptions.SolverUnknownException;
+import ch.epfl.risd.archman.exceptions.TestFailException;
+
+/**
+ * Interface for the backends solving the system of cardinality constraints of
+ * an Architecture Style with a set of Architecture Operands.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public interface CardinalitySolver {
+
+	/**
+	 * Method to find a value for every unknown in the system
+	 *
+	 * @param system
+	 *            - the system of cardinality constraints
+	 * @return the solution of the system
+	 * @throws TestFailException
+	 *             if the system has no solution
+	 * @throws SolverUnknownException
+	 *             if the backend gave up before deciding
+	 */
+	public CardinalitySolution solve(CardinalityConstraintSystem system)
+			throws TestFailException, SolverUnknownException;
+
+	/**
+	 * Method to enumerate the different solutions of the system
+	 *
+	 * @param system
+	 *            - the system of cardinality constraints
+	 * @param limit
+	 *            - the largest number of solutions to return
+	 * @return at most limit different solutions of the system
+	 * @throws TestFailException
+	 *             if the system has no solution
+	 * @throws SolverUnknownException
+	 *             if the backend gave up before deciding
+	 */
+	public List<CardinalitySolution> solveAll(CardinalityConstraintSystem system, int limit)
+			throws TestFailException, SolverUnknownException;
+
+	/**
+	 * @return the name of the backend with every setting which can change its
+	 *         results, such that the results of different backends are not
+	 *         mixed
+	 */
+	public String getIdentity();
+
+}
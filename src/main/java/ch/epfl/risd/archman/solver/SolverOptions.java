@@ -0,0 +1,79 @@
+package ch.epfl.risd.archman.solver;
+
+/**
+ * This class represents the limits of one solve of a system of cardinality
+ * constraints. A limit equal to zero means no limit. When a limit is reached,
+ * the backend gives up and the result is unknown, which is different from a
+ * system without a solution.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public class SolverOptions {
+
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* The options without any limit */
+	public static final SolverOptions UNLIMITED = new SolverOptions(0, 0, 0);
+
+	/* The largest time of one solve, in milliseconds */
+	protected int timeout;
+
+	/* The largest amount of work of one solve, in the units of the backend */
+	protected int resourceLimit;
+
+	/* The largest memory of one solve, in megabytes */
+	protected int maxMemory;
+
+	/****************************************************************************/
+	/* PUBLIC METHODS */
+	/***************************************************************************/
+
+	/**
+	 * Constructor for this class
+	 *
+	 * @param timeout
+	 *            - the largest time of one solve, in milliseconds, or 0
+	 * @param resourceLimit
+	 *            - the largest amount of work of one solve, or 0
+	 * @param maxMemory
+	 *            - the largest memory of one solve, in megabytes, or 0
+	 */
+	public SolverOptions(int timeout, int resourceLimit, int maxMemory) {
+		if (timeout < 0 || resourceLimit < 0 || maxMemory < 0) {
+			throw new IllegalArgumentException("The solver limits cannot be negative");
+		}
+
+		this.timeout = timeout;
+		this.resourceLimit = resourceLimit;
+		this.maxMemory = maxMemory;
+	}
+
+	@Override
+	public String toString() {
+		return "timeout=" + timeout + ", rlimit=" + resourceLimit + ", max_memory=" + maxMemory;
+	}
+
+	/**
+	 * @return the largest time of one solve, in milliseconds, 0 for no limit
+	 */
+	public int getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * @return the largest amount of work of one solve, 0 for no limit
+	 */
+	public int getResourceLimit() {
+		return resourceLimit;
+	}
+
+	/**
+	 * @return the largest memory of one solve, in megabytes, 0 for no limit
+	 */
+	public int getMaxMemory() {
+		return maxMemory;
+	}
+
+}
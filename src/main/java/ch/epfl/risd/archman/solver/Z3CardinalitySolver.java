@@ -0,0 +1,370 @@
+package ch.epfl.risd.archman.solver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.microsoft.z3.ArithExpr;
+import com.microsoft.z3.BoolExpr;
+import com.microsoft.z3.Context;
+import com.microsoft.z3.IntExpr;
+import com.microsoft.z3.IntNum;
+import com.microsoft.z3.Model;
+import com.microsoft.z3.Params;
+import com.microsoft.z3.Solver;
+import com.microsoft.z3.Statistics;
+import com.microsoft.z3.Status;
+import com.microsoft.z3.Z3Exception;
+
+import ch.epfl.risd.archman.exceptions.SolverUnknownException;
+import ch.epfl.risd.archman.exceptions.TestFailException;
+import ch.epfl.risd.archman.solver.CardinalityConstraintSystem.ConnectorConstraint;
+import ch.epfl.risd.archman.solver.CardinalityConstraintSystem.PortConstraint;
+
+/**
+ * Backend solving the system of cardinality constraints with the SMT solver
+ * Z3. The known terms are folded in integer constants, such that the
+ * constraints stay linear whenever the styles allow it. The limits of the
+ * solver options are passed to Z3 as parameters, and the statistics of Z3 are
+ * given with every solution.
+ *
+ * @author Vladimir Ilievski, RiSD@EPFL
+ */
+public class Z3CardinalitySolver implements CardinalitySolver {
+
+	/****************************************************************************/
+	/* VARIABLES */
+	/***************************************************************************/
+
+	/* The limits of every solve */
+	protected SolverOptions options;
+
+	/****************************************************************************/
+	/* PRIVATE(UTILITY) METHODS */
+	/****************************************************************************/
+
+	/**
+	 * Method to pass the limits of the options to the solver, where the
+	 * limits equal to zero are not passed
+	 *
+	 * @param ctx
+	 *            - the Z3 context
+	 * @param solver
+	 *            - the Z3 solver
+	 * @param options
+	 *            - the limits
+	 * @throws Z3Exception
+	 */
+	protected static void applyOptions(Context ctx, Solver solver, SolverOptions options) throws Z3Exception {
+		Params params = ctx.mkParams();
+
+		if (options.getTimeout() > 0) {
+			params.add("timeout", options.getTimeout());
+		}
+		if (options.getResourceLimit() > 0) {
+			params.add("rlimit", options.getResourceLimit());
+		}
+		if (options.getMaxMemory() > 0) {
+			params.add("max_memory", options.getMaxMemory());
+		}
+
+		solver.setParameters(params);
+	}
+
+	/**
+	 * Method to take the statistics of the solver
+	 *
+	 * @param solver
+	 *            - the Z3 solver
+	 * @param time
+	 *            - the time spent in the solver, in milliseconds
+	 * @return the statistics, by name
+	 * @throws Z3Exception
+	 */
+	protected static Map<String, String> collectStatistics(Solver solver, long time) throws Z3Exception {
+		Map<String, String> statistics = new LinkedHashMap<String, String>();
+
+		for (Statistics.Entry entry : solver.getStatistics().getEntries()) {
+			statistics.put(entry.Key, entry.getValueString());
+		}
+		statistics.put(CardinalitySolution.TIME_STATISTIC, String.valueOf(time));
+
+		return statistics;
+	}
+
+	/**
+	 * Method to multiply two expressions, where the product of two constants
+	 * is folded and the multiplication by one is omitted, such that the
+	 * product stays linear whenever one of the factors is known.
+	 *
+	 * @param ctx
+	 *            - the Z3 context
+	 * @param left
+	 *            - the left factor
+	 * @param right
+	 *            - the right factor
+	 * @return the product
+	 * @throws Z3Exception
+	 */
+	protected static ArithExpr multiply(Context ctx, ArithExpr left, ArithExpr right) throws Z3Exception {
+		if (left instanceof IntNum && right instanceof IntNum) {
+			return ctx.mkInt(((IntNum) left).getInt64() * ((IntNum) right).getInt64());
+		}
+		if (left instanceof IntNum && ((IntNum) left).getInt64() == 1) {
+			return right;
+		}
+		if (right instanceof IntNum && ((IntNum) right).getInt64() == 1) {
+			return left;
+		}
+
+		return ctx.mkMul(new ArithExpr[] { left, right });
+	}
+
+	/**
+	 * Method to add a constraint, which is evaluated right away if it has no
+	 * variables
+	 *
+	 * @param constraint
+	 *            - the constraint
+	 * @param constraints
+	 *            - the list of constraints
+	 * @throws Z3Exception
+	 */
+	protected static void addConstraint(BoolExpr constraint, List<BoolExpr> constraints) throws Z3Exception {
+		/* Simplify the constraint */
+		BoolExpr simplified = (BoolExpr) constraint.simplify();
+
+		/* The constraint holds anyway */
+		if (simplified.isTrue()) {
+			return;
+		}
+
+		constraints.add(simplified);
+	}
+
+	/**
+	 * Method to get the expression of one term, which is an integer constant if
+	 * the term is known
+	 *
+	 * @param ctx
+	 *            - the Z3 context
+	 * @param system
+	 *            - the system of constraints
+	 * @param expressions
+	 *            - the expressions of the unknowns
+	 * @param name
+	 *            - the name of the term
+	 * @return the expression of the term
+	 * @throws Z3Exception
+	 */
+	protected static IntExpr termExpression(Context ctx, CardinalityConstraintSystem system,
+			Map<String, IntExpr> expressions, String name) throws Z3Exception {
+		if (system.isUnknown(name)) {
+			return expressions.get(name);
+		}
+
+		return ctx.mkInt(system.getConstant(name));
+	}
+
+	/**
+	 * Method to create the Z3 constraints of the system
+	 *
+	 * @param ctx
+	 *            - the Z3 context
+	 * @param system
+	 *            - the system of constraints
+	 * @param expressions
+	 *            - the map where the expressions of the unknowns are put
+	 * @return the list of constraints
+	 * @throws Z3Exception
+	 */
+	protected static List<BoolExpr> createConstraints(Context ctx, CardinalityConstraintSystem system,
+			Map<String, IntExpr> expressions) throws Z3Exception {
+		/* List of all constraints in the model */
+		List<BoolExpr> constraints = new LinkedList<BoolExpr>();
+
+		/* Expression for the zero */
+		IntExpr zero = ctx.mkInt(0);
+
+		/* Some known term is already not positive */
+		if (system.hasNonPositiveConstant()) {
+			constraints.add(ctx.mkFalse());
+		}
+
+		/* All unknowns must be greater than zero */
+		for (String name : system.getUnknowns()) {
+			IntExpr expr = ctx.mkIntConst(name);
+			expressions.put(name, expr);
+			constraints.add(ctx.mkGt(expr, zero));
+		}
+
+		/* Iterate the connector tuples */
+		for (ConnectorConstraint connectorConstraint : system.getConnectorConstraints()) {
+
+			/* The matching factor, common for all port tuples */
+			IntExpr matchingFactor = ctx.mkIntConst("mf_" + connectorConstraint.getConnectorName());
+			constraints.add(ctx.mkGt(matchingFactor, zero));
+
+			/* Iterate the port tuples */
+			for (PortConstraint portConstraint : connectorConstraint.getPortConstraints()) {
+				/* The multiplicity and degree expressions in Z3 */
+				IntExpr multiplicityExpr = termExpression(ctx, system, expressions, portConstraint.getMultiplicity());
+				IntExpr degreeExp = termExpression(ctx, system, expressions, portConstraint.getDegree());
+
+				/* List of the unknown port cardinalities */
+				List<ArithExpr> portCardinalitiesExpr = new LinkedList<ArithExpr>();
+				/* The sum of the known port cardinalities */
+				int knownPortCardinalities = 0;
+
+				for (String portCardinality : portConstraint.getPortCardinalities()) {
+					if (system.isUnknown(portCardinality)) {
+						portCardinalitiesExpr.add(expressions.get(portCardinality));
+					} else {
+						/* Fold the constant in the sum */
+						knownPortCardinalities += system.getConstant(portCardinality);
+					}
+				}
+
+				/* Make sum of cardinalities, with the constants folded */
+				ArithExpr sumOfPortCard;
+				if (portCardinalitiesExpr.isEmpty()) {
+					sumOfPortCard = ctx.mkInt(knownPortCardinalities);
+				} else {
+					if (knownPortCardinalities != 0) {
+						portCardinalitiesExpr.add(ctx.mkInt(knownPortCardinalities));
+					}
+					sumOfPortCard = portCardinalitiesExpr.size() == 1 ? portCardinalitiesExpr.get(0)
+							: ctx.mkAdd(portCardinalitiesExpr.toArray(new ArithExpr[portCardinalitiesExpr.size()]));
+				}
+
+				/* Add constraint for the sum */
+				addConstraint(ctx.mkGt(sumOfPortCard, zero), constraints);
+
+				/* Add the first consistency constraint */
+				addConstraint(ctx.mkLe(multiplicityExpr, sumOfPortCard), constraints);
+
+				/* One port cannot take part more times than there are connectors */
+				addConstraint(ctx.mkLe(degreeExp, matchingFactor), constraints);
+
+				/*
+				 * The matching factor, cross-multiplied instead of divided, which
+				 * also makes the division exact
+				 */
+				addConstraint(ctx.mkEq(multiply(ctx, multiplicityExpr, matchingFactor),
+						multiply(ctx, sumOfPortCard, degreeExp)), constraints);
+			}
+		}
+
+		return constraints;
+	}
+
+	/****************************************************************************/
+	/* PUBLIC METHODS */
+	/***************************************************************************/
+
+	/**
+	 * Constructor for this class, without any limit
+	 */
+	public Z3CardinalitySolver() {
+		this(SolverOptions.UNLIMITED);
+	}
+
+	/**
+	 * Constructor for this class
+	 *
+	 * @param options
+	 *            - the limits of every solve
+	 */
+	public Z3CardinalitySolver(SolverOptions options) {
+		this.options = options;
+	}
+
+	@Override
+	public CardinalitySolution solve(CardinalityConstraintSystem system)
+			throws TestFailException, SolverUnknownException {
+		return this.solveAll(system, 1).get(0);
+	}
+
+	@Override
+	public List<CardinalitySolution> solveAll(CardinalityConstraintSystem system, int limit)
+			throws TestFailException, SolverUnknownException {
+		/* Configuration of the solver */
+		Map<String, String> cfg = new HashMap<String, String>();
+		/* Model generation turned on */
+		cfg.put("model", "true");
+		/* Create the context */
+		Context ctx = new Context(cfg);
+
+		try {
+			/* Map of unknowns in Z3 */
+			Map<String, IntExpr> expressions = new LinkedHashMap<String, IntExpr>();
+			/* List of all constraints in the model */
+			List<BoolExpr> constraints = createConstraints(ctx, system, expressions);
+
+			/* The final constraint */
+			Solver solver = ctx.mkSolver();
+			applyOptions(ctx, solver, options);
+			solver.add(ctx.mkAnd(constraints.toArray(new BoolExpr[constraints.size()])));
+
+			/* The solutions found so far */
+			List<CardinalitySolution> solutions = new ArrayList<CardinalitySolution>();
+
+			while (solutions.size() < limit) {
+				/* Time of the check */
+				long start = System.currentTimeMillis();
+				Status status = solver.check();
+				long time = System.currentTimeMillis() - start;
+
+				if (status == Status.UNKNOWN) {
+					/* The solutions found before the limit are kept */
+					if (!solutions.isEmpty()) {
+						break;
+					}
+					throw new SolverUnknownException(solver.getReasonUnknown());
+				}
+				if (status != Status.SATISFIABLE) {
+					break;
+				}
+
+				Model model = solver.getModel();
+
+				/* Take the values of the unknowns */
+				Map<String, Integer> values = new LinkedHashMap<String, Integer>();
+				for (String name : expressions.keySet()) {
+					values.put(name, Integer.parseInt(model.evaluate(expressions.get(name), true).toString()));
+				}
+				solutions.add(new CardinalitySolution(values, collectStatistics(solver, time)));
+
+				/* Without unknowns, there is only one solution */
+				if (expressions.isEmpty()) {
+					break;
+				}
+
+				/* Block this solution, i.e. some unknown must be different */
+				BoolExpr[] differences = new BoolExpr[expressions.size()];
+				int i = 0;
+				for (String name : expressions.keySet()) {
+					differences[i++] = ctx.mkNot(ctx.mkEq(expressions.get(name), ctx.mkInt(values.get(name))));
+				}
+				solver.add(ctx.mkOr(differences));
+			}
+
+			if (solutions.isEmpty()) {
+				throw new TestFailException();
+			}
+
+			return solutions;
+		} finally {
+			ctx.close();
+		}
+	}
+
+	@Override
+	public String getIdentity() {
+		return ArchitectureStyleSolver.Z3_SOLVER + " " + options;
+	}
+
+}
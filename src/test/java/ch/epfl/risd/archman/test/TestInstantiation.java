@@ -1,12 +1,30 @@
 package ch.epfl.risd.archman.test;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 
 import com.microsoft.z3.Z3Exception;
 
+import ch.epfl.risd.archman.builder.ArchitectureInstantiator;
 import ch.epfl.risd.archman.commandline.CmdLine;
+import ch.epfl.risd.archman.exceptions.ArchitectureBuilderException;
+import ch.epfl.risd.archman.exceptions.ArchitectureExtractorException;
+import ch.epfl.risd.archman.exceptions.ConfigurationFileException;
 import ch.epfl.risd.archman.exceptions.ListEmptyException;
+import ch.epfl.risd.archman.exceptions.SolverUnknownException;
 import ch.epfl.risd.archman.exceptions.TestFailException;
+import ch.epfl.risd.archman.model.ArchitectureInstance;
+import ch.epfl.risd.archman.model.ArchitectureOperands;
+import ch.epfl.risd.archman.model.ArchitectureStyle;
+import ch.epfl.risd.archman.solver.ArchitectureStyleSolver;
+import ch.epfl.risd.archman.solver.BoundedSearchCardinalitySolver;
+import ch.epfl.risd.archman.solver.CardinalitySolution;
+import ch.epfl.risd.archman.solver.CardinalitySolver;
+import ch.epfl.risd.archman.solver.Z3CardinalitySolver;
+import ujf.verimag.bip.Core.Interactions.Connector;
 
 /**
  * Class for testing the Architecture Instantiation
@@ -73,6 +91,17 @@ public class TestInstantiation {
 	private static final String CL_SVR_ARCH_STYLE_CONF = "/ClientServer/ConfStyle.txt";
 	private static final String CL_SRV_ARCH_OP_CONF = "/ClientServer/ConfOp.txt";
 
+	// Parallel Memory with 20 operands
+	private static final String PAR_MEM_WIDE_ARCH_STYLE_CONF = "/ParallelMemWide/ConfStyle.txt";
+	private static final String PAR_MEM_WIDE_ARCH_OP_CONF = "/ParallelMemWide/ConfOp.txt";
+
+	// Mutual Exclusion where every operand takes part in pairs
+	private static final String MUTEX_PAIRS_ARCH_STYLE_CONF = "/MutexPairs/AEConf.txt";
+	private static final String MUTEX_PAIRS_ARCH_OP_CONF = "/MutexPairs/AEConf-instance2.txt";
+
+	// Mutual Exclusion with a range of 3 operands
+	private static final String MUTEX_RANGE_ARCH_OP_CONF = "/MutexRange/AEConf-instance3.txt";
+
 	/* Output files */
 
 	// Mutual Exclusion
@@ -123,9 +152,28 @@ public class TestInstantiation {
 	private static final String CL_SRV_OUTPUT_BIP = "/ClientServer/ClientServerInstance.bip";
 	private static final String CL_SRV_OUTPUT_CONF = "/ClientServer/ClientServerConf.txt";
 
+	// Mutual Exclusion with the options of the instantiation
+	private static final String MUTEX_BOUNDED_OUTPUT_BIP = "/Mutex/MutexBoundedInstance.bip";
+	private static final String MUTEX_BOUNDED_OUTPUT_CONF = "/Mutex/MutexBoundedConf.txt";
+	private static final String MUTEX_CACHED_OUTPUT_BIP = "/Mutex/MutexCachedInstance.bip";
+	private static final String MUTEX_CACHED_OUTPUT_CONF = "/Mutex/MutexCachedConf.txt";
+	private static final String MUTEX_SOLVER_CACHE = "/Mutex/SolverCache";
+	private static final String MUTEX_SOLUTIONS_OUTPUT_BIP = "/Mutex/MutexSolutionsInstance.bip";
+	private static final String MUTEX_SOLUTIONS_OUTPUT_CONF = "/Mutex/MutexSolutionsConf.txt";
+	private static final String MUTEX_DRY_RUN_OUTPUT_BIP = "/Mutex/MutexDryRunInstance.bip";
+	private static final String MUTEX_DRY_RUN_OUTPUT_CONF = "/Mutex/MutexDryRunConf.txt";
+	private static final String MUTEX_RANGE_OUTPUT_BIP = "/Mutex/MutexRangeInstance.bip";
+	private static final String MUTEX_RANGE_OUTPUT_CONF = "/Mutex/MutexRangeConf.txt";
+	private static final String MUTEX_UPDATE_OUTPUT_BIP = "/Mutex/MutexUpdateInstance.bip";
+	private static final String MUTEX_UPDATE_OUTPUT_CONF = "/Mutex/MutexUpdateConf.txt";
+
 	/* Flags */
 	private static final String INSTANTIATION_FLAG = "-instantiation";
 	private static final String TEST_FLAG = "-test";
+	private static final String SOLVER_FLAG = "-solver";
+	private static final String SOLVER_CACHE_FLAG = "-solver_cache";
+	private static final String SOLUTIONS_FLAG = "-solutions";
+	private static final String DRY_RUN_FLAG = "-dry_run";
 
 	private static void testInstantiation(String archStyleConfFilePath, String archOpConfFilePath,
 			String outputBipFilePath, String outputConfFilePath)
@@ -138,6 +186,31 @@ public class TestInstantiation {
 		CmdLine.main(args);
 	}
 
+	private static void testInstantiation(String[] options, String archStyleConfFilePath,
+			String archOpConfFilePath, String outputBipFilePath, String outputConfFilePath)
+			throws Z3Exception, TestFailException, ListEmptyException {
+		/* List of arguments, the options before the files */
+		String[] args = new String[options.length + 6];
+		args[0] = INSTANTIATION_FLAG;
+		args[1] = TEST_FLAG;
+		System.arraycopy(options, 0, args, 2, options.length);
+		args[options.length + 2] = archStyleConfFilePath;
+		args[options.length + 3] = archOpConfFilePath;
+		args[options.length + 4] = outputBipFilePath;
+		args[options.length + 5] = outputConfFilePath;
+
+		/* Call the command */
+		CmdLine.main(args);
+	}
+
+	private static String getInputPath(String fileName) {
+		return new File(PARENT, BASE_TEST_DIRECTORY + INSTANTIATION_INPUT_FILES + fileName).getAbsolutePath();
+	}
+
+	private static String getOutputPath(String fileName) {
+		return new File(PARENT, BASE_TEST_DIRECTORY + INSTANTIATION_OUTPUT_FILES + fileName).getAbsolutePath();
+	}
+
 	public static void testMutex() throws Z3Exception, TestFailException, ListEmptyException {
 		String archStyleConfFilePath = new File(PARENT,
 				BASE_TEST_DIRECTORY + INSTANTIATION_INPUT_FILES + MUTEX_ARCH_STYLE_CONF).getAbsolutePath();
@@ -342,10 +415,209 @@ public class TestInstantiation {
 				outputConfFilePath);
 	}
 
+	/**
+	 * Mutual Exclusion instantiated with 2 operands and then updated to the 3
+	 * operands of the range configuration. Every operand must take part in
+	 * one begin and one finish connector of the updated instance.
+	 */
+	public static void testUpdateInstance() throws Z3Exception, TestFailException, ListEmptyException,
+			FileNotFoundException, ConfigurationFileException, ArchitectureExtractorException,
+			ArchitectureBuilderException, IOException, InterruptedException, SolverUnknownException {
+		ArchitectureStyle architectureStyle = new ArchitectureStyle(PARENT, getInputPath(MUTEX_ARCH_STYLE_CONF));
+		ArchitectureOperands architectureOperands = new ArchitectureOperands(PARENT,
+				getInputPath(MUTEX_ARCH_OP_CONF));
+
+		ArchitectureInstance instance = ArchitectureInstantiator.createArchitectureInstance(architectureStyle,
+				architectureOperands, getOutputPath(MUTEX_UPDATE_OUTPUT_BIP),
+				getOutputPath(MUTEX_UPDATE_OUTPUT_CONF));
+
+		/* Add the third operand */
+		ArchitectureOperands updatedOperands = new ArchitectureOperands(PARENT,
+				getInputPath(MUTEX_RANGE_ARCH_OP_CONF));
+		ArchitectureInstantiator.updateArchitectureInstance(instance, architectureStyle, updatedOperands,
+				getOutputPath(MUTEX_UPDATE_OUTPUT_BIP), getOutputPath(MUTEX_UPDATE_OUTPUT_CONF));
+
+		if (!instance.getOperands().contains("B3") || instance.getOperands().size() != 3) {
+			throw new TestFailException("Expected the operands B1, B2 and B3, got " + instance.getOperands());
+		}
+
+		/* The names of the connectors in the updated instance */
+		Set<String> connectorNames = new HashSet<String>();
+		for (Connector c : instance.getBipFileModel().getRootType().getConnector()) {
+			connectorNames.add(c.getName());
+		}
+
+		/* The ports which take part in some interaction */
+		Set<String> interactionPorts = new HashSet<String>();
+		for (String interaction : instance.getInteractions()) {
+			for (String port : interaction.split(" ")) {
+				interactionPorts.add(port.endsWith("'") ? port.substring(0, port.length() - 1) : port);
+			}
+		}
+
+		for (int i = 1; i <= 3; i++) {
+			for (String connector : new String[] { "B_to_C_begin" + i, "B_to_C_finish" + i }) {
+				if (!connectorNames.contains(connector)) {
+					throw new TestFailException("Expected the connector " + connector + ", got " + connectorNames);
+				}
+			}
+			for (String port : new String[] { "B" + i + ".begin", "B" + i + ".finish" }) {
+				if (!interactionPorts.contains(port)) {
+					throw new TestFailException("No interaction of the port " + port);
+				}
+			}
+		}
+		if (connectorNames.size() != 6 || instance.getInteractions().size() != 6) {
+			throw new TestFailException("Expected 6 connectors and interactions, got " + connectorNames);
+		}
+	}
+
+	/**
+	 * The only solution of Parallel Memory with 20 operands is a degree of 20,
+	 * which is above the bound of the bounded search. The bounded search must
+	 * give up with an unknown result, while Z3 finds the degree.
+	 */
+	public static void testBoundedSolverUnknown() throws Z3Exception, TestFailException, FileNotFoundException,
+			ConfigurationFileException, ArchitectureExtractorException {
+		String archStyleConfFilePath = new File(PARENT,
+				BASE_TEST_DIRECTORY + INSTANTIATION_INPUT_FILES + PAR_MEM_WIDE_ARCH_STYLE_CONF).getAbsolutePath();
+
+		String archOpConfFilePath = new File(PARENT,
+				BASE_TEST_DIRECTORY + INSTANTIATION_INPUT_FILES + PAR_MEM_WIDE_ARCH_OP_CONF).getAbsolutePath();
+
+		ArchitectureStyle architectureStyle = new ArchitectureStyle(PARENT, archStyleConfFilePath);
+		ArchitectureOperands architectureOperands = new ArchitectureOperands(PARENT, archOpConfFilePath);
+
+		try {
+			/* No degree up to the bound works, which is not a proof of no solution */
+			ArchitectureStyleSolver.calculateVariables(architectureStyle, architectureOperands,
+					new BoundedSearchCardinalitySolver());
+			throw new TestFailException("The bounded search found a degree above its bound");
+		} catch (SolverUnknownException e) {
+			System.out.println(e.getMessage());
+		}
+
+		try {
+			CardinalitySolution solution = ArchitectureStyleSolver.calculateVariables(architectureStyle,
+					architectureOperands, new Z3CardinalitySolver());
+			if (solution.getValue("deg_C.write") != 20) {
+				throw new TestFailException("Expected deg_C.write=20, got " + solution);
+			}
+		} catch (SolverUnknownException e) {
+			throw new TestFailException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Mutual Exclusion where the cardinalities are calculated by the bounded
+	 * search instead of Z3.
+	 */
+	public static void testSolverBounded() throws Z3Exception, TestFailException, ListEmptyException {
+		TestInstantiation.testInstantiation(
+				new String[] { SOLVER_FLAG, ArchitectureStyleSolver.BOUNDED_SOLVER },
+				getInputPath(MUTEX_ARCH_STYLE_CONF), getInputPath(MUTEX_ARCH_OP_CONF),
+				getOutputPath(MUTEX_BOUNDED_OUTPUT_BIP), getOutputPath(MUTEX_BOUNDED_OUTPUT_CONF));
+	}
+
+	/**
+	 * Mutual Exclusion instantiated twice with the same solver cache, where
+	 * the second run takes the cardinalities from the cache.
+	 */
+	public static void testSolverCache() throws Z3Exception, TestFailException, ListEmptyException {
+		String[] options = new String[] { SOLVER_CACHE_FLAG, getOutputPath(MUTEX_SOLVER_CACHE) };
+
+		for (int i = 0; i < 2; i++) {
+			TestInstantiation.testInstantiation(options, getInputPath(MUTEX_ARCH_STYLE_CONF),
+					getInputPath(MUTEX_ARCH_OP_CONF), getOutputPath(MUTEX_CACHED_OUTPUT_BIP),
+					getOutputPath(MUTEX_CACHED_OUTPUT_CONF));
+		}
+
+		/* The solution of the first run is stored in the cache */
+		File[] cached = new File(getOutputPath(MUTEX_SOLVER_CACHE)).listFiles();
+		if (cached == null || cached.length == 0) {
+			throw new TestFailException("No solution was stored in the solver cache");
+		}
+	}
+
+	/**
+	 * Mutual Exclusion with up to two cardinality solutions, each written to
+	 * the output files with its index.
+	 */
+	public static void testSolutions() throws Z3Exception, TestFailException, ListEmptyException {
+		TestInstantiation.testInstantiation(new String[] { SOLUTIONS_FLAG, "2" },
+				getInputPath(MUTEX_ARCH_STYLE_CONF), getInputPath(MUTEX_ARCH_OP_CONF),
+				getOutputPath(MUTEX_SOLUTIONS_OUTPUT_BIP), getOutputPath(MUTEX_SOLUTIONS_OUTPUT_CONF));
+	}
+
+	/**
+	 * Mutual Exclusion with the dry run, where only the projected size is
+	 * reported and no output file is written.
+	 */
+	public static void testDryRun() throws Z3Exception, TestFailException, ListEmptyException {
+		String outputBipFilePath = getOutputPath(MUTEX_DRY_RUN_OUTPUT_BIP);
+
+		TestInstantiation.testInstantiation(new String[] { DRY_RUN_FLAG }, getInputPath(MUTEX_ARCH_STYLE_CONF),
+				getInputPath(MUTEX_ARCH_OP_CONF), outputBipFilePath, getOutputPath(MUTEX_DRY_RUN_OUTPUT_CONF));
+
+		if (new File(outputBipFilePath).exists()) {
+			throw new TestFailException("The dry run wrote the BIP file " + outputBipFilePath);
+		}
+	}
+
+	/**
+	 * Mutual Exclusion where the operands are given with the range syntax
+	 * B[1..3] and the ports with {B[i].begin}.
+	 */
+	public static void testRangeSyntax() throws Z3Exception, TestFailException, ListEmptyException {
+		TestInstantiation.testInstantiation(new String[0], getInputPath(MUTEX_ARCH_STYLE_CONF),
+				getInputPath(MUTEX_RANGE_ARCH_OP_CONF), getOutputPath(MUTEX_RANGE_OUTPUT_BIP),
+				getOutputPath(MUTEX_RANGE_OUTPUT_CONF));
+	}
+
+	/**
+	 * In Mutual Exclusion with pairs, every operand begins through two ports,
+	 * so the port tuple B.begin 2 2 has only known terms. The bounded search
+	 * must check it before assigning any unknown, and find the same matching
+	 * factor as Z3.
+	 */
+	public static void testBoundedSolverKnownTuple() throws Z3Exception, TestFailException,
+			FileNotFoundException, ConfigurationFileException, ArchitectureExtractorException {
+		ArchitectureStyle architectureStyle = new ArchitectureStyle(PARENT,
+				getInputPath(MUTEX_PAIRS_ARCH_STYLE_CONF));
+		ArchitectureOperands architectureOperands = new ArchitectureOperands(PARENT,
+				getInputPath(MUTEX_PAIRS_ARCH_OP_CONF));
+
+		CardinalitySolver[] solvers = new CardinalitySolver[] { new BoundedSearchCardinalitySolver(),
+				new Z3CardinalitySolver() };
+		for (CardinalitySolver solver : solvers) {
+			/* Every backend starts from the same unknowns */
+			ArchitectureStyleSolver.resetVariables(architectureStyle);
+
+			try {
+				CardinalitySolution solution = ArchitectureStyleSolver.calculateVariables(architectureStyle,
+						architectureOperands, solver);
+				/* Four begin ports in pairs, each twice, give four connectors */
+				if (solution.getValue("card_C.take") * solution.getValue("deg_C.take") != 4) {
+					throw new TestFailException("Expected a matching factor of 4, got " + solution);
+				}
+			} catch (SolverUnknownException e) {
+				throw new TestFailException(e.getMessage());
+			}
+		}
+	}
+
 	public static void main(String[] args) {
 
 		try {
+			TestInstantiation.testBoundedSolverUnknown();
+			TestInstantiation.testBoundedSolverKnownTuple();
 			TestInstantiation.testMutex();
+			TestInstantiation.testSolverBounded();
+			TestInstantiation.testSolverCache();
+			TestInstantiation.testSolutions();
+			TestInstantiation.testDryRun();
+			TestInstantiation.testRangeSyntax();
+			TestInstantiation.testUpdateInstance();
 			// TestInstantiation.testModes2();
 			// TestInstantiation.testActionSequence();
 			// TestInstantiation.testActionFlow();
@@ -362,6 +634,9 @@ public class TestInstantiation {
 		} catch (ListEmptyException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
+		} catch (ConfigurationFileException | ArchitectureExtractorException | ArchitectureBuilderException
+				| IOException | InterruptedException | SolverUnknownException e) {
+			e.printStackTrace();
 		}
 
 	}